@@ -2,11 +2,22 @@
 
 CURRENT_CONTAINER=$(docker-compose ps -q)
 
+if [ "$REINDEX_REGIONS" = "true" ]; then
+	echo "허가구역 데이터 색인..."
+	./gradlew ingestRegions -PingestArgs="--es-host=${ES_HOST:-http://localhost:9200} ${REGION_SOURCE:+--source=$REGION_SOURCE}" || exit 1
+fi
+
 if ! [ -z "$CURRENT_CONTAINER" ]; then
 	echo "실행중인 컨테이너 종료 및 삭제..."
 	docker-compose down
 fi
 
+# 이전 컨테이너가 내려간 뒤에 실행해야 그동안 중첩 배열에 쓰인 평점까지 옮겨진다
+if [ "$MIGRATE_RATINGS" = "true" ]; then
+	echo "트럭 평점 데이터 이전..."
+	./gradlew migrateRatings -PmigrateArgs="--es-host=${ES_HOST:-http://localhost:9200}" || exit 1
+fi
+
 echo "빌드/실행..."
 
 docker-compose up -d
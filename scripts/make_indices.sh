@@ -1,76 +1,21 @@
 #!/usr/bin/bash
 
 #region
-curl -XPUT 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/region?pretty' \
+# RegionIngestion builds a fresh region-<timestamp> index from the same mapping on every run and moves the
+# "region" alias to it. This creates the first version so the application has an index to start against.
+curl -XPUT 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/region-initial?pretty' \
+-u "${ES_USER}:${ES_PASSWORD}" \
+-H 'Content-Type: application/json' \
+-d @"$(dirname "$0")/../src/main/resources/elasticsearch/region-index.json"
+
+curl -XPOST 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/_aliases?pretty' \
 -u "${ES_USER}:${ES_PASSWORD}" \
 -H 'Content-Type: application/json' \
 -d \
 '{
-  "settings": {
-    "number_of_shards": 3,
-    "number_of_replicas": 1
-  },
-  "mappings": {
-    "properties": {
-      "regionName": {
-        "type": "keyword"
-      },
-      "regionType": {
-        "type": "integer"
-      },
-      "city": {
-        "type": "keyword"
-      },
-      "town": {
-        "type": "keyword"
-      },
-      "roadAddress": {
-        "type": "text"
-      },
-      "postAddress": {
-        "type": "text"
-      },
-      "geoLocation": {
-        "type": "geo_point"
-      },
-      "capacity": {
-        "type": "integer"
-      },
-      "cost": {
-        "type": "keyword"
-      },
-      "permissionStartDate": {
-        "type": "date"
-      },
-      "permissionEndDate": {
-        "type": "date"
-      },
-      "closedDays": {
-        "type": "keyword"
-      },
-      "weekdayStartTime": {
-        "type": "keyword"
-      },
-      "weekdayEndTime": {
-        "type": "keyword"
-      },
-      "weekendStartTime": {
-        "type": "keyword"
-      },
-      "weekendEndTime": {
-        "type": "keyword"
-      },
-      "restrictedItems": {
-        "type": "keyword"
-      },
-      "agencyName": {
-        "type": "keyword"
-      },
-      "agencyTel": {
-        "type": "keyword"
-      }
-    }
-  }
+  "actions": [
+    { "add": { "index": "region-initial", "alias": "region" } }
+  ]
 }'
 
 #truck
@@ -106,6 +51,22 @@ curl -XPUT 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/
        "imageUrl": {
          "type": "keyword"
        },
+       "imageVariants": {
+         "type": "object",
+         "enabled": false
+       },
+       "imageVersion": {
+         "type": "long"
+       },
+       "numRating": {
+         "type": "integer"
+       },
+       "starAvg": {
+         "type": "float"
+       },
+       "ratingSum": {
+         "type": "double"
+       },
        "foods": {
          "type": "nested",
          "properties": {
@@ -123,31 +84,10 @@ curl -XPUT 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/
            },
            "imageUrl": {
              "type": "keyword"
-           }
-         }
-       },
-       "ratings": {
-         "type": "nested",
-         "properties": {
-           "id": {
-             "type": "keyword"
            },
-           "userId": {
-             "type": "keyword"
-           },
-           "star": {
-             "type": "byte"
-           },
-           "comment": {
-             "type": "keyword"
-           },
-           "createdDate": {
-             "type": "date",
-             "format": "yyyy-MM-dd HH:mm:ss"
-           },
-           "updatedDate": {
-             "type": "date",
-             "format": "yyyy-MM-dd HH:mm:ss"
+           "imageVariants": {
+             "type": "object",
+             "enabled": false
            }
          }
        }
@@ -204,4 +144,71 @@ curl -XPUT 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/
       }
     }
   }
-}'
\ No newline at end of file
+}'
+
+#rating
+curl -XPUT 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/rating?pretty' \
+-u "${ES_USER}:${ES_PASSWORD}" \
+-H 'Content-Type: application/json' \
+-d \
+'{
+  "settings": {
+    "number_of_shards": 3,
+    "number_of_replicas": 1
+  },
+  "mappings": {
+    "properties": {
+      "id": {
+        "type": "keyword"
+      },
+      "truckId": {
+        "type": "keyword"
+      },
+      "userId": {
+        "type": "keyword"
+      },
+      "star": {
+        "type": "float"
+      },
+      "comment": {
+        "type": "keyword"
+      },
+      "createdDate": {
+        "type": "date",
+        "format": "yyyy-MM-dd HH:mm:ss"
+      },
+      "updatedDate": {
+        "type": "date",
+        "format": "yyyy-MM-dd HH:mm:ss"
+      }
+    }
+  }
+}'
+
+#truck location history (one index per day, created on first write)
+curl -XPUT 'http://ec2-13-209-181-246.ap-northeast-2.compute.amazonaws.com:9200/_template/truck-location?pretty' \
+-u "${ES_USER}:${ES_PASSWORD}" \
+-H 'Content-Type: application/json' \
+-d \
+'{
+  "index_patterns": ["truck-location-*"],
+  "settings": {
+    "number_of_shards": 1,
+    "number_of_replicas": 1,
+    "refresh_interval": "30s"
+  },
+  "mappings": {
+    "properties": {
+      "truckId": {
+        "type": "keyword"
+      },
+      "geoLocation": {
+        "type": "geo_point"
+      },
+      "timestamp": {
+        "type": "date",
+        "format": "epoch_millis"
+      }
+    }
+  }
+}'
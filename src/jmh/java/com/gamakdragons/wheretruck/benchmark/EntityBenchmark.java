@@ -0,0 +1,56 @@
+package com.gamakdragons.wheretruck.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.gamakdragons.wheretruck.domain.food.entity.Food;
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EntityBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int numRatings;
+
+    private Truck truck;
+    private Rating rating;
+    private Food food;
+
+    @Setup
+    public void setUp() {
+        truck = Fixtures.truck(10, numRatings);
+        rating = Fixtures.rating(new Random(42), LocalDateTime.of(2021, 6, 1, 0, 0));
+        food = Fixtures.food(0);
+    }
+
+    @Benchmark
+    public Map<String, Object> ratingToMap() {
+        return rating.toMap();
+    }
+
+    @Benchmark
+    public Map<String, Object> foodToMap() {
+        return food.toMap();
+    }
+
+    @Benchmark
+    public List<Rating> sortRatingsByCreatedDate() {
+        return truck.getRatings().stream().sorted((r1, r2) -> r2.getCreatedDate().compareTo(r1.getCreatedDate())).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,64 @@
+package com.gamakdragons.wheretruck.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.google.gson.Gson;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EsDocumentCodecBenchmark {
+
+    @Param({"0", "50", "500"})
+    private int numRatings;
+
+    private Truck truck;
+    private String sourceAsString;
+    private BytesReference sourceRef;
+
+    @Setup
+    public void setUp() {
+        truck = Fixtures.truck(10, numRatings);
+        byte[] source = EsDocumentCodec.write(truck);
+        sourceRef = new BytesArray(source);
+        sourceAsString = sourceRef.utf8ToString();
+    }
+
+    @Benchmark
+    public Truck readWithNewGson() {
+        return new Gson().fromJson(sourceAsString, Truck.class);
+    }
+
+    @Benchmark
+    public Truck readString() {
+        return EsDocumentCodec.read(sourceAsString, Truck.class);
+    }
+
+    @Benchmark
+    public Truck readBytes() {
+        return EsDocumentCodec.read(sourceRef, Truck.class);
+    }
+
+    @Benchmark
+    public String writeWithNewGson() {
+        return new Gson().toJson(truck);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return EsDocumentCodec.write(truck);
+    }
+}
@@ -0,0 +1,62 @@
+package com.gamakdragons.wheretruck.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EsRequestFactoryBenchmark {
+
+    private static final String INDEX = "truck";
+
+    private GeoLocation geoLocation;
+    private Truck truck;
+    private Object[] searchAfter;
+
+    @Setup
+    public void setUp() {
+        geoLocation = new GeoLocation(37.5f, 127.0f);
+        truck = Fixtures.truck(10, 50);
+        searchAfter = new Object[]{1234.5, truck.getId()};
+    }
+
+    @Benchmark
+    public SearchRequest searchAll() {
+        return EsRequestFactory.createSearchAllRequest(INDEX, null, new String[]{"foods", "ratings"});
+    }
+
+    @Benchmark
+    public SearchRequest geoSearch() {
+        return EsRequestFactory.createGeoSearchRequest(INDEX, geoLocation, 3.0f, null, new String[]{"foods", "ratings"});
+    }
+
+    @Benchmark
+    public SearchRequest paginatedSearchAll() {
+        return EsRequestFactory.paginate(EsRequestFactory.createSearchAllRequest(INDEX), 100, searchAfter, "id");
+    }
+
+    @Benchmark
+    public IndexRequest indexTruck() {
+        return EsRequestFactory.createIndexRequest(INDEX, truck.getId(), truck);
+    }
+
+    @Benchmark
+    public UpdateRequest updateTruck() {
+        return EsRequestFactory.createUpdateRequest(INDEX, truck.getId(), truck);
+    }
+}
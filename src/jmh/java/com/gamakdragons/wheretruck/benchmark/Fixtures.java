@@ -0,0 +1,57 @@
+package com.gamakdragons.wheretruck.benchmark;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.food.entity.Food;
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+
+class Fixtures {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    static Truck truck(int numFoods, int numRatings) {
+        Random random = new Random(42);
+
+        List<Food> foods = new ArrayList<>();
+        for(int i = 0; i < numFoods; i++) {
+            foods.add(food(i));
+        }
+
+        List<Rating> ratings = new ArrayList<>();
+        LocalDateTime base = LocalDateTime.of(2021, 6, 1, 0, 0);
+        for(int i = 0; i < numRatings; i++) {
+            ratings.add(rating(random, base.plusMinutes(random.nextInt(500000))));
+        }
+
+        return new Truck(UUID.randomUUID().toString(), "truck", new GeoLocation(37.5f, 127.0f), "description of the truck",
+                true, UUID.randomUUID().toString(), numRatings, 4.2f, "https://example.com/truck.jpg", null, foods, ratings, null);
+    }
+
+    static Food food(int i) {
+        return Food.builder()
+                .id(UUID.randomUUID().toString())
+                .name("food" + i)
+                .cost(1000 * (i + 1))
+                .description("description of food" + i)
+                .imageUrl("https://example.com/food" + i + ".jpg")
+                .build();
+    }
+
+    static Rating rating(Random random, LocalDateTime createdDate) {
+        Rating rating = new Rating();
+        rating.setId(UUID.randomUUID().toString());
+        rating.setUserId(UUID.randomUUID().toString());
+        rating.setStar(1 + random.nextInt(5));
+        rating.setComment("comment " + random.nextInt());
+        rating.setCreatedDate(createdDate.format(DATE_FORMAT));
+        rating.setUpdatedDate(createdDate.format(DATE_FORMAT));
+        return rating;
+    }
+}
@@ -0,0 +1,73 @@
+package com.gamakdragons.wheretruck.benchmark;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.gamakdragons.wheretruck.auth.service.JwtUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtUtilBenchmark {
+
+    /**
+     * Repeated validations of the same token, served from the validated-token cache after the first call.
+     */
+    @State(Scope.Benchmark)
+    public static class Cached {
+
+        String userId;
+        String token;
+
+        @Setup
+        public void setUp() {
+            token = setUpJwtUtil(10000);
+            userId = JwtUtil.validate(token);
+        }
+    }
+
+    /**
+     * The cache is disabled so that every validation parses the token and verifies its signature.
+     */
+    @State(Scope.Benchmark)
+    public static class Uncached {
+
+        String token;
+
+        @Setup
+        public void setUp() {
+            token = setUpJwtUtil(0);
+        }
+    }
+
+    @Benchmark
+    public String generateToken(Cached state) {
+        return JwtUtil.generateToken(state.userId);
+    }
+
+    @Benchmark
+    public String validateCached(Cached state) {
+        return JwtUtil.validate(state.token);
+    }
+
+    @Benchmark
+    public String validateUncached(Uncached state) {
+        return JwtUtil.validate(state.token);
+    }
+
+    private static String setUpJwtUtil(int validatedTokenCacheSize) {
+        JwtUtil jwtUtil = new JwtUtil();
+        jwtUtil.setSecretKey("wheretruck-benchmark-secret-key-wheretruck-benchmark-secret-key");
+        jwtUtil.setExpirationTime(3600000L);
+        jwtUtil.setValidatedTokenCacheSize(validatedTokenCacheSize);
+
+        return JwtUtil.generateToken(UUID.randomUUID().toString());
+    }
+}
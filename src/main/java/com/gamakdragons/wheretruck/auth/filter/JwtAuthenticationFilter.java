@@ -1,6 +1,7 @@
 package com.gamakdragons.wheretruck.auth.filter;
 
 import java.io.IOException;
+import java.util.regex.Pattern;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -18,13 +19,18 @@ import org.springframework.http.HttpStatus;
 
 public class JwtAuthenticationFilter implements Filter {
 
+	/**
+	 * GETs are public except for these, which return data only the owner may see.
+	 */
+	private static final Pattern AUTHENTICATED_GET = Pattern.compile("^/api/truck/[^/]+/track$");
+
 	@Override
 	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
 
 		HttpServletRequest req = (HttpServletRequest) request;
 		HttpServletResponse res = (HttpServletResponse) response;
 
-		if(req.getMethod().equals("GET")) {
+		if(req.getMethod().equals("GET") && !AUTHENTICATED_GET.matcher(req.getRequestURI()).matches()) {
 			chain.doFilter(req, res);
 			return;
 		}
@@ -1,27 +1,28 @@
 package com.gamakdragons.wheretruck.auth.service;
 
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
+import java.io.IOException;
+import java.security.Key;
 import java.security.PublicKey;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.RSAPublicKeySpec;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.gamakdragons.wheretruck.auth.dto.apple.ApplePublicKeyResponse;
+import com.gamakdragons.wheretruck.auth.service.apple.ApplePublicKeyCache;
 import com.gamakdragons.wheretruck.auth.exception.JwtException;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
@@ -33,10 +34,17 @@ import lombok.extern.slf4j.Slf4j;
 @Component
 public class JwtUtil {
 
-    private static String JWT_SECRET;
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> HEADER_TYPE = new TypeReference<Map<String, String>>() {};
+
+    private static volatile Key SIGNING_KEY;
+
+    private static volatile JwtParser PARSER;
 
     private static long EXPIRATION_TIME;
 
+    private static volatile Map<String, ValidatedToken> VALIDATED_TOKENS = validatedTokenCache(10000);
+
     public static String generateToken(String userId) {
 
         Date now = new Date();
@@ -45,18 +53,26 @@ public class JwtUtil {
                     .setSubject(userId)
                     .setIssuedAt(now)
                     .setExpiration(new Date(now.getTime() + EXPIRATION_TIME))
-                    .signWith(SignatureAlgorithm.HS256, Base64.getEncoder().encodeToString(JWT_SECRET.getBytes()))
+                    .signWith(SignatureAlgorithm.HS256, SIGNING_KEY)
                     .compact();
     }
 
     public static String validate(String token) throws JwtException {
 
-        String jwt;
-        try {
-            jwt = Jwts.parser()
-                        .setSigningKey(Base64.getEncoder().encodeToString(JWT_SECRET.getBytes()))
-                        .parseClaimsJws(token).getBody().getSubject();
+        Map<String, ValidatedToken> validatedTokens = VALIDATED_TOKENS;
+        ValidatedToken validated = token == null ? null : validatedTokens.get(token);
+        if(validated != null) {
+            if(validated.expiresAt > System.currentTimeMillis()) {
+                return validated.subject;
+            }
+            validatedTokens.remove(token);
+            log.error("JWT token is expired\n" + token);
+            throw new JwtException("JWT token is expired");
+        }
 
+        Claims claims;
+        try {
+            claims = PARSER.parseClaimsJws(token).getBody();
         } catch (SignatureException e) { 
             log.error("Invalid JWT signature.\n" + token, e.getMessage()); 
             throw new JwtException("Invalid JWT signature");
@@ -74,55 +90,32 @@ public class JwtUtil {
             throw new JwtException("JWT claims string is empty");
         }
 
+        String jwt = claims.getSubject();
         if(!StringUtils.hasLength(jwt)) {
             throw new JwtException("Jwt is null or empty");
         }
 
+        if(claims.getExpiration() != null) {
+            validatedTokens.put(token, new ValidatedToken(jwt, claims.getExpiration().getTime()));
+        }
+
         return jwt;
 
     }
 
-    @SuppressWarnings("unchecked")
-    public static String parseUserIdFormAppleJwt(String identityToken, ApplePublicKeyResponse applePublicKeyResponse) {
+    public static String parseUserIdFormAppleJwt(String identityToken, ApplePublicKeyCache applePublicKeyCache) {
 
         String headerOfIdentityToken = identityToken.substring(0, identityToken.indexOf("."));
         Map<String, String> header;
         try {
-            header = new ObjectMapper().readValue(new String(Base64.getDecoder().decode(headerOfIdentityToken), StandardCharsets.UTF_8), Map.class);
-        } catch (JsonMappingException e1) {
-            log.error("JsonMappingException. decoded header of identityToken value cannot be mapped.", e1);
-            return null;
-        } catch (JsonProcessingException e2) {
-            log.error("JsonProcessingException. decoded header of identityToken value cannot be processed with json.", e2);
+            header = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(headerOfIdentityToken), HEADER_TYPE);
+        } catch (IOException e) {
+            log.error("IOException. decoded header of identityToken value cannot be mapped.", e);
             return null;
         }
 
-        ApplePublicKeyResponse.Key key = applePublicKeyResponse.getMatchedKeyBy(header.get("kid"), header.get("alg"))
+        PublicKey publicKey = applePublicKeyCache.get(header.get("kid"), header.get("alg"))
 			.orElseThrow(() -> new NullPointerException("Failed get public key from apple's id server."));
-		
-        byte[] nBytes = Base64.getUrlDecoder().decode(key.getN());
-        byte[] eBytes = Base64.getUrlDecoder().decode(key.getE());
-
-        BigInteger n = new BigInteger(1, nBytes);
-        BigInteger e = new BigInteger(1, eBytes);
-
-        RSAPublicKeySpec publicKeySpec = new RSAPublicKeySpec(n, e);
-        KeyFactory keyFactory;
-
-        try {
-            keyFactory = KeyFactory.getInstance(key.getKty());
-        } catch (NoSuchAlgorithmException ex) {
-            log.error("NoSuchAlgorithmException", ex);
-            return null;
-        }
-
-        PublicKey publicKey;
-        try {
-            publicKey = keyFactory.generatePublic(publicKeySpec);
-        } catch (InvalidKeySpecException ex) {
-            log.error("InvalidKeySpecException", ex);
-            return null;
-        }
 
         return Jwts.parser().setSigningKey(publicKey).parseClaimsJws(identityToken).getBody().getSubject();
     }
@@ -130,12 +123,39 @@ public class JwtUtil {
 
     @Value("${jwt.secret}")
     public void setSecretKey(String value) {
-        JWT_SECRET = value;
+        SIGNING_KEY = new SecretKeySpec(value.getBytes(), SignatureAlgorithm.HS256.getJcaName());
+        PARSER = Jwts.parser().setSigningKey(SIGNING_KEY);
+        VALIDATED_TOKENS.clear();
     }
 
     @Value("${jwt.token-validity-in-days}")
     public void setExpirationTime(long value) {
         EXPIRATION_TIME = value * 24 * 60 * 60 * 1000;
     }
-    
+
+    @Value("${jwt.validated-token-cache-size:10000}")
+    public void setValidatedTokenCacheSize(int value) {
+        VALIDATED_TOKENS = validatedTokenCache(value);
+    }
+
+    private static Map<String, ValidatedToken> validatedTokenCache(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<String, ValidatedToken>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ValidatedToken> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    private static class ValidatedToken {
+
+        private final String subject;
+        private final long expiresAt;
+
+        ValidatedToken(String subject, long expiresAt) {
+            this.subject = subject;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
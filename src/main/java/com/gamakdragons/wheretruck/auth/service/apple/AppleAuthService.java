@@ -4,7 +4,6 @@ import com.gamakdragons.wheretruck.auth.dto.LoginRequestDto;
 import com.gamakdragons.wheretruck.auth.dto.LoginResponseDto;
 import com.gamakdragons.wheretruck.auth.dto.LogoutRequestDto;
 import com.gamakdragons.wheretruck.auth.dto.LogoutResponseDto;
-import com.gamakdragons.wheretruck.auth.dto.apple.ApplePublicKeyResponse;
 import com.gamakdragons.wheretruck.auth.service.JwtUtil;
 import com.gamakdragons.wheretruck.auth.service.OAuth2Service;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
@@ -12,9 +11,7 @@ import com.gamakdragons.wheretruck.domain.user.entity.User;
 import com.gamakdragons.wheretruck.domain.user.service.UserService;
 
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,24 +23,18 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 public class AppleAuthService implements OAuth2Service {
 
-	private final RestTemplate restTemplate;
+	private final ApplePublicKeyCache applePublicKeyCache;
 	private final UserService userService;
 
-	@Value("${oauth2.provider.apple.public_key_url}")
-	private String publicKeyUrl;
-
 	@Override
 	public LoginResponseDto login(LoginRequestDto loginRequestDto) {
 
 		String identityToken = loginRequestDto.getAuthToken();
 		log.info("identityToken= " + identityToken);
 
-		ApplePublicKeyResponse applePublicKeyResponse = restTemplate.getForObject(publicKeyUrl, ApplePublicKeyResponse.class);
-		log.info(applePublicKeyResponse.toString());
-
 		String userId;
 		try {
-			userId = JwtUtil.parseUserIdFormAppleJwt(identityToken, applePublicKeyResponse);
+			userId = JwtUtil.parseUserIdFormAppleJwt(identityToken, applePublicKeyCache);
 		} catch(NullPointerException e) {
 			log.error(e.getMessage(), e);
 			return LoginResponseDto.builder()
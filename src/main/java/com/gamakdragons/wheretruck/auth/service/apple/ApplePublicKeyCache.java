@@ -0,0 +1,186 @@
+package com.gamakdragons.wheretruck.auth.service.apple;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import com.gamakdragons.wheretruck.auth.dto.apple.ApplePublicKeyResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class ApplePublicKeyCache {
+
+    private final RestTemplate restTemplate;
+    private final String publicKeyUrl;
+    private final long ttlMs;
+    private final long refreshAheadMs;
+    private final long minRefetchIntervalMs;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap(), Long.MIN_VALUE);
+    private volatile long lastFetchAttempt = Long.MIN_VALUE;
+
+    @Autowired
+    public ApplePublicKeyCache(RestTemplate restTemplate,
+                                @Value("${oauth2.provider.apple.public_key_url}") String publicKeyUrl,
+                                @Value("${oauth2.provider.apple.key-cache.ttl-ms:86400000}") long ttlMs,
+                                @Value("${oauth2.provider.apple.key-cache.refresh-ahead-ms:600000}") long refreshAheadMs,
+                                @Value("${oauth2.provider.apple.key-cache.min-refetch-interval-ms:60000}") long minRefetchIntervalMs) {
+        this(restTemplate, publicKeyUrl, ttlMs, refreshAheadMs, minRefetchIntervalMs, ForkJoinPool.commonPool(), System::currentTimeMillis);
+    }
+
+    ApplePublicKeyCache(RestTemplate restTemplate, String publicKeyUrl, long ttlMs, long refreshAheadMs, long minRefetchIntervalMs,
+                        Executor refreshExecutor, LongSupplier clock) {
+        this.restTemplate = restTemplate;
+        this.publicKeyUrl = publicKeyUrl;
+        this.ttlMs = ttlMs;
+        this.refreshAheadMs = refreshAheadMs;
+        this.minRefetchIntervalMs = minRefetchIntervalMs;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+    }
+
+    public Optional<PublicKey> get(String kid, String alg) {
+
+        long now = clock.getAsLong();
+        long attempt = lastFetchAttempt;
+        Snapshot current = snapshot;
+
+        if(current.isExpired(now, ttlMs)) {
+            if(canRefetch(now, attempt)) {
+                current = refresh(current, attempt);
+                attempt = lastFetchAttempt;
+            }
+        } else if(current.isExpired(now, ttlMs - refreshAheadMs) && canRefetch(now, attempt)) {
+            refreshAhead();
+        }
+
+        CachedKey key = current.keys.get(kid);
+        if(key == null && canRefetch(now, attempt)) {
+            log.info("unknown apple key id. refetching public keys. kid=" + kid);
+            current = refresh(current, attempt);
+            key = current.keys.get(kid);
+        }
+
+        if(key == null || !key.alg.equals(alg)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(key.publicKey);
+    }
+
+    private void refreshAhead() {
+        if(!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    refresh(snapshot, lastFetchAttempt);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch(RuntimeException e) {
+            refreshing.set(false);
+            log.error("failed to schedule apple public key refresh. " + e.getMessage());
+        }
+    }
+
+    private boolean canRefetch(long now, long attempt) {
+        return attempt == Long.MIN_VALUE || now - attempt >= minRefetchIntervalMs;
+    }
+
+    private synchronized Snapshot refresh(Snapshot seenSnapshot, long seenAttempt) {
+
+        if(snapshot != seenSnapshot || lastFetchAttempt != seenAttempt) {
+            return snapshot;
+        }
+
+        lastFetchAttempt = clock.getAsLong();
+
+        ApplePublicKeyResponse response;
+        try {
+            response = restTemplate.getForObject(publicKeyUrl, ApplePublicKeyResponse.class);
+        } catch(RestClientException e) {
+            log.error("failed to fetch apple public keys. " + e.getMessage());
+            return snapshot;
+        }
+
+        if(response == null || response.getKeys() == null) {
+            log.error("apple public key response is empty.");
+            return snapshot;
+        }
+
+        Map<String, CachedKey> keys = new HashMap<>();
+        for(ApplePublicKeyResponse.Key key : response.getKeys()) {
+            try {
+                keys.put(key.getKid(), new CachedKey(key.getAlg(), toPublicKey(key)));
+            } catch(GeneralSecurityException | IllegalArgumentException e) {
+                log.error("failed to build apple public key. kid=" + key.getKid() + ", " + e.getMessage());
+            }
+        }
+
+        snapshot = new Snapshot(Collections.unmodifiableMap(keys), lastFetchAttempt);
+        log.info("apple public keys refreshed. kids=" + keys.keySet());
+
+        return snapshot;
+    }
+
+    private static PublicKey toPublicKey(ApplePublicKeyResponse.Key key) throws GeneralSecurityException {
+
+        BigInteger n = new BigInteger(1, Base64.getUrlDecoder().decode(key.getN()));
+        BigInteger e = new BigInteger(1, Base64.getUrlDecoder().decode(key.getE()));
+
+        return KeyFactory.getInstance(key.getKty()).generatePublic(new RSAPublicKeySpec(n, e));
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, CachedKey> keys;
+        private final long fetchedAt;
+
+        Snapshot(Map<String, CachedKey> keys, long fetchedAt) {
+            this.keys = keys;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isExpired(long now, long ttlMs) {
+            return fetchedAt == Long.MIN_VALUE || now - fetchedAt >= ttlMs;
+        }
+    }
+
+    private static class CachedKey {
+
+        private final String alg;
+        private final PublicKey publicKey;
+
+        CachedKey(String alg, PublicKey publicKey) {
+            this.alg = alg;
+            this.publicKey = publicKey;
+        }
+    }
+}
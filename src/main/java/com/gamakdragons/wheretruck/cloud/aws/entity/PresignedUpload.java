@@ -0,0 +1,21 @@
+package com.gamakdragons.wheretruck.cloud.aws.entity;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@Builder
+@ToString
+@JsonInclude(Include.NON_NULL)
+public class PresignedUpload {
+
+    private String result;
+    private String key;
+    private String url;
+    private String contentType;
+    private Long expiresAt;
+}
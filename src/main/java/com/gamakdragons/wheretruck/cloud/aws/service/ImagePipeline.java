@@ -0,0 +1,331 @@
+package com.gamakdragons.wheretruck.cloud.aws.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
+import com.gamakdragons.wheretruck.cloud.aws.exception.S3ServiceException;
+import com.gamakdragons.wheretruck.util.ImageResizer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Uploads an image together with downscaled JPEG variants off the request thread.
+ * The original keeps its key; variants are stored next to it as {key}_medium.jpg and {key}_thumb.jpg.
+ */
+@Component
+@Slf4j
+public class ImagePipeline {
+
+    public static final String ORIGINAL = "original";
+    public static final String MEDIUM = "medium";
+    public static final String THUMB = "thumb";
+
+    private static final String VARIANT_CONTENT_TYPE = "image/jpeg";
+
+    private final S3Service s3Service;
+    private final int mediumSize;
+    private final int thumbSize;
+    private final float quality;
+    private final long maxPixels;
+    private final long maxUploadBytes;
+    private final long closeTimeoutMs;
+
+    private final ThreadPoolExecutor workers;
+    private final ExecutorService uploaders;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public ImagePipeline(S3Service s3Service,
+                            @Value("${image.pipeline.medium-size:800}") int mediumSize,
+                            @Value("${image.pipeline.thumb-size:200}") int thumbSize,
+                            @Value("${image.pipeline.quality:0.8}") float quality,
+                            @Value("${image.pipeline.max-pixels:50000000}") long maxPixels,
+                            @Value("${image.upload.max-bytes:10485760}") long maxUploadBytes,
+                            @Value("${image.pipeline.threads:2}") int threads,
+                            @Value("${image.pipeline.queue-capacity:100}") int queueCapacity,
+                            @Value("${image.pipeline.upload-threads:6}") int uploadThreads,
+                            @Value("${image.pipeline.close-timeout-ms:30000}") long closeTimeoutMs) {
+        this.s3Service = s3Service;
+        this.mediumSize = mediumSize;
+        this.thumbSize = thumbSize;
+        this.quality = quality;
+        this.maxPixels = maxPixels;
+        this.maxUploadBytes = maxUploadBytes;
+        this.closeTimeoutMs = closeTimeoutMs;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                                                runnable -> {
+                                                    Thread thread = new Thread(runnable, "image-pipeline");
+                                                    thread.setDaemon(true);
+                                                    return thread;
+                                                },
+                                                new ThreadPoolExecutor.AbortPolicy());
+        this.uploaders = Executors.newFixedThreadPool(uploadThreads, runnable -> {
+            Thread thread = new Thread(runnable, "image-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static String variantName(String fileName, String variant) {
+        return ORIGINAL.equals(variant) ? fileName : fileName + "_" + variant + ".jpg";
+    }
+
+    public static List<String> variantNames(String fileName) {
+        return Arrays.asList(variantName(fileName, ORIGINAL), variantName(fileName, MEDIUM), variantName(fileName, THUMB));
+    }
+
+    /**
+     * Spools the upload to a file the pipeline owns, since the multipart file is cleaned up once the request ends,
+     * and queues it. onUploaded receives the variant URLs keyed by ORIGINAL/MEDIUM/THUMB on the pipeline thread.
+     * Returns ACCEPTED once queued, or SERVICE_UNAVAILABLE when the queue is full.
+     */
+    public String submit(String bucketName, String fileName, MultipartFile image, Consumer<Map<String, String>> onUploaded) throws S3ServiceException {
+
+        Path spooled = createSpoolFile();
+        try {
+            image.transferTo(spooled);
+        } catch(IOException e) {
+            log.error("failed to spool image. " + e.getMessage());
+            deleteSpoolFile(spooled);
+            throw new S3ServiceException("Failed to read file");
+        }
+
+        long contentLength = image.getSize();
+        String contentType = image.getContentType();
+
+        boolean queued = execute(fileName, spooled, () -> {
+            CompletableFuture<String> original = CompletableFuture.supplyAsync(
+                    () -> s3Service.uploadImage(bucketName, fileName, new FileSystemResource(spooled), contentLength, contentType), uploaders);
+            return process(bucketName, fileName, spooled, original);
+        }, onUploaded);
+
+        return queued ? HttpStatus.ACCEPTED.name() : HttpStatus.SERVICE_UNAVAILABLE.name();
+    }
+
+    /**
+     * Issues a presigned PUT for a staging key under fileName. The client uploads straight to S3 and then
+     * hands the key back through submitUploaded. A presigned PUT cannot limit the body size, so the size is checked there.
+     */
+    public PresignedUpload prepareUpload(String bucketName, String fileName, String contentType) throws S3ServiceException {
+
+        if(!isImage(contentType)) {
+            return PresignedUpload.builder()
+                    .result(HttpStatus.BAD_REQUEST.name())
+                    .build();
+        }
+
+        return s3Service.createUploadUrl(bucketName, fileName, contentType);
+    }
+
+    /**
+     * Queues an image the client has already uploaded to a staging key. The original is copied to fileName inside S3,
+     * the variants are made from a downloaded copy, and the staging object is removed afterwards.
+     * Returns ACCEPTED once queued, NOT_FOUND / BAD_REQUEST when there is no acceptable upload under the key, or
+     * SERVICE_UNAVAILABLE when the queue is full. The staged upload is kept in that case so the client can retry.
+     */
+    public String submitUploaded(String bucketName, String fileName, String key, Consumer<Map<String, String>> onUploaded) throws S3ServiceException {
+
+        if(!s3Service.isUploadKeyOf(fileName, key)) {
+            return HttpStatus.BAD_REQUEST.name();
+        }
+
+        ObjectMetadata metadata = s3Service.getImageMetadata(bucketName, key);
+        if(metadata == null) {
+            return HttpStatus.NOT_FOUND.name();
+        }
+
+        if(metadata.getContentLength() > maxUploadBytes || !isImage(metadata.getContentType())) {
+            log.info("rejecting uploaded image. key=" + key + ", size=" + metadata.getContentLength() + ", contentType=" + metadata.getContentType());
+            s3Service.deleteImage(bucketName, key);
+            return HttpStatus.BAD_REQUEST.name();
+        }
+
+        Path spooled = createSpoolFile();
+        boolean queued = execute(fileName, spooled, () -> {
+            CompletableFuture<String> original = CompletableFuture.supplyAsync(() -> s3Service.copyImage(bucketName, key, fileName), uploaders);
+            try {
+                s3Service.downloadImage(bucketName, key, spooled);
+                return process(bucketName, fileName, spooled, original);
+            } finally {
+                original.handle((url, e) -> url).join();
+                try {
+                    s3Service.deleteImage(bucketName, key);
+                } catch(S3ServiceException e) {
+                    log.warn("failed to delete staged upload " + key);
+                }
+            }
+        }, onUploaded);
+
+        return queued ? HttpStatus.ACCEPTED.name() : HttpStatus.SERVICE_UNAVAILABLE.name();
+    }
+
+    private static boolean isImage(String contentType) {
+        return contentType != null && contentType.startsWith("image/");
+    }
+
+    private Path createSpoolFile() throws S3ServiceException {
+        try {
+            return Files.createTempFile("image-", ".upload");
+        } catch(IOException e) {
+            log.error("failed to create spool file. " + e.getMessage());
+            throw new S3ServiceException("Failed to read file");
+        }
+    }
+
+    private void deleteSpoolFile(Path spooled) {
+        try {
+            Files.deleteIfExists(spooled);
+        } catch(IOException e) {
+            log.warn("failed to delete spooled image " + spooled);
+        }
+    }
+
+    /**
+     * Queues the task, or returns false when the queue is full. Running it on the caller instead would put the
+     * decode and the uploads back on the request thread exactly when the service is busiest.
+     */
+    private boolean execute(String fileName, Path spooled, Supplier<Map<String, String>> task, Consumer<Map<String, String>> onUploaded) {
+
+        inFlight.incrementAndGet();
+        try {
+            workers.execute(() -> {
+                try {
+                    onUploaded.accept(task.get());
+                } catch(RuntimeException e) {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.error("failed to process image. file=" + fileName + ", " + cause.getMessage());
+                } finally {
+                    deleteSpoolFile(spooled);
+                    inFlight.decrementAndGet();
+                }
+            });
+            return true;
+        } catch(RejectedExecutionException e) {
+            log.warn("image pipeline queue is full. rejecting image. file=" + fileName);
+            deleteSpoolFile(spooled);
+            inFlight.decrementAndGet();
+            return false;
+        }
+    }
+
+    private Map<String, String> process(String bucketName, String fileName, Path spooled, CompletableFuture<String> original) {
+
+        CompletableFuture<String> medium = null;
+        CompletableFuture<String> thumb = null;
+        try {
+            BufferedImage decoded = ImageResizer.read(spooled, mediumSize, maxPixels);
+            if(decoded != null) {
+                medium = uploadVariant(bucketName, variantName(fileName, MEDIUM), ImageResizer.toJpeg(decoded, mediumSize, quality));
+                thumb = uploadVariant(bucketName, variantName(fileName, THUMB), ImageResizer.toJpeg(decoded, thumbSize, quality));
+            } else {
+                log.warn("unsupported image format. only the original is stored. file=" + fileName);
+            }
+        } catch(IOException e) {
+            log.warn("failed to decode image. only the original is stored. file=" + fileName + ", " + e.getMessage());
+        }
+
+        String originalUrl;
+        try {
+            originalUrl = original.join();
+        } catch(CompletionException e) {
+            discardVariants(bucketName, fileName, medium, thumb);
+            throw e;
+        }
+
+        Map<String, String> urls = new LinkedHashMap<>();
+        urls.put(ORIGINAL, originalUrl);
+        if(medium != null) {
+            urls.put(MEDIUM, medium.join());
+        }
+        if(thumb != null) {
+            urls.put(THUMB, thumb.join());
+        }
+
+        log.info("image variants uploaded. " + urls);
+        return urls;
+    }
+
+    /**
+     * Without the original the variants are never recorded, so they are removed once their uploads are done.
+     */
+    private void discardVariants(String bucketName, String fileName, CompletableFuture<String> medium, CompletableFuture<String> thumb) {
+
+        if(medium == null && thumb == null) {
+            return;
+        }
+
+        CompletableFuture.allOf(medium == null ? CompletableFuture.completedFuture(null) : medium.handle((url, e) -> url),
+                                thumb == null ? CompletableFuture.completedFuture(null) : thumb.handle((url, e) -> url)).join();
+        try {
+            s3Service.deleteImages(bucketName, Arrays.asList(variantName(fileName, MEDIUM), variantName(fileName, THUMB)));
+        } catch(S3ServiceException e) {
+            log.warn("failed to delete variants of " + fileName + ". " + e.getMessage());
+        }
+    }
+
+    private CompletableFuture<String> uploadVariant(String bucketName, String fileName, byte[] jpeg) {
+        return CompletableFuture.supplyAsync(
+                () -> s3Service.uploadImage(bucketName, fileName, new ByteArrayResource(jpeg), jpeg.length, VARIANT_CONTENT_TYPE), uploaders);
+    }
+
+    public int delete(String bucketName, String fileName) throws S3ServiceException {
+        return s3Service.deleteImages(bucketName, variantNames(fileName));
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public boolean awaitIdle(long timeoutMs) {
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while(inFlight.get() > 0) {
+            if(System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(20);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void close() {
+        workers.shutdown();
+        if(!awaitIdle(closeTimeoutMs)) {
+            log.warn("image pipeline closed with " + inFlight.get() + " images still in flight.");
+        }
+        uploaders.shutdown();
+    }
+}
@@ -1,10 +1,27 @@
 package com.gamakdragons.wheretruck.cloud.aws.service;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
+
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.web.multipart.MultipartFile;
 
 public interface S3Service {
 
     String uploadImage(String bucketName, String fileName, MultipartFile imageFile);
+    String uploadImage(String bucketName, String fileName, InputStreamSource source, long contentLength, String contentType);
+    String getImageUrl(String bucketName, String fileName);
+    PresignedUpload createUploadUrl(String bucketName, String fileName, String contentType);
+    boolean isUploadKeyOf(String fileName, String key);
+    ObjectMetadata getImageMetadata(String bucketName, String fileName);
+    String copyImage(String bucketName, String sourceFileName, String fileName);
+    void downloadImage(String bucketName, String fileName, Path target);
     boolean deleteImage(String bucketName, String fileName);
-    void deleteImagesWithPrefix(String bucketName, String prefix);
+    int deleteImages(String bucketName, List<String> fileNames);
+    int deleteImagesWithPrefix(String bucketName, String prefix);
+    CompletableFuture<Integer> deleteImagesWithPrefixAsync(String bucketName, String prefix);
 }
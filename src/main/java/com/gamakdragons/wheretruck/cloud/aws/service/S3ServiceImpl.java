@@ -1,61 +1,181 @@
 package com.gamakdragons.wheretruck.cloud.aws.service;
 
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 import com.amazonaws.AmazonServiceException;
+import com.amazonaws.HttpMethod;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.BucketLifecycleConfiguration;
 import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
 import com.amazonaws.services.s3.model.CreateBucketRequest;
 import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ListObjectsV2Request;
 import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.MultiObjectDeleteException;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
-import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.lifecycle.LifecycleFilter;
+import com.amazonaws.services.s3.model.lifecycle.LifecyclePrefixPredicate;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.cloud.aws.exception.S3ServiceException;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
 @Slf4j
-@RequiredArgsConstructor
 public class S3ServiceImpl implements S3Service {
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+    private static final String UPLOAD_EXPIRATION_RULE_ID = "expire-staged-uploads";
     
     private final AmazonS3 s3Client;
+    private final TransferManager transferManager;
+    private final Executor deleteExecutor;
 
-    @Override
-    public String uploadImage(String bucketName, String fileName, MultipartFile imageFile) throws S3ServiceException {
+    public S3ServiceImpl(AmazonS3 s3Client, TransferManager transferManager, @Qualifier("s3DeleteExecutor") Executor deleteExecutor) {
+        this.s3Client = s3Client;
+        this.transferManager = transferManager;
+        this.deleteExecutor = deleteExecutor;
+    }
+
+    private final Set<String> verifiedBuckets = ConcurrentHashMap.newKeySet();
+
+    @Value("${cloud.aws.s3.bucket.truck_image}")
+    private String TRUCK_IMAGE_BUCKET;
+
+    @Value("${cloud.aws.s3.bucket.food_image}")
+    private String FOOD_IMAGE_BUCKET;
+
+    @Value("${cloud.aws.s3.upload.staging-prefix:upload/}")
+    private String uploadPrefix;
+
+    @Value("${cloud.aws.s3.upload.url-expiration-ms:600000}")
+    private long uploadUrlExpirationMs;
+
+    @Value("${cloud.aws.s3.upload.staging-expiration-days:1}")
+    private int uploadExpirationDays;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void verifyBuckets() {
+        try {
+            ensureBucket(TRUCK_IMAGE_BUCKET);
+            ensureBucket(FOOD_IMAGE_BUCKET);
+        } catch(SdkClientException e) {
+            log.error("failed to verify buckets. they will be checked again on first upload. " + e.getMessage());
+            return;
+        }
+
+        try {
+            ensureUploadExpiration(TRUCK_IMAGE_BUCKET);
+            ensureUploadExpiration(FOOD_IMAGE_BUCKET);
+        } catch(SdkClientException e) {
+            log.warn("failed to set lifecycle rule for staged uploads. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Presigned uploads land under the staging prefix and are copied out when completed, so anything left
+     * there by an abandoned upload is expired by the bucket itself. Rules set by others on the bucket are kept.
+     */
+    private void ensureUploadExpiration(String bucketName) {
+
+        BucketLifecycleConfiguration configuration = s3Client.getBucketLifecycleConfiguration(bucketName);
+        List<BucketLifecycleConfiguration.Rule> rules = configuration == null || configuration.getRules() == null
+                                                            ? new ArrayList<>() : new ArrayList<>(configuration.getRules());
+        if(rules.stream().anyMatch(rule -> UPLOAD_EXPIRATION_RULE_ID.equals(rule.getId()))) {
+            return;
+        }
+
+        rules.add(new BucketLifecycleConfiguration.Rule()
+                    .withId(UPLOAD_EXPIRATION_RULE_ID)
+                    .withFilter(new LifecycleFilter(new LifecyclePrefixPredicate(uploadPrefix)))
+                    .withExpirationInDays(uploadExpirationDays)
+                    .withStatus(BucketLifecycleConfiguration.ENABLED));
+        s3Client.setBucketLifecycleConfiguration(bucketName, new BucketLifecycleConfiguration(rules));
+        log.info("lifecycle rule for staged uploads added: " + bucketName);
+    }
 
-        if (!s3Client.doesBucketExistV2(bucketName)) {
+    private void ensureBucket(String bucketName) {
+
+        if(verifiedBuckets.contains(bucketName)) {
+            return;
+        }
+
+        if(!s3Client.doesBucketExistV2(bucketName)) {
             s3Client.createBucket(new CreateBucketRequest(bucketName));
-            if(s3Client.doesBucketExistV2(bucketName)) {
-                log.info("bucket created: " + bucketName);
-            } else {
-                log.error("bucket create failed: " + bucketName);
-            }
+            log.info("bucket created: " + bucketName);
         }
+        verifiedBuckets.add(bucketName);
+    }
+
+    @Override
+    public String uploadImage(String bucketName, String fileName, MultipartFile imageFile) throws S3ServiceException {
 
         if(imageFile == null) {
+            try {
+                ensureBucket(bucketName);
+            } catch(SdkClientException e) {
+                log.error("SdkClientException", e);
+                throw new S3ServiceException("SdkClientException");
+            }
             return null;
         }
 
-        File file;
-        try {
-            file = convertToFile(imageFile);
-        } catch(IOException e) {
-            throw new S3ServiceException("Failed to convert file");
-        }
+        return uploadImage(bucketName, fileName, imageFile, imageFile.getSize(), imageFile.getContentType());
+    }
+
+    @Override
+    public String uploadImage(String bucketName, String fileName, InputStreamSource source, long contentLength, String contentType) throws S3ServiceException {
 
         try {
-            s3Client.putObject(new PutObjectRequest(bucketName, fileName, file).withCannedAcl(CannedAccessControlList.PublicRead));
+            ensureBucket(bucketName);
+
+            try {
+                upload(bucketName, fileName, source, contentLength, contentType);
+            } catch(AmazonServiceException e) {
+                if(!"NoSuchBucket".equals(e.getErrorCode())) {
+                    throw e;
+                }
+
+                log.warn("bucket disappeared. creating it again: " + bucketName);
+                verifiedBuckets.remove(bucketName);
+                ensureBucket(bucketName);
+                upload(bucketName, fileName, source, contentLength, contentType);
+            }
+        } catch(IOException e) {
+            log.error("failed to read upload stream", e);
+            throw new S3ServiceException("Failed to read file");
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new S3ServiceException("Upload interrupted");
         } catch(AmazonServiceException e) {
             log.error("AmazonServiceException occured", e);
             throw new S3ServiceException("AmazonServiceException");
@@ -64,56 +184,191 @@ public class S3ServiceImpl implements S3Service {
             throw new S3ServiceException("SdkClientException");
         }
 
-        file.delete();
-        return getFoodImageUrl(bucketName, fileName);
+        return getImageUrl(bucketName, fileName);
     }
 
-    private File convertToFile(MultipartFile multipartFile) throws IOException {
-        File file = Files.createTempFile(UUID.randomUUID().toString(), ".tmp").toFile();
+    private void upload(String bucketName, String fileName, InputStreamSource source, long contentLength, String contentType) throws IOException, InterruptedException {
 
-        try(FileOutputStream fos = new FileOutputStream(file)) {
-            fos.write(multipartFile.getBytes());
-        } catch(IOException e) {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(contentLength);
+        metadata.setContentType(contentType);
+
+        try(InputStream in = source.getInputStream()) {
+            PutObjectRequest request = new PutObjectRequest(bucketName, fileName, in, metadata).withCannedAcl(CannedAccessControlList.PublicRead);
+            transferManager.upload(request).waitForCompletion();
+        }
+    }
+
+    @Override
+    public String getImageUrl(String bucketName, String fileName) {
+        return s3Client.getUrl(bucketName, fileName).toString();
+    }
+
+    @Override
+    public PresignedUpload createUploadUrl(String bucketName, String fileName, String contentType) throws S3ServiceException {
+
+        String key = uploadPrefix + fileName + "/" + UUID.randomUUID().toString();
+        Date expiration = new Date(System.currentTimeMillis() + uploadUrlExpirationMs);
+
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, key, HttpMethod.PUT)
+                                                .withExpiration(expiration)
+                                                .withContentType(contentType);
+        try {
+            ensureBucket(bucketName);
+
+            return PresignedUpload.builder()
+                    .result("CREATED")
+                    .key(key)
+                    .url(s3Client.generatePresignedUrl(request).toString())
+                    .contentType(contentType)
+                    .expiresAt(expiration.getTime())
+                    .build();
+        } catch(SdkClientException e) {
             log.error(e.getMessage());
-            return null;
+            throw new S3ServiceException(e.getMessage());
         }
+    }
+
+    @Override
+    public boolean isUploadKeyOf(String fileName, String key) {
 
-        return file;
+        String prefix = uploadPrefix + fileName + "/";
+        return key != null && key.startsWith(prefix) && key.length() > prefix.length() && key.indexOf('/', prefix.length()) < 0;
     }
 
     @Override
-    public boolean deleteImage(String bucketName, String fileName) throws S3ServiceException {
-       
+    public ObjectMetadata getImageMetadata(String bucketName, String fileName) throws S3ServiceException {
+
         try {
-            if(s3Client.doesObjectExist(bucketName, fileName)) {
-                s3Client.deleteObject(new DeleteObjectRequest(bucketName, fileName));
+            return s3Client.getObjectMetadata(bucketName, fileName);
+        } catch(AmazonServiceException e) {
+            if(e.getStatusCode() == 404) {
+                return null;
             }
+            log.error(e.getMessage());
+            throw new S3ServiceException(e.getMessage());
+        } catch(SdkClientException e) {
+            log.error(e.getMessage());
+            throw new S3ServiceException(e.getMessage());
+        }
+    }
+
+    @Override
+    public String copyImage(String bucketName, String sourceFileName, String fileName) throws S3ServiceException {
 
-            return !s3Client.doesObjectExist(bucketName, fileName);
+        try {
+            s3Client.copyObject(new CopyObjectRequest(bucketName, sourceFileName, bucketName, fileName)
+                                    .withCannedAccessControlList(CannedAccessControlList.PublicRead));
         } catch(SdkClientException e) {
             log.error(e.getMessage());
             throw new S3ServiceException(e.getMessage());
         }
+
+        return getImageUrl(bucketName, fileName);
     }
 
-    private String getFoodImageUrl(String bucketName, String fileName) {
-        return s3Client.getUrl(bucketName, fileName).toString();
+    @Override
+    public void downloadImage(String bucketName, String fileName, Path target) throws S3ServiceException {
+
+        try(S3Object object = s3Client.getObject(bucketName, fileName)) {
+            Files.copy(object.getObjectContent(), target, StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            log.error("failed to download image", e);
+            throw new S3ServiceException("Failed to read file");
+        } catch(SdkClientException e) {
+            log.error(e.getMessage());
+            throw new S3ServiceException(e.getMessage());
+        }
     }
 
     @Override
-    public void deleteImagesWithPrefix(String bucketName, String prefix) throws S3ServiceException {
+    public boolean deleteImage(String bucketName, String fileName) throws S3ServiceException {
+       
+        try {
+            s3Client.deleteObject(new DeleteObjectRequest(bucketName, fileName));
+            return true;
+        } catch(AmazonServiceException e) {
+            if("NoSuchBucket".equals(e.getErrorCode())) {
+                verifiedBuckets.remove(bucketName);
+                return true;
+            }
+            log.error(e.getMessage());
+            throw new S3ServiceException(e.getMessage());
+        } catch(SdkClientException e) {
+            log.error(e.getMessage());
+            throw new S3ServiceException(e.getMessage());
+        }
+    }
+
+    @Override
+    public int deleteImagesWithPrefix(String bucketName, String prefix) throws S3ServiceException {
+
         ListObjectsV2Request listObjectsV2Request = new ListObjectsV2Request()
                                                     .withBucketName(bucketName)
-                                                    .withPrefix(prefix);
+                                                    .withPrefix(prefix)
+                                                    .withMaxKeys(DELETE_BATCH_SIZE);
+        int deleted = 0;
         try {
-            ListObjectsV2Result listObjectsV2Result = s3Client.listObjectsV2(listObjectsV2Request);
+            ListObjectsV2Result listObjectsV2Result;
+            do {
+                listObjectsV2Result = s3Client.listObjectsV2(listObjectsV2Request);
 
-            for (S3ObjectSummary objectSummary : listObjectsV2Result.getObjectSummaries()) {
-                s3Client.deleteObject(bucketName, objectSummary.getKey());
-            }
+                List<KeyVersion> keys = listObjectsV2Result.getObjectSummaries().stream()
+                                            .map(objectSummary -> new KeyVersion(objectSummary.getKey()))
+                                            .collect(Collectors.toList());
+                if(!keys.isEmpty()) {
+                    deleted += deleteObjects(bucketName, keys);
+                }
+
+                listObjectsV2Request.setContinuationToken(listObjectsV2Result.getNextContinuationToken());
+            } while(listObjectsV2Result.isTruncated());
         } catch(SdkClientException e) {
             log.error(e.getMessage(), e);
             throw new S3ServiceException(e.getMessage());
         }
+
+        log.info("images deleted. bucket=" + bucketName + ", prefix=" + prefix + ", deleted=" + deleted);
+        return deleted;
+    }
+
+    private int deleteObjects(String bucketName, List<KeyVersion> keys) {
+        try {
+            s3Client.deleteObjects(new DeleteObjectsRequest(bucketName).withKeys(keys).withQuiet(true));
+            return keys.size();
+        } catch(MultiObjectDeleteException e) {
+            e.getErrors().forEach(error -> log.error("failed to delete image. key=" + error.getKey() + ", " + error.getMessage()));
+            return keys.size() - e.getErrors().size();
+        }
+    }
+
+    @Override
+    public int deleteImages(String bucketName, List<String> fileNames) throws S3ServiceException {
+
+        int deleted = 0;
+        try {
+            for(int from = 0; from < fileNames.size(); from += DELETE_BATCH_SIZE) {
+                List<KeyVersion> keys = fileNames.subList(from, Math.min(from + DELETE_BATCH_SIZE, fileNames.size())).stream()
+                                            .map(KeyVersion::new)
+                                            .collect(Collectors.toList());
+                deleted += deleteObjects(bucketName, keys);
+            }
+        } catch(AmazonServiceException e) {
+            if("NoSuchBucket".equals(e.getErrorCode())) {
+                verifiedBuckets.remove(bucketName);
+                return deleted;
+            }
+            log.error(e.getMessage());
+            throw new S3ServiceException(e.getMessage());
+        } catch(SdkClientException e) {
+            log.error(e.getMessage());
+            throw new S3ServiceException(e.getMessage());
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteImagesWithPrefixAsync(String bucketName, String prefix) {
+        return CompletableFuture.supplyAsync(() -> deleteImagesWithPrefix(bucketName, prefix), deleteExecutor);
     }
 }
@@ -2,6 +2,9 @@ package com.gamakdragons.wheretruck.common;
 
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 import lombok.Builder;
 import lombok.Getter;
 import lombok.ToString;
@@ -14,4 +17,7 @@ public class SearchResultDto<T> {
     private String status;
     private int numFound;
     private List<T> docs;
+
+    @JsonInclude(Include.NON_NULL)
+    private String next;
 }
@@ -1,45 +1,149 @@
 package com.gamakdragons.wheretruck.config;
 
+import java.util.Arrays;
+
+import com.gamakdragons.wheretruck.util.EsClientMetricsInterceptor;
+
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.elasticsearch.client.NodeSelector;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.sniff.SniffOnFailureListener;
+import org.elasticsearch.client.sniff.Sniffer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class ElasticSearchConfig {
 
-    @Value("${elasticsearch.host}")
+    @Value("${elasticsearch.host:localhost}")
     private String ES_HOST;
 
-    @Value("${elasticsearch.port}")
+    @Value("${elasticsearch.port:9200}")
     private int ES_PORT;
 
+    @Value("${elasticsearch.hosts:}")
+    private String[] ES_HOSTS;
+
     @Value("${elasticsearch.username}")
     private String ES_USER;
 
     @Value("${elasticsearch.password}")
     private String ES_PASSWORD;
 
+    @Value("${elasticsearch.client.max-conn-total:100}")
+    private int MAX_CONN_TOTAL;
+
+    @Value("${elasticsearch.client.max-conn-per-route:50}")
+    private int MAX_CONN_PER_ROUTE;
+
+    @Value("${elasticsearch.client.io-thread-count:0}")
+    private int IO_THREAD_COUNT;
+
+    @Value("${elasticsearch.client.connect-timeout-ms:1000}")
+    private int CONNECT_TIMEOUT_MS;
+
+    @Value("${elasticsearch.client.socket-timeout-ms:30000}")
+    private int SOCKET_TIMEOUT_MS;
+
+    @Value("${elasticsearch.client.connection-request-timeout-ms:500}")
+    private int CONNECTION_REQUEST_TIMEOUT_MS;
+
+    @Value("${elasticsearch.client.keep-alive-ms:60000}")
+    private long KEEP_ALIVE_MS;
+
+    @Value("${elasticsearch.client.compression:true}")
+    private boolean COMPRESSION;
+
+    @Value("${elasticsearch.client.node-selector:any}")
+    private String NODE_SELECTOR;
+
+    @Value("${elasticsearch.client.sniff:false}")
+    private boolean SNIFF;
+
+    @Value("${elasticsearch.client.sniff-interval-ms:300000}")
+    private int SNIFF_INTERVAL_MS;
+
+    @Value("${elasticsearch.client.sniff-after-failure-delay-ms:60000}")
+    private int SNIFF_AFTER_FAILURE_DELAY_MS;
+
+    private final SniffOnFailureListener sniffOnFailureListener = new SniffOnFailureListener();
+
     @Bean
     public RestHighLevelClient createRestHighLevelClient() {
 
+        EsClientMetricsInterceptor metricsInterceptor = new EsClientMetricsInterceptor();
+
         CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
         credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(ES_USER, ES_PASSWORD));
 
-        RestClientBuilder builder = RestClient.builder(
-            new HttpHost(ES_HOST, ES_PORT, "http")
-        )
+        IOReactorConfig.Builder ioReactorConfig = IOReactorConfig.custom().setSoKeepAlive(true);
+        if(IO_THREAD_COUNT > 0) {
+            ioReactorConfig.setIoThreadCount(IO_THREAD_COUNT);
+        }
+
+        RestClientBuilder builder = RestClient.builder(hosts())
         .setHttpClientConfigCallback((httpClientBuilder) -> {
-            return httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider);
-        });
+            return httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider)
+                                    .setMaxConnTotal(MAX_CONN_TOTAL)
+                                    .setMaxConnPerRoute(MAX_CONN_PER_ROUTE)
+                                    .setDefaultIOReactorConfig(ioReactorConfig.build())
+                                    .setKeepAliveStrategy((response, context) -> KEEP_ALIVE_MS)
+                                    .addInterceptorFirst((HttpRequestInterceptor) metricsInterceptor)
+                                    .addInterceptorLast((HttpResponseInterceptor) metricsInterceptor);
+        })
+        .setRequestConfigCallback((requestConfigBuilder) -> {
+            return requestConfigBuilder.setConnectTimeout(CONNECT_TIMEOUT_MS)
+                                        .setSocketTimeout(SOCKET_TIMEOUT_MS)
+                                        .setConnectionRequestTimeout(CONNECTION_REQUEST_TIMEOUT_MS);
+        })
+        .setCompressionEnabled(COMPRESSION)
+        .setNodeSelector(nodeSelector());
+
+        builder.setFailureListener(metricsInterceptor.failureListener(SNIFF ? sniffOnFailureListener : null));
 
         return new RestHighLevelClient(builder);
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "elasticsearch.client.sniff", havingValue = "true")
+    public Sniffer createSniffer(RestHighLevelClient esClient) {
+
+        Sniffer sniffer = Sniffer.builder(esClient.getLowLevelClient())
+                                .setSniffIntervalMillis(SNIFF_INTERVAL_MS)
+                                .setSniffAfterFailureDelayMillis(SNIFF_AFTER_FAILURE_DELAY_MS)
+                                .build();
+        sniffOnFailureListener.setSniffer(sniffer);
+
+        return sniffer;
+    }
+
+    private HttpHost[] hosts() {
+        if(ES_HOSTS.length == 0) {
+            return new HttpHost[]{new HttpHost(ES_HOST, ES_PORT, "http")};
+        }
+
+        return Arrays.stream(ES_HOSTS)
+                    .map(String::trim)
+                    .filter(host -> !host.isEmpty())
+                    .map(HttpHost::create)
+                    .toArray(HttpHost[]::new);
+    }
+
+    private NodeSelector nodeSelector() {
+        if("skip-dedicated-masters".equals(NODE_SELECTOR)) {
+            return NodeSelector.SKIP_DEDICATED_MASTERS;
+        }
+        return NodeSelector.ANY;
+    }
 }
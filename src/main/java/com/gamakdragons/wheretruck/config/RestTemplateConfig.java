@@ -1,5 +1,7 @@
 package com.gamakdragons.wheretruck.config;
 
+import com.gamakdragons.wheretruck.util.RestTemplateMetricsInterceptor;
+
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.springframework.context.annotation.Bean;
@@ -23,6 +25,9 @@ public class RestTemplateConfig {
 
         factory.setHttpClient(httpClient);
 
-        return new RestTemplate(factory);
+        RestTemplate restTemplate = new RestTemplate(factory);
+        restTemplate.getInterceptors().add(new RestTemplateMetricsInterceptor());
+
+        return restTemplate;
     }
 }
@@ -1,12 +1,21 @@
 package com.gamakdragons.wheretruck.config;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import com.gamakdragons.wheretruck.util.S3MetricCollector;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -22,6 +31,23 @@ public class S3Config {
     @Value("${cloud.aws.credentials.secretKey}")
     private String secretKey;
 
+    @Value("${cloud.aws.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${cloud.aws.s3.upload.multipart-threshold-bytes:16777216}")
+    private long multipartThresholdBytes;
+
+    @Value("${cloud.aws.s3.upload.part-size-bytes:8388608}")
+    private long partSizeBytes;
+
+    @Value("${cloud.aws.s3.upload.threads:10}")
+    private int uploadThreads;
+
+    @Value("${cloud.aws.s3.delete.threads:2}")
+    private int deleteThreads;
+
+    private TransferManager transferManager;
+
     @Primary
     @Bean
     public AmazonS3 initS3Client() {
@@ -32,10 +58,55 @@ public class S3Config {
         config.setMaxErrorRetry(3);
         config.setMaxConnections(30);
         
-        return AmazonS3ClientBuilder.standard()
+        AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
                 .withCredentials(new AWSStaticCredentialsProvider(credentials))
                 .withClientConfiguration(config)
-                .withRegion(Regions.AP_NORTHEAST_2)
+                .withMetricsCollector(new S3MetricCollector());
+
+        if(endpoint.isEmpty()) {
+            builder.withRegion(Regions.AP_NORTHEAST_2);
+        } else {
+            // S3-compatible stand-ins such as MinIO or LocalStack generally need path-style bucket addressing
+            builder.withEndpointConfiguration(new EndpointConfiguration(endpoint, Regions.AP_NORTHEAST_2.getName()))
+                    .withPathStyleAccessEnabled(true);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Uploads are sent in a single PUT below the threshold and as a multipart upload above it.
+     * TransferManager only uploads parts in parallel from a File, so the InputStream sources used here
+     * send their parts one after another on a single pool thread; the pool size bounds concurrent uploads.
+     */
+    @Bean(destroyMethod = "")
+    public TransferManager initTransferManager(AmazonS3 s3Client) {
+        transferManager = TransferManagerBuilder.standard()
+                .withS3Client(s3Client)
+                .withMultipartUploadThreshold(multipartThresholdBytes)
+                .withMinimumUploadPartSize(partSizeBytes)
+                .withExecutorFactory(() -> Executors.newFixedThreadPool(uploadThreads))
+                .withShutDownThreadPools(true)
                 .build();
+        return transferManager;
+    }
+
+    /**
+     * Stops the upload threads only; the AmazonS3 client is a bean of its own and is shut down by the context.
+     */
+    @PreDestroy
+    public void shutdownTransferManager() {
+        if(transferManager != null) {
+            transferManager.shutdownNow(false);
+        }
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService s3DeleteExecutor() {
+        return Executors.newFixedThreadPool(deleteThreads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-delete");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 }
@@ -1,5 +1,7 @@
 package com.gamakdragons.wheretruck.domain.favorite.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.servlet.http.HttpServletRequest;
 
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
@@ -31,19 +33,21 @@ public class FavoriteController {
 	private final FavoriteService service;
 
 	@GetMapping("/my")
-    public ResponseEntity<SearchResultDto<Truck>> getByUserId(HttpServletRequest httpServletRequest) {
+    public CompletableFuture<ResponseEntity<SearchResultDto<Truck>>> getByUserId(HttpServletRequest httpServletRequest) {
         log.info("/api/favorite/my");
 
 		String userId = httpServletRequest.getAttribute("userId").toString();
 
-        return new ResponseEntity<>(service.findByUserId(userId), HttpStatus.OK);
+        return service.findByUserIdAsync(userId)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
     }
 
     @GetMapping("/truck/{truckId}")
-    public ResponseEntity<Integer> getByTruckId(@PathVariable String truckId) {
+    public CompletableFuture<ResponseEntity<Integer>> getByTruckId(@PathVariable String truckId) {
         log.info("/favorite/search/truckId. truckId=" + truckId);
 
-        return new ResponseEntity<>(service.countByTruckId(truckId), HttpStatus.OK);
+        return service.countByTruckIdAsync(truckId)
+                .thenApply(count -> new ResponseEntity<>(count, HttpStatus.OK));
     }
 
     @PostMapping
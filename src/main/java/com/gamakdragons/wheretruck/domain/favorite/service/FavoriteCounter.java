@@ -0,0 +1,174 @@
+package com.gamakdragons.wheretruck.domain.favorite.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import com.gamakdragons.wheretruck.util.EsFutures;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class FavoriteCounter {
+
+    private static final String AGGREGATION_NAME = "by_truck";
+    private static final int AGGREGATION_PAGE_SIZE = 1000;
+
+    private final RestHighLevelClient esClient;
+    private final EsFutures esFutures;
+    private final String favoriteIndex;
+    private final long refreshGraceMs;
+
+    private final Map<String, Integer> counts = new HashMap<>();
+    private final Map<String, Long> touchedAt = new HashMap<>();
+    private boolean reconciled;
+    private boolean reconciling;
+
+    public FavoriteCounter(RestHighLevelClient esClient,
+                            EsFutures esFutures,
+                            @Value("${elasticsearch.index.favorite.name}") String favoriteIndex,
+                            @Value("${favorite.counter.refresh-grace-ms:2000}") long refreshGraceMs) {
+        this.esClient = esClient;
+        this.esFutures = esFutures;
+        this.favoriteIndex = favoriteIndex;
+        this.refreshGraceMs = refreshGraceMs;
+    }
+
+    public CompletableFuture<Integer> countAsync(String truckId) {
+
+        synchronized(this) {
+            Integer count = counts.get(truckId);
+            if(count != null || reconciled) {
+                return CompletableFuture.completedFuture(count == null ? 0 : count);
+            }
+        }
+
+        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(favoriteIndex, "truckId", truckId);
+        request.source().size(0).trackTotalHits(true);
+
+        return esFutures.search(request)
+                .thenApply(response -> {
+                    int count = (int) response.getHits().getTotalHits().value;
+                    synchronized(this) {
+                        if(!reconciled && !touchedAt.containsKey(truckId)) {
+                            counts.putIfAbsent(truckId, count);
+                        }
+                    }
+                    return count;
+                });
+    }
+
+    public synchronized void increment(String truckId) {
+        touch(truckId);
+
+        Integer count = counts.get(truckId);
+        if(count != null) {
+            counts.put(truckId, count + 1);
+        } else if(reconciled) {
+            counts.put(truckId, 1);
+        }
+    }
+
+    public synchronized void decrement(String truckId) {
+        touch(truckId);
+
+        Integer count = counts.get(truckId);
+        if(count == null) {
+            return;
+        }
+
+        counts.put(truckId, Math.max(count - 1, 0));
+    }
+
+    public synchronized void reset(String truckId) {
+        touch(truckId);
+        counts.put(truckId, 0);
+    }
+
+    private void touch(String truckId) {
+        touchedAt.put(truckId, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${favorite.counter.reconcile-interval-ms:300000}", initialDelayString = "${favorite.counter.reconcile-interval-ms:300000}")
+    public void reconcile() {
+
+        synchronized(this) {
+            if(reconciling) {
+                return;
+            }
+            reconciling = true;
+        }
+
+        long startedAt = System.currentTimeMillis();
+        Map<String, Integer> fetched = new HashMap<>();
+        try {
+            fetchAll(fetched);
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to reconcile favorite counts. " + e.getMessage());
+            synchronized(this) {
+                reconciling = false;
+            }
+            return;
+        }
+
+        synchronized(this) {
+            long keepAfter = startedAt - refreshGraceMs;
+            touchedAt.values().removeIf(touched -> touched < keepAfter);
+
+            Map<String, Integer> recent = new HashMap<>();
+            touchedAt.keySet().forEach(truckId -> recent.put(truckId, counts.getOrDefault(truckId, 0)));
+
+            counts.clear();
+            counts.putAll(fetched);
+            counts.putAll(recent);
+            counts.values().removeIf(count -> count <= 0);
+
+            reconciled = true;
+            reconciling = false;
+        }
+
+        log.info("favorite counts reconciled. trucks=" + fetched.size());
+    }
+
+    private void fetchAll(Map<String, Integer> fetched) throws IOException {
+
+        Map<String, Object> afterKey = null;
+        do {
+            SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder().size(0);
+            searchSourceBuilder.aggregation(AggregationBuilders.composite(AGGREGATION_NAME,
+                                                Collections.<CompositeValuesSourceBuilder<?>>singletonList(new TermsValuesSourceBuilder("truckId").field("truckId")))
+                                            .size(AGGREGATION_PAGE_SIZE)
+                                            .aggregateAfter(afterKey));
+
+            SearchRequest request = new SearchRequest(favoriteIndex);
+            request.source(searchSourceBuilder);
+
+            SearchResponse response = esClient.search(request, RequestOptions.DEFAULT);
+            CompositeAggregation aggregation = response.getAggregations().get(AGGREGATION_NAME);
+
+            aggregation.getBuckets().forEach(bucket -> fetched.put(bucket.getKey().get("truckId").toString(), (int) bucket.getDocCount()));
+            afterKey = aggregation.getBuckets().isEmpty() ? null : aggregation.afterKey();
+        } while(afterKey != null);
+    }
+}
@@ -1,5 +1,7 @@
 package com.gamakdragons.wheretruck.domain.favorite.service;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
@@ -8,8 +10,8 @@ import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
 
 public interface FavoriteService {
 	
-	SearchResultDto<Truck> findByUserId(String userId);
-	int countByTruckId(String truckId);
+	CompletableFuture<SearchResultDto<Truck>> findByUserIdAsync(String userId);
+	CompletableFuture<Integer> countByTruckIdAsync(String truckId);
 
 	IndexUpdateResultDto saveFavorite(Favorite favorite);
 	DeleteResultDto deleteFavorite(String truckId);
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
@@ -13,12 +14,13 @@ import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.domain.favorite.entity.Favorite;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
 import com.gamakdragons.wheretruck.domain.truck.service.TruckService;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.gamakdragons.wheretruck.util.EsFutures;
 import com.gamakdragons.wheretruck.util.EsRequestFactory;
 
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchRequest;
-import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.index.reindex.BulkByScrollResponse;
@@ -39,45 +41,51 @@ public class FavoriteServiceImpl implements FavoriteService {
     private String FAVORITE_INDEX_NAME;
 
     private final RestHighLevelClient esClient;
+    private final EsFutures esFutures;
     private final TruckService truckService;
+    private final FavoriteSetCache favoriteSetCache;
+    private final FavoriteCounter favoriteCounter;
 
-	@Override
-    public int countByTruckId(String truckId) {
-
-        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(FAVORITE_INDEX_NAME, "truckId", truckId);
-
-        SearchResponse response;
-        try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return 0;
-        }
-
-        return (int) response.getHits().getTotalHits().value;
+    @Override
+    public CompletableFuture<Integer> countByTruckIdAsync(String truckId) {
 
+        return favoriteCounter.countAsync(truckId)
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return 0;
+                });
     }
 
     @Override
-    public SearchResultDto<Truck> findByUserId(String userId) {
+    public CompletableFuture<SearchResultDto<Truck>> findByUserIdAsync(String userId) {
+
+        List<String> cachedTruckIds = favoriteSetCache.get(userId);
+        if(cachedTruckIds != null) {
+            return truckService.getByIdsAsync(cachedTruckIds)
+                    .exceptionally(e -> {
+                        log.error(EsFutures.unwrap(e).getMessage());
+                        return makeErrorSearhResultDtoFromSearchResponse();
+                    });
+        }
 
-        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(FAVORITE_INDEX_NAME, "userId", userId);
+        long cacheVersion = favoriteSetCache.version();
+        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(FAVORITE_INDEX_NAME, "userId", userId, new String[]{"truckId"}, new String[]{});
 
-        SearchResponse response;
-        try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return makeErrorSearhResultDtoFromSearchResponse();
-        }
+        return esFutures.search(request)
+                .thenCompose(response -> {
+                    log.info("total hits: " + response.getHits().getTotalHits());
 
-        List<String> truckIds = Arrays.stream(response.getHits().getHits())
-                                    .map(hit -> (String) hit.getSourceAsMap().get("truckId"))
-                                    .collect(Collectors.toList());
+                    List<String> truckIds = Arrays.stream(response.getHits().getHits())
+                                                .map(hit -> EsDocumentCodec.read(hit.getSourceRef(), Favorite.class).getTruckId())
+                                                .collect(Collectors.toList());
+                    favoriteSetCache.put(userId, truckIds, cacheVersion);
 
-        return truckService.getByIds(truckIds);
+                    return truckService.getByIdsAsync(truckIds);
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorSearhResultDtoFromSearchResponse();
+                });
     }
 
     private SearchResultDto<Truck> makeErrorSearhResultDtoFromSearchResponse() {
@@ -106,6 +114,9 @@ public class FavoriteServiceImpl implements FavoriteService {
 
         }
 
+        favoriteSetCache.add(favorite.getUserId(), favorite.getTruckId());
+        favoriteCounter.increment(favorite.getTruckId());
+
         return IndexUpdateResultDto.builder()
                 .result(response.getResult().name())
                 .id(response.getId())
@@ -127,6 +138,9 @@ public class FavoriteServiceImpl implements FavoriteService {
                     .build();
         } 
 
+        favoriteSetCache.removeTruck(truckId);
+        favoriteCounter.reset(truckId);
+
         if(response.getDeleted() > 0) {
             return DeleteResultDto.builder()
                 .result("DELETED")
@@ -0,0 +1,81 @@
+package com.gamakdragons.wheretruck.domain.favorite.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FavoriteSetCache {
+
+    private final long ttlMs;
+    private final Map<String, Entry> entries;
+    private final AtomicLong version = new AtomicLong();
+
+    public FavoriteSetCache(@Value("${favorite.cache.max-users:10000}") int maxUsers,
+                            @Value("${favorite.cache.ttl-ms:60000}") long ttlMs) {
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+    public synchronized List<String> get(String userId) {
+        Entry entry = entries.get(userId);
+        if(entry == null) {
+            return null;
+        }
+
+        if(System.currentTimeMillis() - entry.loadedAt >= ttlMs) {
+            entries.remove(userId);
+            return null;
+        }
+
+        return Collections.unmodifiableList(new ArrayList<>(entry.truckIds));
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    public synchronized void put(String userId, List<String> truckIds, long loadedVersion) {
+        if(loadedVersion != version.get()) {
+            return;
+        }
+        entries.put(userId, new Entry(new ArrayList<>(truckIds), System.currentTimeMillis()));
+    }
+
+    public synchronized void add(String userId, String truckId) {
+        version.incrementAndGet();
+
+        Entry entry = entries.get(userId);
+        if(entry != null && !entry.truckIds.contains(truckId)) {
+            entry.truckIds.add(truckId);
+        }
+    }
+
+    public synchronized void removeTruck(String truckId) {
+        version.incrementAndGet();
+        entries.values().forEach(entry -> entry.truckIds.remove(truckId));
+    }
+
+    private static class Entry {
+
+        private final List<String> truckIds;
+        private final long loadedAt;
+
+        Entry(List<String> truckIds, long loadedAt) {
+            this.truckIds = truckIds;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
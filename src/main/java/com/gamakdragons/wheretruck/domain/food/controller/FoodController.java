@@ -2,6 +2,7 @@ package com.gamakdragons.wheretruck.domain.food.controller;
 
 import java.util.List;
 
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.food.dto.FoodSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.food.service.FoodService;
@@ -9,8 +10,10 @@ import com.gamakdragons.wheretruck.domain.food.service.FoodService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -37,7 +40,7 @@ public class FoodController {
             result = service.updateFood(truckId, foodSaveRequestDto);
         }
 
-        return new ResponseEntity<>(result, HttpStatus.OK);
+        return new ResponseEntity<>(result, imageStatus(result));
     }
 
     @DeleteMapping("/{truckId}/{id}")
@@ -53,5 +56,24 @@ public class FoodController {
 
         return new ResponseEntity<>(service.sortFoods(truckId, ids), HttpStatus.OK);
     }
+
+    @PostMapping("/{truckId}/{id}/image/upload-url")
+    public ResponseEntity<PresignedUpload> createImageUpload(@PathVariable String truckId, @PathVariable String id, @Nullable String contentType) {
+        log.info("/api/food/" + truckId + "/" + id + "/image/upload-url. contentType=" + contentType);
+
+        return new ResponseEntity<>(service.createImageUpload(truckId, id, contentType), HttpStatus.OK);
+    }
+
+    @PutMapping("/{truckId}/{id}/image")
+    public ResponseEntity<IndexUpdateResultDto> completeImageUpload(@PathVariable String truckId, @PathVariable String id, @Nullable String key) {
+        log.info("/api/food/" + truckId + "/" + id + "/image. key=" + key);
+
+        IndexUpdateResultDto result = service.completeImageUpload(truckId, id, key);
+        return new ResponseEntity<>(result, imageStatus(result));
+    }
+
+    private static HttpStatus imageStatus(IndexUpdateResultDto result) {
+        return HttpStatus.SERVICE_UNAVAILABLE.name().equals(result.getResult()) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK;
+    }
     
 }
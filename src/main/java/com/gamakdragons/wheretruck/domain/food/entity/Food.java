@@ -3,6 +3,9 @@ package com.gamakdragons.wheretruck.domain.food.entity;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
@@ -22,6 +25,9 @@ public class Food {
     private String description;
     private String imageUrl;
 
+    @JsonInclude(Include.NON_NULL)
+    private Map<String, String> imageVariants;
+
     public Map<String, Object> toMap() {
         Map<String, Object> foodMap = new HashMap<>();
         
@@ -30,6 +36,7 @@ public class Food {
         foodMap.put("cost", getCost());
         foodMap.put("description", getDescription());
         foodMap.put("imageUrl", getImageUrl());
+        foodMap.put("imageVariants", getImageVariants());
 
         return foodMap;
     }
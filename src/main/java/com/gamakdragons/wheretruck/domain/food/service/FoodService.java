@@ -2,6 +2,7 @@ package com.gamakdragons.wheretruck.domain.food.service;
 
 import java.util.List;
 
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.food.dto.FoodSaveRequestDto;
 
@@ -11,4 +12,6 @@ public interface FoodService {
     IndexUpdateResultDto updateFood(String truckId, FoodSaveRequestDto foodSaveRequestDto);
     IndexUpdateResultDto deleteFood(String truckId, String id);
     IndexUpdateResultDto sortFoods(String truckId, List<String> ids);
+    PresignedUpload createImageUpload(String truckId, String id, String contentType);
+    IndexUpdateResultDto completeImageUpload(String truckId, String id, String key);
 }
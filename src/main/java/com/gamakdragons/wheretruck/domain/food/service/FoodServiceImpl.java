@@ -6,22 +6,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.cloud.aws.exception.S3ServiceException;
-import com.gamakdragons.wheretruck.cloud.aws.service.S3Service;
+import com.gamakdragons.wheretruck.cloud.aws.service.ImagePipeline;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.food.dto.FoodSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.food.entity.Food;
 import com.gamakdragons.wheretruck.util.EsRequestFactory;
 
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -36,12 +41,12 @@ public class FoodServiceImpl implements FoodService {
     private String FOOD_IMAGE_BUCKET;
 
     private final RestHighLevelClient esClient;
-    private final S3Service s3Service;
+    private final ImagePipeline imagePipeline;
 
     @Autowired
-    public FoodServiceImpl(RestHighLevelClient esClient, S3Service s3Service) {
+    public FoodServiceImpl(RestHighLevelClient esClient, ImagePipeline imagePipeline) {
         this.esClient= esClient;
-        this.s3Service = s3Service;
+        this.imagePipeline = imagePipeline;
     }
 
     @Override
@@ -50,17 +55,6 @@ public class FoodServiceImpl implements FoodService {
         Food food = foodSaveRequestDto.toEntity();
 
         food.setId(UUID.randomUUID().toString());
-        
-
-        if(foodSaveRequestDto.getImage() != null) {
-            try {
-                String foodImageUrl = s3Service.uploadImage(FOOD_IMAGE_BUCKET, truckId + "/" + food.getId(), foodSaveRequestDto.getImage());
-                log.info("image uploaded to s3 bucket. url=" + foodImageUrl);
-                food.setImageUrl(foodImageUrl);
-            } catch(S3ServiceException e) {
-                log.error(e.getMessage());
-            }
-        }
 
         log.info("food: " + food);
 
@@ -84,8 +78,13 @@ public class FoodServiceImpl implements FoodService {
 
         }
 
+        String imageResult = null;
+        if(foodSaveRequestDto.getImage() != null && !foodSaveRequestDto.getImage().isEmpty()) {
+            imageResult = submitFoodImage(truckId, food.getId(), foodSaveRequestDto.getImage());
+        }
+
         return IndexUpdateResultDto.builder()
-                .result(response.getResult().name())
+                .result(resultWithImage(response.getResult(), imageResult))
                 .id(food.getId())
                 .build();
     }
@@ -95,17 +94,12 @@ public class FoodServiceImpl implements FoodService {
 
         Food food = foodSaveRequestDto.toEntity();
 
-        if(foodSaveRequestDto.getImage() == null || foodSaveRequestDto.getImage().isEmpty()) {
-            if(s3Service.deleteImage(FOOD_IMAGE_BUCKET, truckId + "/" + food.getId())) {
-                log.info("food image removed: " + truckId + "/" + food.getId());
-            }
-            food.setImageUrl(null);
-        } else {
+        boolean hasImage = foodSaveRequestDto.getImage() != null && !foodSaveRequestDto.getImage().isEmpty();
 
+        if(!hasImage) {
             try {
-                String foodImageUrl = s3Service.uploadImage(FOOD_IMAGE_BUCKET, truckId + "/" + food.getId(), foodSaveRequestDto.getImage());
-                log.info("image uploaded to s3 bucket. url=" + foodImageUrl);
-                food.setImageUrl(foodImageUrl);
+                imagePipeline.delete(FOOD_IMAGE_BUCKET, truckId + "/" + food.getId());
+                log.info("food image removed: " + truckId + "/" + food.getId());
             } catch(S3ServiceException e) {
                 log.error(e.getMessage());
             }
@@ -115,12 +109,16 @@ public class FoodServiceImpl implements FoodService {
 
         Map<String, Object> params = new HashMap<>();
         params.put("food", food.toMap());
+        params.put("clearImage", !hasImage);
 
         String script = "def target = ctx._source.foods.find(food -> food.id == params.food.id);" +
                            "target.name = params.food.name;" + 
                            "target.cost = params.food.cost;" +
                            "target.description = params.food.description;" +
-                           "target.imageUrl = params.food.imageUrl;";
+                           "if(params.clearImage) {" +
+                               "target.imageUrl = null;" +
+                               "target.imageVariants = null;" +
+                           "}";
         
         Script inline = new Script(ScriptType.INLINE, "painless", script, params);
 
@@ -137,12 +135,95 @@ public class FoodServiceImpl implements FoodService {
 
         }
 
+        String imageResult = null;
+        if(hasImage) {
+            imageResult = submitFoodImage(truckId, food.getId(), foodSaveRequestDto.getImage());
+        }
+
         return IndexUpdateResultDto.builder()
-                .result(response.getResult().name())
+                .result(resultWithImage(response.getResult(), imageResult))
                 .id(food.getId())
                 .build();
     }
 
+    @Override
+    public PresignedUpload createImageUpload(String truckId, String id, String contentType) {
+
+        try {
+            return imagePipeline.prepareUpload(FOOD_IMAGE_BUCKET, truckId + "/" + id, contentType);
+        } catch(S3ServiceException e) {
+            log.error(e.getMessage());
+            return PresignedUpload.builder()
+                    .result(e.getLocalizedMessage())
+                    .build();
+        }
+    }
+
+    @Override
+    public IndexUpdateResultDto completeImageUpload(String truckId, String id, String key) {
+
+        String result;
+        try {
+            result = imagePipeline.submitUploaded(FOOD_IMAGE_BUCKET, truckId + "/" + id, key, urls -> recordFoodImage(truckId, id, urls));
+        } catch(S3ServiceException e) {
+            log.error(e.getMessage());
+            result = e.getLocalizedMessage();
+        }
+
+        return IndexUpdateResultDto.builder()
+                .result(result)
+                .id(id)
+                .build();
+    }
+
+    private String submitFoodImage(String truckId, String foodId, MultipartFile image) {
+        try {
+            return imagePipeline.submit(FOOD_IMAGE_BUCKET, truckId + "/" + foodId, image, urls -> recordFoodImage(truckId, foodId, urls));
+        } catch(S3ServiceException e) {
+            log.error(e.getMessage());
+            return e.getLocalizedMessage();
+        }
+    }
+
+    private static String resultWithImage(DocWriteResponse.Result result, String imageResult) {
+        return RestStatus.SERVICE_UNAVAILABLE.name().equals(imageResult) ? imageResult : result.name();
+    }
+
+    private void recordFoodImage(String truckId, String foodId, Map<String, String> urls) {
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", foodId);
+        params.put("imageUrl", urls.get(ImagePipeline.ORIGINAL));
+        params.put("imageVariants", urls);
+
+        String script = "def target = ctx._source.foods == null ? null : ctx._source.foods.find(food -> food.id == params.id);" +
+                        "if(target == null) {" +
+                            "ctx.op = 'noop';" +
+                        "} else {" +
+                            "target.imageUrl = params.imageUrl;" +
+                            "target.imageVariants = params.imageVariants;" +
+                        "}";
+        Script inline = new Script(ScriptType.INLINE, "painless", script, params);
+
+        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truckId, inline);
+        try {
+            UpdateResponse response = esClient.update(request, RequestOptions.DEFAULT);
+            if(response.getResult() == DocWriteResponse.Result.NOOP) {
+                log.info("food was deleted while its image was processed. id=" + foodId);
+                imagePipeline.delete(FOOD_IMAGE_BUCKET, truckId + "/" + foodId);
+            }
+        } catch(ElasticsearchException e) {
+            if(e.status() == RestStatus.NOT_FOUND) {
+                log.info("truck was deleted while its food image was processed. id=" + truckId);
+                imagePipeline.delete(FOOD_IMAGE_BUCKET, truckId + "/" + foodId);
+            } else {
+                log.error(e.getMessage());
+            }
+        } catch(IOException e) {
+            log.error("IOException occured.");
+        }
+    }
+
     @Override
     public IndexUpdateResultDto deleteFood(String truckId, String id) {
 
@@ -165,7 +246,7 @@ public class FoodServiceImpl implements FoodService {
         }
 
         try {
-            s3Service.deleteImage(FOOD_IMAGE_BUCKET, truckId + "/" + id);
+            imagePipeline.delete(FOOD_IMAGE_BUCKET, truckId + "/" + id);
         } catch(S3ServiceException e) {
             log.error(e.getMessage());
         }
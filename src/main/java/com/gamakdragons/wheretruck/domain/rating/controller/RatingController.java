@@ -1,5 +1,7 @@
 package com.gamakdragons.wheretruck.domain.rating.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.servlet.http.HttpServletRequest;
 
 import com.gamakdragons.wheretruck.common.SearchResultDto;
@@ -7,10 +9,13 @@ import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.rating.dto.MyRatingDto;
 import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
 import com.gamakdragons.wheretruck.domain.rating.service.RatingService;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -30,6 +35,8 @@ public class RatingController {
     @Autowired
     private RatingService service;
 
+    @Value("${rating.page-size:20}")
+    private int PAGE_SIZE;
 
     @PostMapping("/{truckId}")
     public ResponseEntity<IndexUpdateResultDto> save(@PathVariable String truckId, @RequestBody Rating rating, HttpServletRequest httpServletRequest) {
@@ -57,13 +64,14 @@ public class RatingController {
     }
 
     @GetMapping("/my")
-    public ResponseEntity<SearchResultDto<MyRatingDto>> findByUserId(HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<SearchResultDto<MyRatingDto>>> findByUserId(HttpServletRequest request, @Nullable Integer size, @Nullable String cursor) {
 
         String userId = request.getAttribute("userId").toString();
 
-        log.info("/api/rating/user/" + userId);
+        log.info("/api/rating/user/" + userId + ". size=" + size + ", cursor=" + cursor);
 
-        return new ResponseEntity<>(service.findByUserId(userId), HttpStatus.OK);
+        return service.findByUserIdAsync(userId, SearchAfterCursor.pageSize(size, PAGE_SIZE), cursor)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
     }
 
 }
@@ -17,6 +17,7 @@ import lombok.ToString;
 public class Rating {
 
     private String id;
+    private String truckId;
     private String userId;
     private float star;
     private String comment;
@@ -27,6 +28,7 @@ public class Rating {
 
         Map<String, Object> map = new HashMap<>();
         map.put("id", getId());
+        map.put("truckId", getTruckId());
         map.put("userId", getUserId());
         map.put("star", getStar());
         map.put("comment", getComment());
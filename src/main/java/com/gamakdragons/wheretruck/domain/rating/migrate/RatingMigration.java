@@ -0,0 +1,271 @@
+package com.gamakdragons.wheretruck.domain.rating.migrate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.Sum;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * One-off move of the ratings nested in truck documents into the rating index.
+ *
+ * <pre>
+ * ./gradlew migrateRatings -PmigrateArgs="--es-host=http://localhost:9200"
+ * </pre>
+ *
+ * For every truck that still has a ratings array, the ratings are indexed with their truckId, numRating and
+ * ratingSum are recomputed from the rating index, and the array is removed from the truck. Trucks without
+ * the array are skipped, so the migration can be re-run after a partial failure.
+ */
+@Slf4j
+public class RatingMigration {
+
+    private static final String SEED_AGGREGATES_SCRIPT =
+                        "ctx._source.numRating = params.count;" +
+                        "ctx._source.ratingSum = params.sum;" +
+                        "ctx._source.starAvg = params.count > 0 ? params.sum / params.count : 0.0;" +
+                        "ctx._source.remove('ratings');";
+
+    private static final String BY_TRUCK = "byTruck";
+    private static final String STAR_SUM = "starSum";
+
+    @Getter
+    public static class Result {
+
+        private final long trucks;
+        private final long ratings;
+        private final long failed;
+
+        Result(long trucks, long ratings, long failed) {
+            this.trucks = trucks;
+            this.ratings = ratings;
+            this.failed = failed;
+        }
+    }
+
+    public static Result migrate(RestHighLevelClient esClient, String truckIndex, String ratingIndex, int pageSize) throws IOException {
+
+        SearchRequest request = EsRequestFactory.paginate(
+                EsRequestFactory.createSearchAllRequest(truckIndex, new String[]{"id", "ratings"}, new String[]{}), pageSize, null, "id");
+
+        long trucks = 0;
+        long ratings = 0;
+        long failed = 0;
+        while(true) {
+            SearchResponse response = esClient.search(request, RequestOptions.DEFAULT);
+            SearchHit[] hits = response.getHits().getHits();
+
+            Map<String, List<Rating>> nested = new LinkedHashMap<>();
+            for(SearchHit hit : hits) {
+                Object value = hit.getSourceAsMap().get("ratings");
+                if(value instanceof List) {
+                    nested.put(hit.getId(), toRatings(hit.getId(), (List<?>) value));
+                }
+            }
+
+            if(!nested.isEmpty()) {
+                Set<String> failedTrucks = indexRatings(esClient, ratingIndex, nested);
+
+                List<String> truckIds = new ArrayList<>(nested.keySet());
+                truckIds.removeAll(failedTrucks);
+                failedTrucks.addAll(seedAggregates(esClient, truckIndex, truckIds, aggregate(esClient, ratingIndex, truckIds)));
+
+                for(Map.Entry<String, List<Rating>> entry : nested.entrySet()) {
+                    if(failedTrucks.contains(entry.getKey())) {
+                        continue;
+                    }
+                    trucks++;
+                    ratings += entry.getValue().size();
+                }
+                failed += failedTrucks.size();
+
+                log.info("migrated ratings of " + trucks + " trucks. ratings=" + ratings + ", failed=" + failed);
+            }
+
+            if(hits.length < pageSize) {
+                break;
+            }
+            request.source().searchAfter(hits[hits.length - 1].getSortValues());
+        }
+
+        return new Result(trucks, ratings, failed);
+    }
+
+    private static List<Rating> toRatings(String truckId, List<?> values) {
+
+        List<Rating> ratings = new ArrayList<>();
+        for(int i = 0; i < values.size(); i++) {
+            if(!(values.get(i) instanceof Map)) {
+                continue;
+            }
+            Map<?, ?> value = (Map<?, ?>) values.get(i);
+
+            Rating rating = new Rating();
+            rating.setId(value.get("id") == null
+                    ? UUID.nameUUIDFromBytes((truckId + "|" + i).getBytes(StandardCharsets.UTF_8)).toString()
+                    : value.get("id").toString());
+            rating.setTruckId(truckId);
+            rating.setUserId(value.get("userId") == null ? null : value.get("userId").toString());
+            rating.setStar(value.get("star") instanceof Number ? ((Number) value.get("star")).floatValue() : 0.0f);
+            rating.setComment(value.get("comment") == null ? null : value.get("comment").toString());
+            rating.setCreatedDate(value.get("createdDate") == null ? null : value.get("createdDate").toString());
+            rating.setUpdatedDate(value.get("updatedDate") == null ? rating.getCreatedDate() : value.get("updatedDate").toString());
+
+            ratings.add(rating);
+        }
+        return ratings;
+    }
+
+    private static Set<String> indexRatings(RestHighLevelClient esClient, String ratingIndex, Map<String, List<Rating>> nested) throws IOException {
+
+        BulkRequest bulkRequest = new BulkRequest();
+        bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
+
+        List<String> truckIds = new ArrayList<>();
+        nested.forEach((truckId, ratings) -> ratings.forEach(rating -> {
+            bulkRequest.add(EsRequestFactory.createIndexRequest(ratingIndex, rating.getId(), rating));
+            truckIds.add(truckId);
+        }));
+
+        Set<String> failedTrucks = new HashSet<>();
+        if(bulkRequest.numberOfActions() == 0) {
+            return failedTrucks;
+        }
+
+        BulkResponse response = esClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+        BulkItemResponse[] items = response.getItems();
+        for(int i = 0; i < items.length; i++) {
+            if(items[i].isFailed()) {
+                failedTrucks.add(truckIds.get(i));
+                log.error("failed to index rating. truckId=" + truckIds.get(i) + ", id=" + items[i].getId() + ", " + items[i].getFailureMessage());
+            }
+        }
+        return failedTrucks;
+    }
+
+    /**
+     * numRating and ratingSum per truck, taken from the rating index so that ratings written through the API
+     * before the migration ran are counted as well.
+     */
+    private static Map<String, double[]> aggregate(RestHighLevelClient esClient, String ratingIndex, List<String> truckIds) throws IOException {
+
+        Map<String, double[]> aggregates = new HashMap<>();
+        if(truckIds.isEmpty()) {
+            return aggregates;
+        }
+
+        SearchRequest request = EsRequestFactory.createSearchByFieldValuesRequest(ratingIndex, "truckId", truckIds);
+        request.source().size(0);
+        request.source().aggregation(AggregationBuilders.terms(BY_TRUCK).field("truckId").size(truckIds.size())
+                                        .subAggregation(AggregationBuilders.sum(STAR_SUM).field("star")));
+
+        Terms byTruck = esClient.search(request, RequestOptions.DEFAULT).getAggregations().get(BY_TRUCK);
+        for(Terms.Bucket bucket : byTruck.getBuckets()) {
+            Sum starSum = bucket.getAggregations().get(STAR_SUM);
+            aggregates.put(bucket.getKeyAsString(), new double[]{bucket.getDocCount(), starSum.getValue()});
+        }
+        return aggregates;
+    }
+
+    private static Set<String> seedAggregates(RestHighLevelClient esClient, String truckIndex, List<String> truckIds, Map<String, double[]> aggregates) throws IOException {
+
+        Set<String> failedTrucks = new HashSet<>();
+        if(truckIds.isEmpty()) {
+            return failedTrucks;
+        }
+
+        BulkRequest bulkRequest = new BulkRequest();
+        for(String truckId : truckIds) {
+            double[] aggregate = aggregates.getOrDefault(truckId, new double[]{0, 0});
+
+            Map<String, Object> params = new HashMap<>();
+            params.put("count", (int) aggregate[0]);
+            params.put("sum", aggregate[1]);
+
+            Script inline = new Script(ScriptType.INLINE, "painless", SEED_AGGREGATES_SCRIPT, params);
+            bulkRequest.add(EsRequestFactory.createUpdateWithScriptRequest(truckIndex, truckId, inline).retryOnConflict(3));
+        }
+
+        for(BulkItemResponse item : esClient.bulk(bulkRequest, RequestOptions.DEFAULT).getItems()) {
+            if(item.isFailed()) {
+                failedTrucks.add(item.getId());
+                log.error("failed to seed rating aggregates. truckId=" + item.getId() + ", " + item.getFailureMessage());
+            }
+        }
+        return failedTrucks;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        Map<String, String> params = parseArgs(args);
+
+        String truckIndex = params.getOrDefault("truck-index", "truck");
+        String ratingIndex = params.getOrDefault("rating-index", "rating");
+        int pageSize = Integer.parseInt(params.getOrDefault("page-size", "100"));
+
+        CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(
+                params.getOrDefault("user", System.getenv("ES_USER")),
+                params.getOrDefault("password", System.getenv("ES_PASSWORD"))));
+
+        long start = System.currentTimeMillis();
+        Result result;
+        try(RestHighLevelClient esClient = new RestHighLevelClient(
+                    RestClient.builder(HttpHost.create(params.getOrDefault("es-host", "http://localhost:9200")))
+                            .setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider)))) {
+
+            result = migrate(esClient, truckIndex, ratingIndex, pageSize);
+        }
+
+        log.info("rating migration finished. trucks=" + result.getTrucks() + ", ratings=" + result.getRatings()
+                    + ", failed=" + result.getFailed() + ", took=" + (System.currentTimeMillis() - start) + "ms");
+
+        if(result.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+
+        Map<String, String> params = new HashMap<>();
+        for(String arg : args) {
+            if(!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("expected --name=value but got " + arg);
+            }
+            params.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return params;
+    }
+}
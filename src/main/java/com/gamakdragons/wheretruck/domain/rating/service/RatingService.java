@@ -1,5 +1,7 @@
 package com.gamakdragons.wheretruck.domain.rating.service;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.rating.dto.MyRatingDto;
@@ -11,5 +13,5 @@ public interface RatingService {
     IndexUpdateResultDto updateRating(String truckId, Rating rating);
     IndexUpdateResultDto deleteRating(String truckId, String id);
 
-    SearchResultDto<MyRatingDto> findByUserId(String userId);
+    CompletableFuture<SearchResultDto<MyRatingDto>> findByUserIdAsync(String userId, int size, String cursor);
 }
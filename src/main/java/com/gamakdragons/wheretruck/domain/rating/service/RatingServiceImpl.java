@@ -3,22 +3,32 @@ package com.gamakdragons.wheretruck.domain.rating.service;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.rating.dto.MyRatingDto;
 import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.domain.truck.service.OpenTruckIndex;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.gamakdragons.wheretruck.util.EsFutures;
 import com.gamakdragons.wheretruck.util.EsRequestFactory;
-import com.google.gson.Gson;
-
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
@@ -28,6 +38,8 @@ import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -38,12 +50,29 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 @RequiredArgsConstructor
 public class RatingServiceImpl implements RatingService {
-    
+
+    private static final String APPLY_RATING_DELTA_SCRIPT =
+                        "if(ctx._source.numRating == null) {ctx._source.numRating = 0;}" +
+                        "if(ctx._source.ratingSum == null) {ctx._source.ratingSum = ctx._source.starAvg == null ? 0.0 : ctx._source.starAvg * ctx._source.numRating;}" +
+                        "ctx._source.numRating += params.count;" +
+                        "ctx._source.ratingSum += params.star;" +
+                        "ctx._source.starAvg = ctx._source.numRating > 0 ? ctx._source.ratingSum / ctx._source.numRating : 0.0;";
+
     @Value("${elasticsearch.index.truck.name}")
     private String TRUCK_INDEX;
 
-    private final RestHighLevelClient esClient;
+    @Value("${elasticsearch.index.rating.name}")
+    private String RATING_INDEX;
 
+    private final RestHighLevelClient esClient;
+    private final EsFutures esFutures;
+    private final OpenTruckIndex openTruckIndex;
+
+    /**
+     * Rating writes stay on the blocking client. They do not touch S3, but each one chains a read, a
+     * conditional write and the truck aggregate update, and a failed step has to be compensated before
+     * the result is returned.
+     */
     @Override
     public IndexUpdateResultDto saveRating(String truckId, Rating rating) {
 
@@ -52,30 +81,31 @@ public class RatingServiceImpl implements RatingService {
         rating.setUpdatedDate(current);
 
         rating.setId(UUID.randomUUID().toString());
-
-        Map<String, Object> params = new HashMap<>();
-        params.put("rating", rating.toMap());
-
-        String script = "if(ctx._source.ratings == null) {ctx._source.ratings = new ArrayList();}" + 
-                        "ctx._source.ratings.add(params.rating);" + 
-                        "ctx._source.numRating=ctx._source.ratings.stream().count();" + 
-                        "ctx._source.starAvg=ctx._source.ratings.stream().mapToDouble(r -> r.star).average().getAsDouble();";
-
-        Script inline = new Script(ScriptType.INLINE, "painless", script, params);
-
-        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truckId, inline);
+        rating.setTruckId(truckId);
 
         UpdateResponse response;
         try {
-            response = esClient.update(request, RequestOptions.DEFAULT);
+            response = applyRatingDelta(truckId, 1, rating.getStar());
         } catch(IOException e) {
             log.error("IOException occured.");
             return IndexUpdateResultDto.builder()
                 .result(e.getLocalizedMessage())
                 .build();
+        }
 
+        IndexRequest request = EsRequestFactory.createIndexRequest(RATING_INDEX, rating.getId(), rating);
+        try {
+            esClient.index(request, RequestOptions.DEFAULT);
+        } catch(IOException e) {
+            log.error("IOException occured. reverting rating aggregates of truck " + truckId);
+            revertRatingDelta(truckId, -1, -rating.getStar());
+            return IndexUpdateResultDto.builder()
+                .result(e.getLocalizedMessage())
+                .build();
         }
 
+        refreshOpenTruckIndex(response);
+
         return IndexUpdateResultDto.builder()
                 .result(response.getResult().name())
                 .id(rating.getId())
@@ -85,58 +115,110 @@ public class RatingServiceImpl implements RatingService {
     @Override
     public IndexUpdateResultDto updateRating(String truckId, Rating rating) {
 
-        String current = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        rating.setUpdatedDate(current);
+        GetResponse stored;
+        try {
+            stored = esClient.get(EsRequestFactory.createGetRequest(RATING_INDEX, rating.getId()), RequestOptions.DEFAULT);
+        } catch(IOException e) {
+            log.error("IOException occured.");
+            return IndexUpdateResultDto.builder()
+                .result(e.getLocalizedMessage())
+                .build();
+        }
 
-        Map<String, Object> params = new HashMap<>();
-        params.put("rating", rating.toMap());
+        Rating before = findStoredRating(stored, truckId);
+        if(before == null) {
+            return IndexUpdateResultDto.builder()
+                .result(RestStatus.NOT_FOUND.name())
+                .id(rating.getId())
+                .build();
+        }
 
-        String script = "def target = ctx._source.ratings.find(rating -> rating.id == params.rating.id);" +
-                        "target.star = params.rating.star;" +
-                        "target.comment = params.rating.comment;" +
-                        "target.updatedDate = params.rating.updatedDate;" +
-                        "ctx._source.numRating=ctx._source.ratings.stream().count();" + 
-                        "ctx._source.starAvg=ctx._source.ratings.stream().mapToDouble(r -> r.star).average().getAsDouble();";
+        String current = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+        rating.setUpdatedDate(current);
 
-        Script inline = new Script(ScriptType.INLINE, "painless", script, params);
+        Map<String, Object> changes = new HashMap<>();
+        changes.put("star", rating.getStar());
+        changes.put("comment", rating.getComment());
+        changes.put("updatedDate", rating.getUpdatedDate());
 
-        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truckId, inline);
+        UpdateRequest ratingRequest = EsRequestFactory.createUpdateRequest(RATING_INDEX, rating.getId(), changes);
+        ratingRequest.setIfSeqNo(stored.getSeqNo());
+        ratingRequest.setIfPrimaryTerm(stored.getPrimaryTerm());
 
-        UpdateResponse response;
         try {
-            response = esClient.update(request, RequestOptions.DEFAULT);
+            esClient.update(ratingRequest, RequestOptions.DEFAULT);
+        } catch(ElasticsearchStatusException e) {
+            if(e.status() != RestStatus.CONFLICT) {
+                throw e;
+            }
+            log.error("rating " + rating.getId() + " was modified concurrently.");
+            return IndexUpdateResultDto.builder()
+                .result(RestStatus.CONFLICT.name())
+                .id(rating.getId())
+                .build();
         } catch(IOException e) {
             log.error("IOException occured.");
             return IndexUpdateResultDto.builder()
                 .result(e.getLocalizedMessage())
                 .build();
+        }
 
+        UpdateResponse response;
+        try {
+            response = applyRatingDelta(truckId, 0, rating.getStar() - before.getStar());
+        } catch(IOException e) {
+            log.error("IOException occured. restoring rating " + rating.getId());
+            restoreRating(before);
+            return IndexUpdateResultDto.builder()
+                .result(e.getLocalizedMessage())
+                .build();
+        } catch(RuntimeException e) {
+            restoreRating(before);
+            throw e;
         }
 
+        refreshOpenTruckIndex(response);
+
         return IndexUpdateResultDto.builder()
                 .result(response.getResult().name())
                 .id(rating.getId())
                 .build();
     }
 
-
-
     @Override
     public IndexUpdateResultDto deleteRating(String truckId, String id) {
-        
-        Map<String, Object> params = new HashMap<>();
-        params.put("id", id);
 
-        String script = "ctx._source.ratings.removeIf(rating -> rating.id == params.id);" +
-                        "ctx._source.numRating=ctx._source.ratings.stream().count();" + 
-                        "ctx._source.starAvg=ctx._source.ratings.stream().mapToDouble(r -> r.star).average().getAsDouble();";
-        Script inline = new Script(ScriptType.INLINE, "painless", script, params);
+        GetResponse stored;
+        try {
+            stored = esClient.get(EsRequestFactory.createGetRequest(RATING_INDEX, id), RequestOptions.DEFAULT);
+        } catch(IOException e) {
+            log.error("IOException occured.");
+            return IndexUpdateResultDto.builder()
+                    .result(e.getLocalizedMessage())
+                    .build();
+        }
 
-        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truckId, inline);
-        UpdateResponse response;
+        Rating before = findStoredRating(stored, truckId);
+        if(before == null) {
+            return IndexUpdateResultDto.builder()
+                    .result(RestStatus.NOT_FOUND.name())
+                    .build();
+        }
+
+        DeleteRequest ratingRequest = EsRequestFactory.createDeleteByIdRequest(RATING_INDEX, id);
+        ratingRequest.setIfSeqNo(stored.getSeqNo());
+        ratingRequest.setIfPrimaryTerm(stored.getPrimaryTerm());
 
         try {
-            response = esClient.update(request, RequestOptions.DEFAULT);
+            esClient.delete(ratingRequest, RequestOptions.DEFAULT);
+        } catch(ElasticsearchStatusException e) {
+            if(e.status() != RestStatus.CONFLICT) {
+                throw e;
+            }
+            log.error("rating " + id + " was modified concurrently.");
+            return IndexUpdateResultDto.builder()
+                    .result(RestStatus.CONFLICT.name())
+                    .build();
         } catch(IOException e) {
             log.error("IOException occured.");
             return IndexUpdateResultDto.builder()
@@ -144,26 +226,87 @@ public class RatingServiceImpl implements RatingService {
                     .build();
         }
 
+        UpdateResponse response;
+        try {
+            response = applyRatingDelta(truckId, -1, -before.getStar());
+        } catch(IOException e) {
+            log.error("IOException occured. restoring rating " + id);
+            restoreRating(before);
+            return IndexUpdateResultDto.builder()
+                    .result(e.getLocalizedMessage())
+                    .build();
+        } catch(RuntimeException e) {
+            restoreRating(before);
+            throw e;
+        }
+
+        refreshOpenTruckIndex(response);
+
         return IndexUpdateResultDto.builder()
                 .result(response.getResult().name())
                 .build();
     }
 
-    public SearchResultDto<MyRatingDto> findByUserId(String userId) {
-        SearchRequest request = EsRequestFactory.createNestedSearchRequest(TRUCK_INDEX, "ratings", "ratings.userId", userId);
+    @Override
+    public CompletableFuture<SearchResultDto<MyRatingDto>> findByUserIdAsync(String userId, int size, String cursor) {
 
-        SearchResponse response;
+        Object[] searchAfter;
         try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-        } catch(IOException e) {
+            searchAfter = SearchAfterCursor.decode(cursor, 2);
+        } catch(IllegalArgumentException e) {
             log.error(e.getMessage());
-            return makeErrorSearhResultDtoFromSearchResponse();
+            return CompletableFuture.completedFuture(makeErrorSearhResultDtoFromSearchResponse(RestStatus.BAD_REQUEST));
         }
 
-        final List<MyRatingDto> myRatings = new ArrayList<>();
-        Arrays.stream(response.getHits().getHits()).forEach(truckHit -> {
-            Arrays.stream(truckHit.getInnerHits().get("ratings").getHits())
-                    .map(ratingHit -> new Gson().fromJson(ratingHit.getSourceAsString(), Rating.class))
+        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(RATING_INDEX, "userId", userId);
+        request.source().sort("createdDate", SortOrder.DESC);
+        EsRequestFactory.paginate(request, size, searchAfter, "id");
+
+        return esFutures.search(request)
+                .thenCompose(response -> {
+                    List<Rating> ratings = Arrays.stream(response.getHits().getHits())
+                                                .map(hit -> EsDocumentCodec.read(hit.getSourceRef(), Rating.class))
+                                                .collect(Collectors.toList());
+
+                    return findTruckNamesAsync(ratings)
+                            .thenApply(truckNames -> makeMyRatingSearchResultDto(response, ratings, truckNames, size));
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorSearhResultDtoFromSearchResponse();
+                });
+    }
+
+    private CompletableFuture<Map<String, String>> findTruckNamesAsync(List<Rating> ratings) {
+
+        List<String> truckIds = ratings.stream()
+                                    .map(Rating::getTruckId)
+                                    .distinct()
+                                    .collect(Collectors.toList());
+
+        if(truckIds.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+
+        MultiGetRequest request = EsRequestFactory.createMultiGetRequest(TRUCK_INDEX, truckIds, new String[]{"id", "name"}, new String[]{});
+
+        return esFutures.mget(request)
+                .thenApply(response -> {
+                    Map<String, String> truckNames = new HashMap<>();
+                    for(MultiGetItemResponse item : response.getResponses()) {
+                        if(item.isFailed() || !item.getResponse().isExists()) {
+                            continue;
+                        }
+                        Truck truck = EsDocumentCodec.read(item.getResponse().getSourceAsBytesRef(), Truck.class);
+                        truckNames.put(item.getId(), truck.getName());
+                    }
+                    return truckNames;
+                });
+    }
+
+    private SearchResultDto<MyRatingDto> makeMyRatingSearchResultDto(SearchResponse response, List<Rating> ratings, Map<String, String> truckNames, int size) {
+
+        List<MyRatingDto> myRatings = ratings.stream()
                     .map(rating -> MyRatingDto.builder()
                                         .id(rating.getId())
                                         .star(rating.getStar())
@@ -171,29 +314,85 @@ public class RatingServiceImpl implements RatingService {
                                         .comment(rating.getComment())
                                         .createdDate(rating.getCreatedDate())
                                         .updatedDate(rating.getUpdatedDate())
-                                        .truckId(truckHit.getSourceAsMap().get("id").toString())
-                                        .truckName(truckHit.getSourceAsMap().get("name").toString())
+                                        .truckId(rating.getTruckId())
+                                        .truckName(truckNames.get(rating.getTruckId()))
                                         .build()
                     )
-                    .forEach(myRatings::add);
-        });
+                    .collect(Collectors.toList());
 
-        List<MyRatingDto> result = myRatings.stream()
-                .sorted((r1, r2) -> {
-                    return r2.getCreatedDate().compareTo(r1.getCreatedDate());
-                })
-                .collect(Collectors.toList());
+        SearchHit[] hits = response.getHits().getHits();
+        String next = null;
+        if(hits.length == size) {
+            next = SearchAfterCursor.encode(hits[hits.length - 1].getSortValues());
+        }
 
         return SearchResultDto.<MyRatingDto> builder()
                 .status(response.status().name())
-                .numFound(result.size())
-                .docs(result)
+                .numFound((int) response.getHits().getTotalHits().value)
+                .docs(myRatings)
+                .next(next)
                 .build();
     }
 
+    private Rating findStoredRating(GetResponse stored, String truckId) {
+        if(!stored.isExists()) {
+            return null;
+        }
+
+        Rating rating = EsDocumentCodec.read(stored.getSourceAsBytesRef(), Rating.class);
+        if(!truckId.equals(rating.getTruckId())) {
+            log.error("rating " + stored.getId() + " does not belong to truck " + truckId);
+            return null;
+        }
+
+        return rating;
+    }
+
+    private UpdateResponse applyRatingDelta(String truckId, int count, float star) throws IOException {
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("count", count);
+        params.put("star", star);
+
+        Script inline = new Script(ScriptType.INLINE, "painless", APPLY_RATING_DELTA_SCRIPT, params);
+
+        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truckId, inline, new String[]{}, OpenTruckIndex.SUMMARY_EXCLUDES);
+        request.retryOnConflict(3);
+
+        return esClient.update(request, RequestOptions.DEFAULT);
+    }
+
+    private void revertRatingDelta(String truckId, int count, float star) {
+        try {
+            refreshOpenTruckIndex(applyRatingDelta(truckId, count, star));
+        } catch(IOException e) {
+            log.error("IOException occured. rating aggregates of truck " + truckId + " may be inconsistent.");
+        }
+    }
+
+    private void restoreRating(Rating rating) {
+        try {
+            esClient.index(EsRequestFactory.createIndexRequest(RATING_INDEX, rating.getId(), rating), RequestOptions.DEFAULT);
+        } catch(IOException | RuntimeException e) {
+            log.error("failed to restore rating " + rating.getId() + ". rating aggregates of truck " + rating.getTruckId() + " may be inconsistent.");
+        }
+    }
+
+    private void refreshOpenTruckIndex(UpdateResponse response) {
+        if(response.getGetResult() == null || !response.getGetResult().isExists()) {
+            return;
+        }
+
+        openTruckIndex.refresh(EsDocumentCodec.read(response.getGetResult().sourceRef(), Truck.class));
+    }
+
     private SearchResultDto<MyRatingDto> makeErrorSearhResultDtoFromSearchResponse() {
+        return makeErrorSearhResultDtoFromSearchResponse(RestStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private SearchResultDto<MyRatingDto> makeErrorSearhResultDtoFromSearchResponse(RestStatus status) {
         return SearchResultDto.<MyRatingDto> builder()
-                .status(RestStatus.INTERNAL_SERVER_ERROR.name())
+                .status(status.name())
                 .numFound(0)
                 .docs(Collections.emptyList())
                 .build();
@@ -0,0 +1,47 @@
+package com.gamakdragons.wheretruck.domain.region.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.gamakdragons.wheretruck.domain.region.service.RegionCatalog;
+
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Served on the management port (POST /actuator/regioncatalog to reload), which nginx does not proxy.
+ */
+@Component
+@WebEndpoint(id = "regioncatalog")
+@RequiredArgsConstructor
+@Slf4j
+public class RegionCatalogEndpoint {
+
+    private final RegionCatalog regionCatalog;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("loaded", regionCatalog.isLoaded());
+        status.put("size", regionCatalog.size());
+        return status;
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> reload() {
+        log.info("/actuator/regioncatalog reload");
+
+        boolean reloaded = regionCatalog.reload();
+
+        Map<String, Object> status = status();
+        status.put("reloaded", reloaded);
+
+        return new WebEndpointResponse<>(status, reloaded ? WebEndpointResponse.STATUS_OK : WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+    }
+}
@@ -1,17 +1,25 @@
 package com.gamakdragons.wheretruck.domain.region.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.domain.region.entity.Region;
 import com.gamakdragons.wheretruck.domain.region.service.RegionService;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,25 +32,43 @@ public class RegionController {
     @Autowired
     private RegionService service;
 
+    @Value("${region.page-size:10000}")
+    private int PAGE_SIZE;
+
     @GetMapping("/all")
-    public ResponseEntity<SearchResultDto<Region>> allRegions() {
-        log.info("/region/all");
+    public CompletableFuture<ResponseEntity<SearchResultDto<Region>>> allRegions(@Nullable Integer size, @Nullable String cursor) {
+        log.info("/region/all. size=" + size + ", cursor=" + cursor);
+
+        return service.findAllAsync(SearchAfterCursor.pageSize(size, PAGE_SIZE), cursor)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
+    }
+
+    @GetMapping(value = "/all", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllRegions() {
+        log.info("/region/all. stream=true");
+
+        SearchResponseStreamer body = service.streamAll();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
 
-        return new ResponseEntity<>(service.findAll(), HttpStatus.OK);
+        return new ResponseEntity<>(body, headers, HttpStatus.valueOf(body.getStatus().getStatus()));
     }
 
     @GetMapping("/geo")
-    public ResponseEntity<SearchResultDto<Region>> getRegionsByDistance(GeoLocation geoLocation, float distance) {
-        log.info("/region/geo. geoLocation=" + geoLocation + ", distance=" + distance);
+    public CompletableFuture<ResponseEntity<SearchResultDto<Region>>> getRegionsByDistance(GeoLocation geoLocation, float distance, @Nullable Integer size, @Nullable String cursor) {
+        log.info("/region/geo. geoLocation=" + geoLocation + ", distance=" + distance + ", size=" + size + ", cursor=" + cursor);
 
-        return new ResponseEntity<>(service.findByLocation(geoLocation, distance), HttpStatus.OK);
+        return service.findByLocationAsync(geoLocation, distance, SearchAfterCursor.pageSize(size, PAGE_SIZE), cursor)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
     }
 
     @GetMapping("/address")
-    public ResponseEntity<SearchResultDto<Region>> getRegionsByAddress(@Nullable String city, @Nullable String town) {
-        log.info("/region/address. city=" + city + ", town=" + town);
+    public CompletableFuture<ResponseEntity<SearchResultDto<Region>>> getRegionsByAddress(@Nullable String city, @Nullable String town, @Nullable Integer size, @Nullable String cursor) {
+        log.info("/region/address. city=" + city + ", town=" + town + ", size=" + size + ", cursor=" + cursor);
 
-        return new ResponseEntity<>(service.findByAddress(city, town), HttpStatus.OK);
+        return service.findByAddressAsync(city, town, SearchAfterCursor.pageSize(size, PAGE_SIZE), cursor)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
     }
 
 }
@@ -17,6 +17,7 @@ import lombok.ToString;
 @EqualsAndHashCode
 public class Region {
     
+    private String id;
     private String regionName;
     private int regionType;
     private String city;
@@ -0,0 +1,287 @@
+package com.gamakdragons.wheretruck.domain.region.ingest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gamakdragons.wheretruck.domain.region.entity.Region;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.bulk.BackoffPolicy;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams the public food truck permitted-area dataset into a fresh region-{timestamp} index and moves
+ * the region alias to it once every record is indexed, so rows removed from the dataset (and documents
+ * written by older loaders) disappear with the previous index.
+ *
+ * <pre>
+ * ./gradlew ingestRegions -PingestArgs="--source=regions.json --es-host=http://localhost:9200"
+ * </pre>
+ *
+ * Credentials are read from --user/--password or the ES_USER/ES_PASSWORD environment variables.
+ */
+@Slf4j
+public class RegionIngestion {
+
+    public static final String DEFAULT_SOURCE = "https://www.data.go.kr/download/15028208/standard.do?dataType=json";
+
+    private static final String INDEX_DEFINITION = "/elasticsearch/region-index.json";
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    @Getter
+    @Builder
+    public static class Options {
+
+        @Builder.Default
+        private final int batchSize = 1000;
+        @Builder.Default
+        private final int concurrency = 2;
+        @Builder.Default
+        private final long batchBytes = 5 * 1024 * 1024;
+        @Builder.Default
+        private final long flushIntervalMs = 5000;
+        @Builder.Default
+        private final long retryDelayMs = 100;
+        @Builder.Default
+        private final int maxRetries = 5;
+        @Builder.Default
+        private final long closeTimeoutMs = 5 * 60 * 1000;
+    }
+
+    @Getter
+    public static class Result {
+
+        private final long read;
+        private final long indexed;
+        private final long failed;
+
+        Result(long read, long indexed, long failed) {
+            this.read = read;
+            this.indexed = indexed;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Ingests into a new versioned index and swaps the alias onto it. On any failed record the new index is
+     * dropped and the alias keeps pointing at the previous version.
+     */
+    public static Result rebuild(RestHighLevelClient esClient, String alias, RegionRecordReader reader, Options options) throws IOException {
+
+        String index = alias + "-" + ZonedDateTime.now(ZoneOffset.UTC).format(VERSION_FORMAT);
+        createIndex(esClient, index);
+
+        Result result;
+        try {
+            result = ingest(esClient, index, reader, options);
+        } catch(IOException | RuntimeException e) {
+            deleteIndices(esClient, index);
+            throw e;
+        }
+
+        if(result.getFailed() > 0) {
+            log.error("keeping the current " + alias + " index. failed=" + result.getFailed());
+            deleteIndices(esClient, index);
+            return result;
+        }
+
+        swapAlias(esClient, alias, index);
+        return result;
+    }
+
+    private static void createIndex(RestHighLevelClient esClient, String index) throws IOException {
+
+        try(InputStream definition = RegionIngestion.class.getResourceAsStream(INDEX_DEFINITION)) {
+            if(definition == null) {
+                throw new IOException("missing index definition " + INDEX_DEFINITION);
+            }
+
+            CreateIndexRequest request = new CreateIndexRequest(index);
+            request.source(new String(definition.readAllBytes(), StandardCharsets.UTF_8), XContentType.JSON);
+            esClient.indices().create(request, RequestOptions.DEFAULT);
+        }
+        log.info("created " + index);
+    }
+
+    private static void swapAlias(RestHighLevelClient esClient, String alias, String index) throws IOException {
+
+        Set<String> previous = new HashSet<>(esClient.indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT).getAliases().keySet());
+
+        IndicesAliasesRequest request = new IndicesAliasesRequest();
+        request.addAliasAction(AliasActions.add().index(index).alias(alias));
+        if(previous.isEmpty() && esClient.indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+            // a concrete index still carries the alias name; it is dropped in the same request
+            request.addAliasAction(AliasActions.removeIndex().index(alias));
+        }
+        previous.forEach(old -> request.addAliasAction(AliasActions.remove().index(old).alias(alias)));
+
+        esClient.indices().updateAliases(request, RequestOptions.DEFAULT);
+        log.info(alias + " now points at " + index + ". previous=" + previous);
+
+        if(!previous.isEmpty()) {
+            deleteIndices(esClient, previous.toArray(new String[0]));
+        }
+    }
+
+    private static void deleteIndices(RestHighLevelClient esClient, String... indices) {
+        try {
+            esClient.indices().delete(new DeleteIndexRequest(indices), RequestOptions.DEFAULT);
+        } catch(IOException | RuntimeException e) {
+            log.error("failed to delete " + String.join(",", indices) + ". " + e.getMessage());
+        }
+    }
+
+    public static Result ingest(RestHighLevelClient esClient, String index, RegionRecordReader reader, Options options) throws IOException {
+
+        AtomicLong indexed = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        BulkProcessor.Listener listener = new BulkProcessor.Listener() {
+
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+                log.debug("bulk " + executionId + " sending " + request.numberOfActions() + " regions");
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+                long failures = 0;
+                for(BulkItemResponse item : response.getItems()) {
+                    if(item.isFailed()) {
+                        failures++;
+                        log.error("failed to index region. id=" + item.getId() + ", " + item.getFailureMessage());
+                    }
+                }
+                indexed.addAndGet(request.numberOfActions() - failures);
+                failed.addAndGet(failures);
+                log.info("bulk " + executionId + " done. took=" + response.getTook() + ", indexed=" + indexed.get());
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+                failed.addAndGet(request.numberOfActions());
+                log.error("bulk " + executionId + " failed. " + failure.getMessage());
+            }
+        };
+
+        BulkProcessor bulkProcessor = BulkProcessor.builder(
+                    (request, bulkListener) -> esClient.bulkAsync(request, RequestOptions.DEFAULT, bulkListener), listener)
+                .setBulkActions(options.getBatchSize())
+                .setBulkSize(new ByteSizeValue(options.getBatchBytes(), ByteSizeUnit.BYTES))
+                .setConcurrentRequests(options.getConcurrency())
+                .setFlushInterval(TimeValue.timeValueMillis(options.getFlushIntervalMs()))
+                .setBackoffPolicy(BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(options.getRetryDelayMs()), options.getMaxRetries()))
+                .build();
+
+        long read = 0;
+        try {
+            Map<String, String> record;
+            while((record = reader.next()) != null) {
+                Region region = RegionRecordMapper.toRegion(record);
+                region.setId(RegionRecordMapper.idOf(region));
+                bulkProcessor.add(EsRequestFactory.createIndexRequest(index, region.getId(), region));
+                read++;
+            }
+        } finally {
+            try {
+                if(!bulkProcessor.awaitClose(options.getCloseTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    log.error("timed out waiting for in-flight bulk requests.");
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        esClient.indices().refresh(new RefreshRequest(index), RequestOptions.DEFAULT);
+
+        return new Result(read, indexed.get(), failed.get());
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        Map<String, String> params = parseArgs(args);
+
+        String source = params.getOrDefault("source", DEFAULT_SOURCE);
+        String format = params.getOrDefault("format", RegionRecordReader.formatOf(source));
+        Charset charset = Charset.forName(params.getOrDefault("charset", "UTF-8"));
+        String index = params.getOrDefault("index", "region");
+
+        Options options = Options.builder()
+                            .batchSize(Integer.parseInt(params.getOrDefault("batch-size", "1000")))
+                            .concurrency(Integer.parseInt(params.getOrDefault("concurrency", "2")))
+                            .flushIntervalMs(Long.parseLong(params.getOrDefault("flush-interval-ms", "5000")))
+                            .maxRetries(Integer.parseInt(params.getOrDefault("max-retries", "5")))
+                            .build();
+
+        CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+        credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(
+                params.getOrDefault("user", System.getenv("ES_USER")),
+                params.getOrDefault("password", System.getenv("ES_PASSWORD"))));
+
+        long start = System.currentTimeMillis();
+        Result result;
+        try(RestHighLevelClient esClient = new RestHighLevelClient(
+                    RestClient.builder(HttpHost.create(params.getOrDefault("es-host", "http://localhost:9200")))
+                            .setHttpClientConfigCallback(httpClientBuilder -> httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider)));
+            RegionRecordReader reader = RegionRecordReader.open(source, format, charset)) {
+
+            result = rebuild(esClient, index, reader, options);
+        }
+
+        log.info("region ingestion finished. read=" + result.getRead() + ", indexed=" + result.getIndexed()
+                    + ", failed=" + result.getFailed() + ", took=" + (System.currentTimeMillis() - start) + "ms");
+
+        if(result.getFailed() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+
+        Map<String, String> params = new HashMap<>();
+        for(String arg : args) {
+            if(!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("expected --name=value but got " + arg);
+            }
+            params.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return params;
+    }
+}
@@ -0,0 +1,86 @@
+package com.gamakdragons.wheretruck.domain.region.ingest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.region.entity.Region;
+
+public class RegionRecordMapper {
+
+    public static Region toRegion(Map<String, String> record) {
+
+        String roadAddress = trim(record.get("소재지도로명주소"));
+        String postAddress = trim(record.get("소재지지번주소"));
+
+        String[] addressTokens = new String[0];
+        if(roadAddress != null && !roadAddress.isEmpty()) {
+            addressTokens = roadAddress.split("\\s+");
+        } else if(postAddress != null && !postAddress.isEmpty()) {
+            addressTokens = postAddress.split("\\s+");
+        }
+
+        return Region.builder()
+                .regionName(trim(record.get("허가구역명")))
+                .regionType(parseInt(record.get("장소유형")))
+                .city(addressTokens.length > 0 ? addressTokens[0] : null)
+                .town(addressTokens.length > 1 ? addressTokens[1] : null)
+                .roadAddress(roadAddress)
+                .postAddress(postAddress)
+                .geoLocation(geoLocation(record.get("위도"), record.get("경도")))
+                .capacity(parseInt(record.get("푸드트럭운영대수")))
+                .cost(trim(record.get("허가구역사용료")))
+                .permissionStartDate(trim(record.get("허가구역운영시작일자")))
+                .permissionEndDate(trim(record.get("허가구역운영종료일자")))
+                .closedDays(trim(record.get("허가구역휴무일")))
+                .weekdayStartTime(trim(record.get("허가구역평일운영시작시각")))
+                .weekdayEndTime(trim(record.get("허가구역평일운영종료시각")))
+                .weekendStartTime(trim(record.get("허가구역주말운영시작시각")))
+                .weekendEndTime(trim(record.get("허가구역주말운영종료시각")))
+                .restrictedItems(trim(record.get("판매제한품목")))
+                .agencyName(trim(record.get("관리기관명")))
+                .agencyTel(trim(record.get("관리기관전화번호")))
+                .build();
+    }
+
+    /**
+     * Derived from the region's name, address and position so that re-running the ingestion overwrites
+     * the same documents instead of appending duplicates.
+     */
+    public static String idOf(Region region) {
+
+        String key = region.getRegionName() + "|" + region.getRoadAddress() + "|" + region.getPostAddress() + "|"
+                        + (region.getGeoLocation() == null ? "" : region.getGeoLocation().getLat() + "," + region.getGeoLocation().getLon());
+
+        return UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private static GeoLocation geoLocation(String lat, String lon) {
+        if(lat == null || lon == null) {
+            return null;
+        }
+
+        try {
+            return new GeoLocation(Float.parseFloat(lat.trim()), Float.parseFloat(lon.trim()));
+        } catch(NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int parseInt(String value) {
+        if(value == null) {
+            return -1;
+        }
+
+        try {
+            return (int) Float.parseFloat(value.trim());
+        } catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String trim(String value) {
+        return value == null ? null : value.trim();
+    }
+}
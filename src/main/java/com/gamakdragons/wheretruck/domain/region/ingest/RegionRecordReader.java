@@ -0,0 +1,189 @@
+package com.gamakdragons.wheretruck.domain.region.ingest;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+public abstract class RegionRecordReader implements Closeable {
+
+    public static RegionRecordReader open(String source, String format, Charset charset) throws IOException {
+
+        InputStream in = source.startsWith("http://") || source.startsWith("https://")
+                            ? new URL(source).openStream()
+                            : Files.newInputStream(Paths.get(source));
+        Reader reader = new BufferedReader(new InputStreamReader(in, charset));
+
+        if("csv".equalsIgnoreCase(format)) {
+            return new Csv(reader);
+        }
+        return new Json(reader);
+    }
+
+    public static String formatOf(String source) {
+        String path = source.contains("?") ? source.substring(0, source.indexOf('?')) : source;
+        return path.toLowerCase().endsWith(".csv") || source.contains("dataType=csv") ? "csv" : "json";
+    }
+
+    /**
+     * Returns the next record keyed by column name, or null when the source is exhausted.
+     */
+    public abstract Map<String, String> next() throws IOException;
+
+    static class Json extends RegionRecordReader {
+
+        private final JsonReader reader;
+        private boolean inRecords;
+
+        Json(Reader reader) {
+            this.reader = new JsonReader(reader);
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+
+            if(!inRecords) {
+                reader.beginObject();
+                while(reader.hasNext()) {
+                    if("records".equals(reader.nextName())) {
+                        reader.beginArray();
+                        inRecords = true;
+                        break;
+                    }
+                    reader.skipValue();
+                }
+                if(!inRecords) {
+                    return null;
+                }
+            }
+
+            if(!reader.hasNext()) {
+                return null;
+            }
+
+            Map<String, String> record = new HashMap<>();
+            reader.beginObject();
+            while(reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                if(token == JsonToken.NULL) {
+                    reader.nextNull();
+                    record.put(name, null);
+                } else if(token == JsonToken.STRING || token == JsonToken.NUMBER || token == JsonToken.BOOLEAN) {
+                    record.put(name, token == JsonToken.BOOLEAN ? String.valueOf(reader.nextBoolean()) : reader.nextString());
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    static class Csv extends RegionRecordReader {
+
+        private final Reader reader;
+        private List<String> header;
+
+        Csv(Reader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Map<String, String> next() throws IOException {
+
+            if(header == null) {
+                header = readRow();
+                if(header == null) {
+                    return null;
+                }
+                if(!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                    header.set(0, header.get(0).substring(1));
+                }
+                header.replaceAll(String::trim);
+            }
+
+            List<String> row;
+            do {
+                row = readRow();
+                if(row == null) {
+                    return null;
+                }
+            } while(row.size() == 1 && row.get(0).isEmpty());
+
+            Map<String, String> record = new HashMap<>();
+            for(int i = 0; i < header.size(); i++) {
+                record.put(header.get(i), i < row.size() ? row.get(i) : null);
+            }
+            return record;
+        }
+
+        private List<String> readRow() throws IOException {
+
+            List<String> row = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+
+            int c = reader.read();
+            if(c == -1) {
+                return null;
+            }
+
+            while(c != -1) {
+                if(quoted) {
+                    if(c == '"') {
+                        reader.mark(1);
+                        int following = reader.read();
+                        if(following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if(following != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if(c == '"') {
+                    quoted = true;
+                } else if(c == ',') {
+                    row.add(field.toString());
+                    field.setLength(0);
+                } else if(c == '\n') {
+                    break;
+                } else if(c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+
+            row.add(field.toString());
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
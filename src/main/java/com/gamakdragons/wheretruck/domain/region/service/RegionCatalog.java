@@ -0,0 +1,376 @@
+package com.gamakdragons.wheretruck.domain.region.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.common.SearchResultDto;
+import com.gamakdragons.wheretruck.domain.region.entity.Region;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+import com.gamakdragons.wheretruck.util.GeoGridIndex;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.core.CountRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class RegionCatalog {
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final RestHighLevelClient esClient;
+    private final String regionIndex;
+    private final String snapshotPath;
+    private final double cellSize;
+
+    private volatile Catalog current;
+
+    public RegionCatalog(RestHighLevelClient esClient,
+                            @Value("${elasticsearch.index.region.name}") String regionIndex,
+                            @Value("${region.catalog.snapshot-path:}") String snapshotPath,
+                            @Value("${region.catalog.cell-size:0.1}") double cellSize) {
+        this.esClient = esClient;
+        this.regionIndex = regionIndex;
+        this.snapshotPath = snapshotPath;
+        this.cellSize = cellSize;
+    }
+
+    public boolean isLoaded() {
+        return current != null;
+    }
+
+    public int size() {
+        Catalog catalog = current;
+        return catalog == null ? 0 : catalog.all.size();
+    }
+
+    public List<Region> all() {
+        Catalog catalog = current;
+        if(catalog == null) {
+            return Collections.emptyList();
+        }
+
+        List<Region> regions = new ArrayList<>(catalog.all.size());
+        catalog.all.forEach(entry -> regions.add(entry.region));
+        return regions;
+    }
+
+    public SearchResultDto<Region> findAll(int size, Object[] searchAfter) {
+        return page(current.all, size, searchAfter);
+    }
+
+    public SearchResultDto<Region> findByAddress(String city, String town, int size, Object[] searchAfter) {
+
+        Catalog catalog = current;
+        boolean hasCity = city != null && city.trim().length() > 0;
+        boolean hasTown = town != null && town.trim().length() > 0;
+
+        List<Entry> entries;
+        if(hasCity && hasTown) {
+            entries = catalog.byCityAndTown.getOrDefault(city, Collections.emptyMap()).getOrDefault(town, Collections.emptyList());
+        } else if(hasCity) {
+            entries = catalog.byCity.getOrDefault(city, Collections.emptyList());
+        } else if(hasTown) {
+            entries = new ArrayList<>();
+            for(Map<String, List<Entry>> towns : catalog.byCityAndTown.values()) {
+                entries.addAll(towns.getOrDefault(town, Collections.emptyList()));
+            }
+            entries.sort(Comparator.comparing(entry -> entry.id));
+        } else {
+            entries = catalog.all;
+        }
+
+        return page(entries, size, searchAfter);
+    }
+
+    public SearchResultDto<Region> findByLocation(GeoLocation geoLocation, float distance, int size, Object[] searchAfter) {
+
+        List<GeoGridIndex.Hit<Region>> hits = current.geoIndex.searchWithin(geoLocation, distance);
+
+        int from = 0;
+        if(searchAfter != null) {
+            if(searchAfter.length != 2 || !(searchAfter[0] instanceof Number) || !(searchAfter[1] instanceof String)) {
+                throw new IllegalArgumentException("invalid cursor for geo search");
+            }
+
+            double afterDistance = ((Number) searchAfter[0]).doubleValue();
+            String afterId = (String) searchAfter[1];
+            while(from < hits.size() && compare(hits.get(from), afterDistance, afterId) <= 0) {
+                from++;
+            }
+        }
+
+        int to = Math.min(hits.size(), from + size);
+        List<Region> docs = new ArrayList<>(to - from);
+        for(int i = from; i < to; i++) {
+            docs.add(hits.get(i).getValue());
+        }
+
+        String next = null;
+        if(docs.size() == size) {
+            GeoGridIndex.Hit<Region> last = hits.get(to - 1);
+            next = SearchAfterCursor.encode(new Object[]{toMeters(last.getDistance()), last.getId()});
+        }
+
+        return SearchResultDto.<Region> builder()
+                .status(RestStatus.OK.name())
+                .numFound(hits.size())
+                .docs(docs)
+                .next(next)
+                .build();
+    }
+
+    private static int compare(GeoGridIndex.Hit<Region> hit, double afterDistance, String afterId) {
+        int byDistance = Double.compare(toMeters(hit.getDistance()), afterDistance);
+        return byDistance != 0 ? byDistance : hit.getId().compareTo(afterId);
+    }
+
+    private static double toMeters(double distanceKm) {
+        return distanceKm * 1000.0;
+    }
+
+    private static SearchResultDto<Region> page(List<Entry> entries, int size, Object[] searchAfter) {
+
+        int from = 0;
+        if(searchAfter != null) {
+            if(searchAfter.length != 1 || !(searchAfter[0] instanceof String)) {
+                throw new IllegalArgumentException("invalid cursor for region search");
+            }
+
+            String afterId = (String) searchAfter[0];
+            int low = 0;
+            int high = entries.size();
+            while(low < high) {
+                int mid = (low + high) >>> 1;
+                if(entries.get(mid).id.compareTo(afterId) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            from = low;
+        }
+
+        int to = Math.min(entries.size(), from + size);
+        List<Region> docs = new ArrayList<>(to - from);
+        for(int i = from; i < to; i++) {
+            docs.add(entries.get(i).region);
+        }
+
+        String next = null;
+        if(docs.size() == size) {
+            next = SearchAfterCursor.encode(new Object[]{entries.get(to - 1).id});
+        }
+
+        return SearchResultDto.<Region> builder()
+                .status(RestStatus.OK.name())
+                .numFound(entries.size())
+                .docs(docs)
+                .next(next)
+                .build();
+    }
+
+    @PostConstruct
+    public synchronized void mapSnapshot() {
+
+        List<Entry> entries = loadFromSnapshot();
+        if(entries != null) {
+            current = new Catalog(entries, cellSize);
+        }
+    }
+
+    /**
+     * A catalog mapped from the snapshot is kept unless the index holds a different number of regions, so a
+     * restart does not pay for a full scan. Changes that keep the count are picked up by the scheduled reload.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+
+        Catalog catalog = current;
+        if(catalog != null) {
+            long count;
+            try {
+                count = esClient.count(new CountRequest(regionIndex), RequestOptions.DEFAULT).getCount();
+            } catch(IOException | ElasticsearchException e) {
+                log.error("failed to count regions. keeping the snapshot. " + e.getMessage());
+                return;
+            }
+
+            if(count == catalog.all.size()) {
+                log.info("region snapshot is up to date. size=" + count);
+                return;
+            }
+            log.info("region snapshot is stale. snapshot=" + catalog.all.size() + ", index=" + count);
+        }
+
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${region.catalog.reload-interval-ms:86400000}", initialDelayString = "${region.catalog.reload-interval-ms:86400000}")
+    public void load() {
+        reload();
+    }
+
+    public synchronized boolean reload() {
+
+        List<Entry> entries;
+        try {
+            entries = loadFromIndex();
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to load regions from index. " + e.getMessage());
+            if(current != null) {
+                return false;
+            }
+
+            entries = loadFromSnapshot();
+            if(entries == null) {
+                return false;
+            }
+        }
+
+        current = new Catalog(entries, cellSize);
+        log.info("region catalog loaded. size=" + entries.size());
+
+        saveSnapshot(entries);
+
+        return true;
+    }
+
+    private List<Entry> loadFromIndex() throws IOException {
+
+        SearchRequest request = EsRequestFactory.paginate(EsRequestFactory.createSearchAllRequest(regionIndex), LOAD_PAGE_SIZE, null, "id");
+
+        List<Entry> entries = new ArrayList<>();
+        while(true) {
+            SearchResponse response = esClient.search(request, RequestOptions.DEFAULT);
+            SearchHit[] hits = response.getHits().getHits();
+            for(SearchHit hit : hits) {
+                Region region = EsDocumentCodec.read(hit.getSourceRef(), Region.class);
+                if(region.getId() == null) {
+                    region.setId(hit.getId());
+                }
+                entries.add(new Entry(region.getId(), region));
+            }
+
+            if(hits.length < LOAD_PAGE_SIZE) {
+                break;
+            }
+            request.source().searchAfter(hits[hits.length - 1].getSortValues());
+        }
+
+        return entries;
+    }
+
+    private List<Entry> loadFromSnapshot() {
+
+        if(snapshotPath.isEmpty() || !Files.exists(Paths.get(snapshotPath))) {
+            return null;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        try {
+            RegionSnapshotCodec.read(Paths.get(snapshotPath)).forEach((id, region) -> entries.add(new Entry(id, region)));
+        } catch(IOException | RuntimeException e) {
+            log.error("failed to load region snapshot. path=" + snapshotPath + ", " + e.getMessage());
+            return null;
+        }
+
+        log.info("regions loaded from snapshot. path=" + snapshotPath);
+        return entries;
+    }
+
+    private void saveSnapshot(List<Entry> entries) {
+
+        if(snapshotPath.isEmpty()) {
+            return;
+        }
+
+        Map<String, Region> regions = new LinkedHashMap<>();
+        entries.forEach(entry -> regions.put(entry.id, entry.region));
+        try {
+            RegionSnapshotCodec.write(Paths.get(snapshotPath), regions);
+        } catch(IOException | RuntimeException e) {
+            log.error("failed to save region snapshot. path=" + snapshotPath + ", " + e.getMessage());
+        }
+    }
+
+    private static class Catalog {
+
+        private final List<Entry> all;
+        private final Map<String, List<Entry>> byCity;
+        private final Map<String, Map<String, List<Entry>>> byCityAndTown;
+        private final GeoGridIndex<Region> geoIndex;
+
+        Catalog(List<Entry> entries, double cellSize) {
+
+            List<Entry> sorted = new ArrayList<>(entries);
+            sorted.sort(Comparator.comparing(entry -> entry.id));
+
+            Map<String, List<Entry>> byCity = new HashMap<>();
+            Map<String, Map<String, List<Entry>>> byCityAndTown = new HashMap<>();
+            GeoGridIndex<Region> geoIndex = new GeoGridIndex<>(cellSize);
+
+            for(Entry entry : sorted) {
+                Region region = entry.region;
+                if(region.getCity() != null) {
+                    byCity.computeIfAbsent(region.getCity(), city -> new ArrayList<>()).add(entry);
+                    if(region.getTown() != null) {
+                        byCityAndTown.computeIfAbsent(region.getCity(), city -> new HashMap<>())
+                                    .computeIfAbsent(region.getTown(), town -> new ArrayList<>())
+                                    .add(entry);
+                    }
+                }
+                if(region.getGeoLocation() != null) {
+                    geoIndex.put(entry.id, region.getGeoLocation(), region);
+                }
+            }
+
+            byCityAndTown.replaceAll((city, towns) -> {
+                towns.replaceAll((town, list) -> Collections.unmodifiableList(list));
+                return Collections.unmodifiableMap(towns);
+            });
+            byCity.replaceAll((city, list) -> Collections.unmodifiableList(list));
+
+            this.all = Collections.unmodifiableList(sorted);
+            this.byCity = Collections.unmodifiableMap(byCity);
+            this.byCityAndTown = Collections.unmodifiableMap(byCityAndTown);
+            this.geoIndex = geoIndex;
+        }
+    }
+
+    private static class Entry {
+
+        private final String id;
+        private final Region region;
+
+        Entry(String id, Region region) {
+            this.id = id;
+            this.region = region;
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.gamakdragons.wheretruck.domain.region.service;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.domain.region.entity.Region;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
 
 public interface RegionService {
     
-    SearchResultDto<Region> findAll();
-    SearchResultDto<Region> findByLocation(GeoLocation geoLocation, float distance);
-    SearchResultDto<Region> findByAddress(String city, String town);
+    CompletableFuture<SearchResultDto<Region>> findAllAsync(int size, String cursor);
+    CompletableFuture<SearchResultDto<Region>> findByLocationAsync(GeoLocation geoLocation, float distance, int size, String cursor);
+    CompletableFuture<SearchResultDto<Region>> findByAddressAsync(String city, String town, int size, String cursor);
+
+    SearchResponseStreamer streamAll();
 }
@@ -1,21 +1,25 @@
 package com.gamakdragons.wheretruck.domain.region.service;
 
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.domain.region.entity.Region;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.gamakdragons.wheretruck.util.EsFutures;
 import com.gamakdragons.wheretruck.util.EsRequestFactory;
-import com.google.gson.Gson;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
 
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -31,72 +35,105 @@ public class RegionServiceImpl implements RegionService {
     private String FOOD_TRUCK_REGION_INDEX_NAME;
 
     private final RestHighLevelClient esClient;
+    private final EsFutures esFutures;
+    private final RegionCatalog regionCatalog;
 
     @Override
-    public SearchResultDto<Region> findAll() {
-
-        SearchRequest request = EsRequestFactory.createSearchAllRequest(FOOD_TRUCK_REGION_INDEX_NAME); 
+    public CompletableFuture<SearchResultDto<Region>> findAllAsync(int size, String cursor) {
+        if(regionCatalog.isLoaded()) {
+            return fromCatalog(cursor, searchAfter -> regionCatalog.findAll(size, searchAfter));
+        }
+        return search(EsRequestFactory.createSearchAllRequest(FOOD_TRUCK_REGION_INDEX_NAME), size, cursor);
+    }
 
-        SearchResponse response;
-        try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return makeErrorSearhResultDtoFromSearchResponse();
+    @Override
+    public CompletableFuture<SearchResultDto<Region>> findByAddressAsync(String city, String town, int size, String cursor) {
+        if(regionCatalog.isLoaded()) {
+            return fromCatalog(cursor, searchAfter -> regionCatalog.findByAddress(city, town, size, searchAfter));
         }
+        return search(EsRequestFactory.createAddressSearchRequest(FOOD_TRUCK_REGION_INDEX_NAME ,city, town), size, cursor);
+    }
 
-        return makeSearhResultDtoFromSearchResponse(response);
+    @Override
+    public CompletableFuture<SearchResultDto<Region>> findByLocationAsync(GeoLocation geoLocation, float distance, int size, String cursor) {
+        if(regionCatalog.isLoaded()) {
+            return fromCatalog(cursor, searchAfter -> regionCatalog.findByLocation(geoLocation, distance, size, searchAfter));
+        }
+        return search(EsRequestFactory.createGeoSearchRequest(FOOD_TRUCK_REGION_INDEX_NAME, geoLocation, distance), size, cursor);
     }
 
     @Override
-    public SearchResultDto<Region> findByAddress(String city, String town) {
+    public SearchResponseStreamer streamAll() {
+        if(regionCatalog.isLoaded()) {
+            return SearchResponseStreamer.of(regionCatalog.all());
+        }
+        return SearchResponseStreamer.search(esClient, EsRequestFactory.createSearchAllRequest(FOOD_TRUCK_REGION_INDEX_NAME), "id");
+    }
+
+    private CompletableFuture<SearchResultDto<Region>> fromCatalog(String cursor, Function<Object[], SearchResultDto<Region>> query) {
 
-        SearchRequest request = EsRequestFactory.createAddressSearchRequest(FOOD_TRUCK_REGION_INDEX_NAME ,city, town);
-        SearchResponse response;
         try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return makeErrorSearhResultDtoFromSearchResponse();
+            return CompletableFuture.completedFuture(query.apply(SearchAfterCursor.decode(cursor)));
+        } catch(IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return CompletableFuture.completedFuture(makeErrorSearhResultDtoFromSearchResponse(RestStatus.BAD_REQUEST));
         }
-
-        return makeSearhResultDtoFromSearchResponse(response);
     }
 
-    @Override
-    public SearchResultDto<Region> findByLocation(GeoLocation geoLocation, float distance) {
+    private CompletableFuture<SearchResultDto<Region>> search(SearchRequest request, int size, String cursor) {
+
+        // the query's own sorts (distance for geo searches) plus the id tiebreaker added by paginate
+        int sortValueCount = (request.source().sorts() == null ? 0 : request.source().sorts().size()) + 1;
 
-        SearchRequest request = EsRequestFactory.createGeoSearchRequest(FOOD_TRUCK_REGION_INDEX_NAME, geoLocation, distance);
-        SearchResponse response;
+        Object[] searchAfter;
         try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return makeErrorSearhResultDtoFromSearchResponse();
+            searchAfter = SearchAfterCursor.decode(cursor, sortValueCount);
+        } catch(IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return CompletableFuture.completedFuture(makeErrorSearhResultDtoFromSearchResponse(RestStatus.BAD_REQUEST));
         }
 
-
-        return makeSearhResultDtoFromSearchResponse(response);
+        EsRequestFactory.paginate(request, size, searchAfter, "id");
+
+        return esFutures.search(request)
+                .thenApply(response -> {
+                    log.info("total hits: " + response.getHits().getTotalHits());
+                    return makeSearhResultDtoFromSearchResponse(response, size);
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorSearhResultDtoFromSearchResponse();
+                });
     }
 
-    private SearchResultDto<Region> makeSearhResultDtoFromSearchResponse(SearchResponse response) {
+    private SearchResultDto<Region> makeSearhResultDtoFromSearchResponse(SearchResponse response, int size) {
+        SearchHit[] hits = response.getHits().getHits();
+
+        String next = null;
+        if(hits.length == size) {
+            next = SearchAfterCursor.encode(hits[hits.length - 1].getSortValues());
+        }
+
         return SearchResultDto.<Region> builder()
                 .status(response.status().name())
                 .numFound((int) response.getHits().getTotalHits().value)
                 .docs(
-                    Arrays.stream(response.getHits().getHits())
-                            .map(hit -> new Gson().fromJson(hit.getSourceAsString(), Region.class))
+                    Arrays.stream(hits)
+                            .map(hit -> EsDocumentCodec.read(hit.getSourceRef(), Region.class))
                             .collect(Collectors.toList())
-                ).build();
+                )
+                .next(next)
+                .build();
 
     }
 
     private SearchResultDto<Region> makeErrorSearhResultDtoFromSearchResponse() {
+        return makeErrorSearhResultDtoFromSearchResponse(RestStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private SearchResultDto<Region> makeErrorSearhResultDtoFromSearchResponse(RestStatus status) {
         return SearchResultDto.<Region> builder()
-                .status(RestStatus.INTERNAL_SERVER_ERROR.name())
+                .status(status.name())
                 .numFound(0)
                 .docs(Collections.emptyList())
                 .build();
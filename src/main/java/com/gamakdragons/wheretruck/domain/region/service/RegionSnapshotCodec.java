@@ -0,0 +1,214 @@
+package com.gamakdragons.wheretruck.domain.region.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.region.entity.Region;
+
+/**
+ * Columnar binary snapshot of the region catalog.
+ *
+ * <pre>
+ * int    magic "WTRS"
+ * int    version
+ * int    count
+ * int    dictionary size, then (int length, utf-8 bytes) per string
+ * int[]  id (dictionary index)
+ * float[] lat, float[] lon (NaN when a region has no geoLocation)
+ * int[]  regionType, int[] capacity
+ * int[]  one dictionary index column per string field, -1 for null
+ * long   crc32 of everything before it
+ * </pre>
+ */
+class RegionSnapshotCodec {
+
+    static final int MAGIC = 0x57545253;
+    static final int VERSION = 1;
+
+    private static final List<StringColumn> STRING_COLUMNS = Arrays.asList(
+        new StringColumn(Region::getRegionName, Region::setRegionName),
+        new StringColumn(Region::getCity, Region::setCity),
+        new StringColumn(Region::getTown, Region::setTown),
+        new StringColumn(Region::getRoadAddress, Region::setRoadAddress),
+        new StringColumn(Region::getPostAddress, Region::setPostAddress),
+        new StringColumn(Region::getCost, Region::setCost),
+        new StringColumn(Region::getPermissionStartDate, Region::setPermissionStartDate),
+        new StringColumn(Region::getPermissionEndDate, Region::setPermissionEndDate),
+        new StringColumn(Region::getClosedDays, Region::setClosedDays),
+        new StringColumn(Region::getWeekdayStartTime, Region::setWeekdayStartTime),
+        new StringColumn(Region::getWeekdayEndTime, Region::setWeekdayEndTime),
+        new StringColumn(Region::getWeekendStartTime, Region::setWeekendStartTime),
+        new StringColumn(Region::getWeekendEndTime, Region::setWeekendEndTime),
+        new StringColumn(Region::getRestrictedItems, Region::setRestrictedItems),
+        new StringColumn(Region::getAgencyName, Region::setAgencyName),
+        new StringColumn(Region::getAgencyTel, Region::setAgencyTel)
+    );
+
+    static void write(Path path, Map<String, Region> regions) throws IOException {
+
+        List<String> ids = new ArrayList<>(regions.keySet());
+        List<Region> values = new ArrayList<>(regions.values());
+        int count = ids.size();
+
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] idColumn = encode(ids, dictionary);
+        List<int[]> stringColumns = new ArrayList<>(STRING_COLUMNS.size());
+        for(StringColumn column : STRING_COLUMNS) {
+            List<String> strings = new ArrayList<>(count);
+            values.forEach(region -> strings.add(column.getter.apply(region)));
+            stringColumns.add(encode(strings, dictionary));
+        }
+
+        List<byte[]> dictionaryBytes = new ArrayList<>(dictionary.size());
+        int dictionaryLength = 0;
+        for(String value : dictionary.keySet()) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            dictionaryBytes.add(bytes);
+            dictionaryLength += Integer.BYTES + bytes.length;
+        }
+
+        int columnCount = 1 + 2 + 2 + STRING_COLUMNS.size();
+        int length = Integer.BYTES * 4 + dictionaryLength + columnCount * count * Integer.BYTES + Long.BYTES;
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(dictionaryBytes.size());
+        dictionaryBytes.forEach(bytes -> buffer.putInt(bytes.length).put(bytes));
+
+        buffer.asIntBuffer().put(idColumn);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+
+        for(Region region : values) {
+            buffer.putFloat(region.getGeoLocation() == null ? Float.NaN : region.getGeoLocation().getLat());
+        }
+        for(Region region : values) {
+            buffer.putFloat(region.getGeoLocation() == null ? Float.NaN : region.getGeoLocation().getLon());
+        }
+        values.forEach(region -> buffer.putInt(region.getRegionType()));
+        values.forEach(region -> buffer.putInt(region.getCapacity()));
+
+        for(int[] column : stringColumns) {
+            buffer.asIntBuffer().put(column);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path temp = Paths.get(path.toString() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Map<String, Region> read(Path path) throws IOException {
+
+        MappedByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if(buffer.limit() < Integer.BYTES * 4 + Long.BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("not a region snapshot. path=" + path);
+        }
+
+        int version = buffer.getInt();
+        if(version != VERSION) {
+            throw new IOException("unsupported region snapshot version. version=" + version);
+        }
+
+        int crcOffset = buffer.limit() - Long.BYTES;
+        CRC32 crc = new CRC32();
+        ByteBuffer content = buffer.duplicate();
+        content.position(0).limit(crcOffset);
+        crc.update(content);
+        if(crc.getValue() != buffer.getLong(crcOffset)) {
+            throw new IOException("region snapshot checksum mismatch. path=" + path);
+        }
+
+        int count = buffer.getInt();
+        String[] dictionary = new String[buffer.getInt()];
+        for(int i = 0; i < dictionary.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        int idOffset = buffer.position();
+        int latOffset = idOffset + count * Integer.BYTES;
+        int lonOffset = latOffset + count * Float.BYTES;
+        int regionTypeOffset = lonOffset + count * Float.BYTES;
+        int capacityOffset = regionTypeOffset + count * Integer.BYTES;
+        int stringsOffset = capacityOffset + count * Integer.BYTES;
+        if(stringsOffset + STRING_COLUMNS.size() * count * Integer.BYTES != crcOffset) {
+            throw new IOException("region snapshot is truncated. path=" + path);
+        }
+
+        Map<String, Region> regions = new LinkedHashMap<>(count * 2);
+        for(int i = 0; i < count; i++) {
+            Region region = Region.builder()
+                                .regionType(buffer.getInt(regionTypeOffset + i * Integer.BYTES))
+                                .capacity(buffer.getInt(capacityOffset + i * Integer.BYTES))
+                                .build();
+
+            float lat = buffer.getFloat(latOffset + i * Float.BYTES);
+            float lon = buffer.getFloat(lonOffset + i * Float.BYTES);
+            if(!Float.isNaN(lat) && !Float.isNaN(lon)) {
+                region.setGeoLocation(new GeoLocation(lat, lon));
+            }
+
+            for(int c = 0; c < STRING_COLUMNS.size(); c++) {
+                int index = buffer.getInt(stringsOffset + (c * count + i) * Integer.BYTES);
+                STRING_COLUMNS.get(c).setter.accept(region, index < 0 ? null : dictionary[index]);
+            }
+
+            region.setId(dictionary[buffer.getInt(idOffset + i * Integer.BYTES)]);
+            regions.put(region.getId(), region);
+        }
+
+        return regions;
+    }
+
+    private static int[] encode(List<String> values, Map<String, Integer> dictionary) {
+
+        int[] column = new int[values.size()];
+        for(int i = 0; i < column.length; i++) {
+            String value = values.get(i);
+            column[i] = value == null ? -1 : dictionary.computeIfAbsent(value, key -> dictionary.size());
+        }
+        return column;
+    }
+
+    private static class StringColumn {
+
+        private final Function<Region, String> getter;
+        private final BiConsumer<Region, String> setter;
+
+        StringColumn(Function<Region, String> getter, BiConsumer<Region, String> setter) {
+            this.getter = getter;
+            this.setter = setter;
+        }
+    }
+}
@@ -1,26 +1,41 @@
 package com.gamakdragons.wheretruck.domain.truck.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.servlet.http.HttpServletRequest;
 
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.truck.dto.TrackPoint;
 import com.gamakdragons.wheretruck.domain.truck.dto.TruckSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckEventHub;
 import com.gamakdragons.wheretruck.domain.truck.service.TruckService;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -32,13 +47,45 @@ public class TruckController {
     @Autowired
     private TruckService truckService;
 
+    @Value("${truck.page-size:10000}")
+    private int PAGE_SIZE;
+
+    @Value("${rating.page-size:20}")
+    private int RATINGS_PAGE_SIZE;
+
+    @Value("${truck.location.history.default-range-ms:86400000}")
+    private long TRACK_DEFAULT_RANGE_MS;
+
+    @Value("${truck.location.history.default-resolution:1m}")
+    private String TRACK_DEFAULT_RESOLUTION;
+
     @GetMapping("/{id}")
-    public ResponseEntity<Truck> getById(@PathVariable String id) {
+    public CompletableFuture<ResponseEntity<Truck>> getById(@PathVariable String id) {
         log.info("/truck/" + id);
 
-        Truck truck = truckService.getById(id);
+        return truckService.getByIdAsync(id)
+                .thenApply(truck -> new ResponseEntity<>(truck, HttpStatus.OK));
+    }
+
+    @GetMapping("/{id}/ratings")
+    public CompletableFuture<ResponseEntity<SearchResultDto<Rating>>> findRatings(@PathVariable String id, @Nullable Integer size, @Nullable String cursor) {
+        log.info("/truck/" + id + "/ratings. size=" + size + ", cursor=" + cursor);
+
+        return truckService.findRatingsAsync(id, SearchAfterCursor.pageSize(size, RATINGS_PAGE_SIZE), cursor)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
+    }
+
+    @GetMapping("/{id}/track")
+    public CompletableFuture<ResponseEntity<SearchResultDto<TrackPoint>>> findTrack(@PathVariable String id, @Nullable Long from, @Nullable Long to, @Nullable String resolution,
+                                                                                    HttpServletRequest httpServletRequest) {
+        String userId = httpServletRequest.getAttribute("userId").toString();
+        log.info("/truck/" + id + "/track. userId=" + userId + ", from=" + from + ", to=" + to + ", resolution=" + resolution);
+
+        long end = to == null ? System.currentTimeMillis() : to;
+        long start = from == null ? end - TRACK_DEFAULT_RANGE_MS : from;
 
-        return new ResponseEntity<>(truck, HttpStatus.OK);
+        return truckService.findTrackAsync(id, userId, start, end, resolution == null ? TRACK_DEFAULT_RESOLUTION : resolution)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
     }
 
     /*@GetMapping("/favorite/{ids}")
@@ -49,26 +96,67 @@ public class TruckController {
     }*/
 
     @GetMapping("/all" )
-    public ResponseEntity<SearchResultDto<Truck>> getAllTrucks() {
-        log.info("/truck/all");
+    public CompletableFuture<ResponseEntity<SearchResultDto<Truck>>> getAllTrucks(@Nullable Integer size, @Nullable String cursor) {
+        log.info("/truck/all. size=" + size + ", cursor=" + cursor);
 
-        return new ResponseEntity<>(truckService.findAll(), HttpStatus.OK);
+        return truckService.findAllAsync(SearchAfterCursor.pageSize(size, PAGE_SIZE), cursor)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
+    }
+
+    @GetMapping(value = "/all", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllTrucks() {
+        log.info("/truck/all. stream=true");
+
+        SearchResponseStreamer body = truckService.streamAll();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return new ResponseEntity<>(body, headers, HttpStatus.valueOf(body.getStatus().getStatus()));
     }
 
     @GetMapping("/geo")
-    public ResponseEntity<SearchResultDto<Truck>> getByGeoLocation(GeoLocation geoLocation, float distance) {
-        log.info("/truck/geo. geoLocation=" + geoLocation + ", distance=" + distance);
+    public ResponseEntity<SearchResultDto<Truck>> getByGeoLocation(GeoLocation geoLocation, float distance, @Nullable Integer size, @Nullable String cursor) {
+        log.info("/truck/geo. geoLocation=" + geoLocation + ", distance=" + distance + ", size=" + size + ", cursor=" + cursor);
+
+        return new ResponseEntity<>(truckService.findByGeoLocation(geoLocation, distance, SearchAfterCursor.pageSize(size, PAGE_SIZE), cursor), HttpStatus.OK);
+    }
 
-        return new ResponseEntity<>(truckService.findByGeoLocation(geoLocation, distance), HttpStatus.OK);
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribeEvents(@Nullable Float lat, @Nullable Float lon, @Nullable Float distance,
+                                                        @Nullable Float minLat, @Nullable Float minLon, @Nullable Float maxLat, @Nullable Float maxLon) {
+        log.info("/truck/events. lat=" + lat + ", lon=" + lon + ", distance=" + distance
+                    + ", box=[" + minLat + ", " + minLon + ", " + maxLat + ", " + maxLon + "]");
+
+        TruckEventHub.Area area;
+        if(minLat != null && minLon != null && maxLat != null && maxLon != null) {
+            area = TruckEventHub.Area.box(minLat, minLon, maxLat, maxLon);
+        } else if(lat != null && lon != null && distance != null) {
+            area = TruckEventHub.Area.circle(new GeoLocation(lat, lon), distance);
+        } else {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        SseEmitter emitter = truckService.subscribeEvents(area);
+        if(emitter == null) {
+            return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("no-cache");
+        headers.set("X-Accel-Buffering", "no");
+
+        return new ResponseEntity<>(emitter, headers, HttpStatus.OK);
     }
 
     @GetMapping("/my")
-    public ResponseEntity<SearchResultDto<Truck>> my(HttpServletRequest request) {
+    public CompletableFuture<ResponseEntity<SearchResultDto<Truck>>> my(HttpServletRequest request) {
         String userId = request.getAttribute("userId").toString();
 
         log.info("/truck/user. userId=" + userId);
 
-        return new ResponseEntity<>(truckService.findByUserId(userId), HttpStatus.OK);
+        return truckService.findByUserIdAsync(userId)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
     }
 
     @RequestMapping(method = {RequestMethod.POST, RequestMethod.PUT})
@@ -84,7 +172,7 @@ public class TruckController {
             result = truckService.updateTruck(truckSaveRequestDto);
         }
 
-        return new ResponseEntity<>(result, HttpStatus.OK);
+        return new ResponseEntity<>(result, imageStatus(result));
     }
 
     @DeleteMapping("/{id}")
@@ -94,17 +182,49 @@ public class TruckController {
         return new ResponseEntity<>(truckService.deleteTruck(id), HttpStatus.OK);
     }
 
+    @PostMapping("/{id}/image/upload-url")
+    public ResponseEntity<PresignedUpload> createImageUpload(@PathVariable String id, @Nullable String contentType) {
+        log.info("/truck/" + id + "/image/upload-url. contentType=" + contentType);
+
+        return new ResponseEntity<>(truckService.createImageUpload(id, contentType), HttpStatus.OK);
+    }
+
+    @PutMapping("/{id}/image")
+    public ResponseEntity<IndexUpdateResultDto> completeImageUpload(@PathVariable String id, @Nullable String key) {
+        log.info("/truck/" + id + "/image. key=" + key);
+
+        IndexUpdateResultDto result = truckService.completeImageUpload(id, key);
+        return new ResponseEntity<>(result, imageStatus(result));
+    }
+
+    private static HttpStatus imageStatus(IndexUpdateResultDto result) {
+        return HttpStatus.SERVICE_UNAVAILABLE.name().equals(result.getResult()) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.OK;
+    }
+
     @PutMapping("/start/{truckId}")
-    public ResponseEntity<IndexUpdateResultDto> startTruck(@PathVariable String truckId, @RequestBody GeoLocation geoLocation) {
+    public CompletableFuture<ResponseEntity<IndexUpdateResultDto>> startTruck(@PathVariable String truckId, @RequestBody GeoLocation geoLocation) {
         log.info("/truck/start. id=" + truckId + ", geoLocation=" + geoLocation);
 
-        return new ResponseEntity<>(truckService.openTruck(truckId, geoLocation), HttpStatus.OK);
+        return truckService.openTruckAsync(truckId, geoLocation)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
+    }
+
+    @PutMapping("/location/{truckId}")
+    public ResponseEntity<Void> reportLocation(@PathVariable String truckId, @RequestBody GeoLocation geoLocation, HttpServletRequest httpServletRequest) {
+        String userId = httpServletRequest.getAttribute("userId").toString();
+        log.debug("/truck/location. id=" + truckId + ", userId=" + userId + ", geoLocation=" + geoLocation);
+
+        if(!truckService.reportLocation(truckId, userId, geoLocation)) {
+            return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+        }
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
     }
 
     @PutMapping("/stop/{truckId}")
-    public ResponseEntity<IndexUpdateResultDto> stopTruck(@PathVariable String truckId) {
+    public CompletableFuture<ResponseEntity<IndexUpdateResultDto>> stopTruck(@PathVariable String truckId) {
         log.info("/truck/stop. id=" + truckId);
 
-        return new ResponseEntity<>(truckService.stopTruck(truckId), HttpStatus.OK);
+        return truckService.stopTruckAsync(truckId)
+                .thenApply(result -> new ResponseEntity<>(result, HttpStatus.OK));
     }
 }
@@ -0,0 +1,17 @@
+package com.gamakdragons.wheretruck.domain.truck.dto;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@Builder
+@ToString
+public class TrackPoint {
+
+    private long timestamp;
+    private GeoLocation geoLocation;
+    private long count;
+}
@@ -0,0 +1,29 @@
+package com.gamakdragons.wheretruck.domain.truck.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.gamakdragons.wheretruck.common.GeoLocation;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class TruckEvent {
+
+    public enum Type {
+        OPEN, MOVE, STOP, LEAVE
+    }
+
+    private Type type;
+    private String truckId;
+
+    @JsonInclude(Include.NON_NULL)
+    private GeoLocation geoLocation;
+}
@@ -38,8 +38,10 @@ public class TruckSaveRequestDto {
 			0,
 			0.0f,
 			null,
+			null,
 			Collections.emptyList(),
-			Collections.emptyList()
+			null,
+			null
 		);
 	}
 
@@ -56,6 +58,8 @@ public class TruckSaveRequestDto {
 			0.0f,
 			null,
 			null,
+			null,
+			null,
 			null
 		);
 	}
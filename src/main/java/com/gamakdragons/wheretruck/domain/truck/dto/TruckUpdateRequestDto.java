@@ -36,6 +36,8 @@ public class TruckUpdateRequestDto {
 			0.0f,
 			null,
 			null,
+			null,
+			null,
 			null
 		);
 	}
@@ -1,6 +1,7 @@
 package com.gamakdragons.wheretruck.domain.truck.entity;
 
 import java.util.List;
+import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
@@ -33,10 +34,16 @@ public class Truck {
     private float starAvg;
     private String imageUrl;
 
+    @JsonInclude(Include.NON_NULL)
+    private Map<String, String> imageVariants;
+
     @JsonInclude(Include.NON_NULL)
     private List<Food> foods;
 
     @JsonInclude(Include.NON_NULL)
     private List<Rating> ratings;
 
+    @JsonInclude(Include.NON_NULL)
+    private String ratingsNext;
+
 }
@@ -0,0 +1,21 @@
+package com.gamakdragons.wheretruck.domain.truck.entity;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+@EqualsAndHashCode
+public class TruckLocation {
+
+    private String truckId;
+    private GeoLocation geoLocation;
+    private long timestamp;
+}
@@ -0,0 +1,223 @@
+package com.gamakdragons.wheretruck.domain.truck.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+import com.gamakdragons.wheretruck.util.GeoGridIndex;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class OpenTruckIndex {
+
+    public static final String[] SUMMARY_EXCLUDES = new String[]{"foods", "ratings"};
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final RestHighLevelClient esClient;
+    private final String truckIndex;
+    private final double cellSize;
+    private final long missTtlMs;
+
+    private volatile GeoGridIndex<Truck> current;
+    private GeoGridIndex<Truck> rebuilding;
+    private Set<String> touchedWhileRebuilding;
+
+    /**
+     * Ids recently looked up in ES and found not open, so that pings from a stopped truck do not each cost a get.
+     */
+    private final Map<String, Long> misses;
+
+    public OpenTruckIndex(RestHighLevelClient esClient,
+                            @Value("${elasticsearch.index.truck.name}") String truckIndex,
+                            @Value("${truck.open-index.cell-size:0.1}") double cellSize,
+                            @Value("${truck.open-index.miss-ttl-ms:5000}") long missTtlMs,
+                            @Value("${truck.open-index.max-misses:10000}") int maxMisses) {
+        this.esClient = esClient;
+        this.truckIndex = truckIndex;
+        this.cellSize = cellSize;
+        this.missTtlMs = missTtlMs;
+        this.current = new GeoGridIndex<>(cellSize);
+        this.misses = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxMisses;
+            }
+        };
+    }
+
+    public List<Truck> findWithin(GeoLocation geoLocation, float distance) {
+        return current.findWithin(geoLocation, distance);
+    }
+
+    public List<GeoGridIndex.Hit<Truck>> searchWithin(GeoLocation geoLocation, float distance) {
+        return current.searchWithin(geoLocation, distance);
+    }
+
+    public Truck get(String id) {
+        return current.get(id);
+    }
+
+    /**
+     * Like get, but a truck opened through another instance is not in this index until the next rebuild, so a
+     * miss is checked against ES and an open truck is added here.
+     */
+    public Truck lookup(String id) {
+
+        Truck truck = current.get(id);
+        if(truck != null) {
+            return truck;
+        }
+
+        synchronized(this) {
+            Long missedAt = misses.get(id);
+            if(missedAt != null && System.currentTimeMillis() - missedAt < missTtlMs) {
+                return null;
+            }
+        }
+
+        GetRequest request = EsRequestFactory.createGetRequest(truckIndex, id);
+        request.fetchSourceContext(new FetchSourceContext(true, null, SUMMARY_EXCLUDES));
+        GetResponse response;
+        try {
+            response = esClient.get(request, RequestOptions.DEFAULT);
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to look up truck. id=" + id + ", " + e.getMessage());
+            return null;
+        }
+
+        synchronized(this) {
+            truck = response.isExists() ? EsDocumentCodec.read(response.getSourceAsBytesRef(), Truck.class) : null;
+            if(truck == null || !truck.isOpened() || truck.getGeoLocation() == null) {
+                misses.put(id, System.currentTimeMillis());
+                return null;
+            }
+
+            // an update that arrived while the get was in flight wins
+            Truck indexed = current.get(id);
+            if(indexed != null) {
+                return indexed;
+            }
+            put(truck);
+            return truck;
+        }
+    }
+
+    public synchronized void refresh(Truck truck) {
+        if(truck.isOpened() && truck.getGeoLocation() != null) {
+            put(truck);
+        } else {
+            remove(truck.getId());
+        }
+    }
+
+    /**
+     * Replaces the truck with a moved copy. The indexed instance may already be held by search callers and the
+     * event dispatcher, which read it without locking, so it is never changed in place.
+     */
+    public synchronized boolean move(String id, GeoLocation geoLocation) {
+        Truck truck = current.get(id);
+        if(truck == null) {
+            return false;
+        }
+
+        put(new Truck(truck.getId(), truck.getName(), new GeoLocation(geoLocation.getLat(), geoLocation.getLon()), truck.getDescription(),
+                        truck.isOpened(), truck.getUserId(), truck.getNumRating(), truck.getStarAvg(), truck.getImageUrl(),
+                        truck.getImageVariants(), truck.getFoods(), truck.getRatings(), truck.getRatingsNext()));
+        return true;
+    }
+
+    public synchronized void remove(String id) {
+        current.remove(id);
+        if(rebuilding != null) {
+            rebuilding.remove(id);
+            touchedWhileRebuilding.add(id);
+        }
+    }
+
+    private void put(Truck truck) {
+        misses.remove(truck.getId());
+        current.put(truck.getId(), truck.getGeoLocation(), truck);
+        if(rebuilding != null) {
+            rebuilding.put(truck.getId(), truck.getGeoLocation(), truck);
+            touchedWhileRebuilding.add(truck.getId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${truck.open-index.rebuild-interval-ms:60000}", initialDelayString = "${truck.open-index.rebuild-interval-ms:60000}")
+    public void rebuild() {
+
+        synchronized(this) {
+            if(rebuilding != null) {
+                return;
+            }
+            rebuilding = new GeoGridIndex<>(cellSize);
+            touchedWhileRebuilding = new HashSet<>();
+        }
+
+        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(truckIndex, "opened", true, new String[]{}, SUMMARY_EXCLUDES);
+        EsRequestFactory.paginate(request, REBUILD_PAGE_SIZE, null, "id");
+
+        List<Truck> trucks = new ArrayList<>();
+        try {
+            while(true) {
+                SearchHit[] hits = esClient.search(request, RequestOptions.DEFAULT).getHits().getHits();
+                for(SearchHit hit : hits) {
+                    trucks.add(EsDocumentCodec.read(hit.getSourceRef(), Truck.class));
+                }
+
+                if(hits.length < REBUILD_PAGE_SIZE) {
+                    break;
+                }
+                request.source().searchAfter(hits[hits.length - 1].getSortValues());
+            }
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to rebuild open truck index. " + e.getMessage());
+            synchronized(this) {
+                rebuilding = null;
+                touchedWhileRebuilding = null;
+            }
+            return;
+        }
+
+        synchronized(this) {
+            for(Truck truck : trucks) {
+                if(!touchedWhileRebuilding.contains(truck.getId()) && truck.getGeoLocation() != null) {
+                    rebuilding.put(truck.getId(), truck.getGeoLocation(), truck);
+                }
+            }
+
+            current = rebuilding;
+            rebuilding = null;
+            touchedWhileRebuilding = null;
+        }
+
+        log.info("open truck index rebuilt. size=" + current.size());
+    }
+}
@@ -0,0 +1,312 @@
+package com.gamakdragons.wheretruck.domain.truck.service;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.truck.dto.TruckEvent;
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.util.GeoGridIndex;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Routes truck events to SSE subscribers. The dispatcher thread only decides which subscriber gets what and
+ * puts the event in that subscriber's bounded outbox; the writes happen on the writer pool. A subscriber whose
+ * outbox fills up is too slow to keep up and is closed, so one stalled connection cannot hold back the rest.
+ * When the dispatcher itself falls behind, every subscriber is closed instead of silently missing an event;
+ * clients reconnect and start again from a fresh snapshot of the open trucks.
+ */
+@Component
+@Slf4j
+public class TruckEventHub {
+
+    private final OpenTruckIndex openTruckIndex;
+    private final long emitterTimeoutMs;
+    private final int maxSubscribers;
+    private final int outboxCapacity;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher;
+    private final ExecutorService writers;
+
+    public TruckEventHub(OpenTruckIndex openTruckIndex,
+                            @Value("${truck.events.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                            @Value("${truck.events.max-subscribers:10000}") int maxSubscribers,
+                            @Value("${truck.events.queue-capacity:10000}") int queueCapacity,
+                            @Value("${truck.events.outbox-capacity:1024}") int outboxCapacity,
+                            @Value("${truck.events.writer-threads:4}") int writerThreads) {
+        this.openTruckIndex = openTruckIndex;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.maxSubscribers = maxSubscribers;
+        this.outboxCapacity = outboxCapacity;
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                                                runnable -> {
+                                                    Thread thread = new Thread(runnable, "truck-event-dispatcher");
+                                                    thread.setDaemon(true);
+                                                    return thread;
+                                                },
+                                                new ThreadPoolExecutor.AbortPolicy());
+        this.writers = new ThreadPoolExecutor(writerThreads, writerThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                                                runnable -> {
+                                                    Thread thread = new Thread(runnable, "truck-event-writer");
+                                                    thread.setDaemon(true);
+                                                    return thread;
+                                                });
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    public SseEmitter subscribe(Area area) {
+
+        SseEmitter emitter = createEmitter(emitterTimeoutMs);
+        Subscription subscription = new Subscription(area, emitter, outboxCapacity);
+
+        synchronized(subscriptions) {
+            if(subscriptions.size() >= maxSubscribers) {
+                return null;
+            }
+            subscriptions.add(subscription);
+        }
+
+        emitter.onCompletion(() -> discard(subscription));
+        emitter.onTimeout(() -> discard(subscription));
+        emitter.onError(e -> discard(subscription));
+
+        try {
+            dispatcher.execute(() -> {
+                for(GeoGridIndex.Hit<Truck> hit : openTruckIndex.searchWithin(area.center(), area.radiusKm())) {
+                    GeoLocation geoLocation = hit.getValue().getGeoLocation();
+                    if(area.contains(geoLocation)) {
+                        subscription.visible.add(hit.getId());
+                        send(subscription, new TruckEvent(TruckEvent.Type.OPEN, hit.getId(), geoLocation));
+                    }
+                }
+            });
+        } catch(RejectedExecutionException e) {
+            log.warn("truck event queue is full. closing all subscribers.");
+            closeAll();
+        }
+
+        return emitter;
+    }
+
+    public void publish(TruckEvent event) {
+
+        if(subscriptions.isEmpty()) {
+            return;
+        }
+
+        try {
+            dispatcher.execute(() -> subscriptions.forEach(subscription -> deliver(subscription, event)));
+        } catch(RejectedExecutionException e) {
+            log.warn("truck event queue is full. closing all subscribers. event=" + event);
+            closeAll();
+        }
+    }
+
+    SseEmitter createEmitter(long timeoutMs) {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private void deliver(Subscription subscription, TruckEvent event) {
+
+        String truckId = event.getTruckId();
+        if(event.getType() == TruckEvent.Type.STOP) {
+            if(subscription.visible.remove(truckId)) {
+                send(subscription, event);
+            }
+            return;
+        }
+
+        if(event.getGeoLocation() != null && subscription.area.contains(event.getGeoLocation())) {
+            subscription.visible.add(truckId);
+            send(subscription, event);
+        } else if(subscription.visible.remove(truckId)) {
+            send(subscription, new TruckEvent(TruckEvent.Type.LEAVE, truckId, null));
+        }
+    }
+
+    private void send(Subscription subscription, TruckEvent event) {
+        send(subscription, SseEmitter.event()
+                                .name(event.getType().name().toLowerCase())
+                                .data(event, MediaType.APPLICATION_JSON));
+    }
+
+    private void send(Subscription subscription, SseEmitter.SseEventBuilder event) {
+
+        if(subscription.closed.get()) {
+            return;
+        }
+
+        if(!subscription.outbox.offer(event)) {
+            log.warn("truck event subscriber is too slow. closing. outboxCapacity=" + outboxCapacity);
+            close(subscription);
+            return;
+        }
+
+        if(subscription.draining.compareAndSet(false, true)) {
+            writers.execute(() -> drain(subscription));
+        }
+    }
+
+    private void drain(Subscription subscription) {
+
+        while(true) {
+            SseEmitter.SseEventBuilder event;
+            while((event = subscription.outbox.poll()) != null) {
+                try {
+                    subscription.emitter.send(event);
+                } catch(IOException | IllegalStateException e) {
+                    if(discard(subscription)) {
+                        subscription.emitter.completeWithError(e);
+                    }
+                    return;
+                }
+            }
+
+            subscription.draining.set(false);
+            if(subscription.outbox.isEmpty() || !subscription.draining.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    private void close(Subscription subscription) {
+        if(discard(subscription)) {
+            // complete() waits for a send in progress, so it must not run on the dispatcher
+            writers.execute(subscription.emitter::complete);
+        }
+    }
+
+    /**
+     * Closes every subscriber once an event could not be queued, since any of them may have missed a STOP or LEAVE.
+     */
+    private void closeAll() {
+        subscriptions.forEach(this::close);
+    }
+
+    private boolean discard(Subscription subscription) {
+
+        if(!subscription.closed.compareAndSet(false, true)) {
+            return false;
+        }
+
+        subscriptions.remove(subscription);
+        subscription.outbox.clear();
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${truck.events.heartbeat-interval-ms:15000}", initialDelayString = "${truck.events.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+
+        if(subscriptions.isEmpty()) {
+            return;
+        }
+
+        try {
+            dispatcher.execute(() -> subscriptions.forEach(subscription -> send(subscription, SseEmitter.event().comment("ping"))));
+        } catch(RejectedExecutionException e) {
+            log.warn("truck event queue is full. skipping heartbeat.");
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        dispatcher.shutdownNow();
+        writers.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        subscriptions.clear();
+    }
+
+    public interface Area {
+
+        boolean contains(GeoLocation geoLocation);
+        GeoLocation center();
+        float radiusKm();
+
+        static Area circle(GeoLocation center, float distanceKm) {
+            GeoLocation copy = new GeoLocation(center.getLat(), center.getLon());
+            return new Area() {
+
+                @Override
+                public boolean contains(GeoLocation geoLocation) {
+                    return GeoGridIndex.distanceKm(copy, geoLocation) <= distanceKm;
+                }
+
+                @Override
+                public GeoLocation center() {
+                    return copy;
+                }
+
+                @Override
+                public float radiusKm() {
+                    return distanceKm;
+                }
+            };
+        }
+
+        static Area box(float minLat, float minLon, float maxLat, float maxLon) {
+            GeoLocation center = new GeoLocation((minLat + maxLat) / 2, (minLon + maxLon) / 2);
+            double cornerKm = Math.max(
+                Math.max(GeoGridIndex.distanceKm(center, new GeoLocation(minLat, minLon)), GeoGridIndex.distanceKm(center, new GeoLocation(minLat, maxLon))),
+                Math.max(GeoGridIndex.distanceKm(center, new GeoLocation(maxLat, minLon)), GeoGridIndex.distanceKm(center, new GeoLocation(maxLat, maxLon))));
+            float radiusKm = (float) Math.ceil(cornerKm + 1);
+            return new Area() {
+
+                @Override
+                public boolean contains(GeoLocation geoLocation) {
+                    return geoLocation.getLat() >= minLat && geoLocation.getLat() <= maxLat
+                            && geoLocation.getLon() >= minLon && geoLocation.getLon() <= maxLon;
+                }
+
+                @Override
+                public GeoLocation center() {
+                    return center;
+                }
+
+                @Override
+                public float radiusKm() {
+                    return radiusKm;
+                }
+            };
+        }
+    }
+
+    private static class Subscription {
+
+        private final Area area;
+        private final SseEmitter emitter;
+        private final Set<String> visible = new HashSet<>();
+        private final BlockingQueue<SseEmitter.SseEventBuilder> outbox;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscription(Area area, SseEmitter emitter, int outboxCapacity) {
+            this.area = area;
+            this.emitter = emitter;
+            this.outbox = new ArrayBlockingQueue<>(outboxCapacity);
+        }
+    }
+}
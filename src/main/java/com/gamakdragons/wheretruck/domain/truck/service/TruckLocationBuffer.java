@@ -0,0 +1,122 @@
+package com.gamakdragons.wheretruck.domain.truck.service;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.PreDestroy;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class TruckLocationBuffer {
+
+    private final RestHighLevelClient esClient;
+    private final String truckIndex;
+    private final int maxBatchSize;
+
+    private final Map<String, GeoLocation> pending = new ConcurrentHashMap<>();
+
+    public TruckLocationBuffer(RestHighLevelClient esClient,
+                                @Value("${elasticsearch.index.truck.name}") String truckIndex,
+                                @Value("${truck.location.max-batch-size:1000}") int maxBatchSize) {
+        this.esClient = esClient;
+        this.truckIndex = truckIndex;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void offer(String truckId, GeoLocation geoLocation) {
+        pending.put(truckId, new GeoLocation(geoLocation.getLat(), geoLocation.getLon()));
+    }
+
+    public void discard(String truckId) {
+        pending.remove(truckId);
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${truck.location.flush-interval-ms:1000}", initialDelayString = "${truck.location.flush-interval-ms:1000}")
+    public void flush() {
+
+        while(!pending.isEmpty()) {
+            Map<String, GeoLocation> batch = drain();
+            if(batch.isEmpty() || !send(batch) || batch.size() < maxBatchSize) {
+                return;
+            }
+        }
+    }
+
+    private Map<String, GeoLocation> drain() {
+
+        Map<String, GeoLocation> batch = new HashMap<>();
+        Iterator<String> truckIds = pending.keySet().iterator();
+        while(truckIds.hasNext() && batch.size() < maxBatchSize) {
+            String truckId = truckIds.next();
+            GeoLocation geoLocation = pending.remove(truckId);
+            if(geoLocation != null) {
+                batch.put(truckId, geoLocation);
+            }
+        }
+        return batch;
+    }
+
+    private boolean send(Map<String, GeoLocation> batch) {
+
+        BulkRequest request = new BulkRequest();
+        batch.forEach((truckId, geoLocation) -> {
+            Map<String, Object> location = new HashMap<>();
+            location.put("lat", geoLocation.getLat());
+            location.put("lon", geoLocation.getLon());
+
+            Map<String, Object> doc = new HashMap<>();
+            doc.put("geoLocation", location);
+
+            request.add(new UpdateRequest(truckIndex, truckId).doc(doc).retryOnConflict(3));
+        });
+
+        BulkResponse response;
+        try {
+            response = esClient.bulk(request, RequestOptions.DEFAULT);
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to flush truck locations. " + e.getMessage());
+            batch.forEach(pending::putIfAbsent);
+            return false;
+        }
+
+        for(BulkItemResponse item : response.getItems()) {
+            if(!item.isFailed()) {
+                continue;
+            }
+
+            if(item.status() == RestStatus.NOT_FOUND) {
+                log.info("dropping location of unknown truck. id=" + item.getId());
+            } else {
+                log.error("failed to update truck location. id=" + item.getId() + ", " + item.getFailureMessage());
+                pending.putIfAbsent(item.getId(), batch.get(item.getId()));
+            }
+        }
+
+        log.debug("truck locations flushed. size=" + batch.size() + ", took=" + response.getTook());
+        return true;
+    }
+}
@@ -0,0 +1,327 @@
+package com.gamakdragons.wheretruck.domain.truck.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.common.SearchResultDto;
+import com.gamakdragons.wheretruck.domain.truck.dto.TrackPoint;
+import com.gamakdragons.wheretruck.domain.truck.entity.TruckLocation;
+import com.gamakdragons.wheretruck.util.EsFutures;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.client.indices.PutIndexTemplateRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.metrics.GeoCentroid;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Append-only position history, one index per UTC day (e.g. truck-location-2021.06.01) so that old days
+ * can be dropped as a whole instead of deleting documents. The truck document only keeps the latest position.
+ */
+@Component
+@Slf4j
+public class TruckLocationHistory {
+
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM.dd").withZone(ZoneOffset.UTC);
+    private static final Pattern RESOLUTION = Pattern.compile("(\\d+)([smhd])");
+
+    private final RestHighLevelClient esClient;
+    private final EsFutures esFutures;
+    private final String indexPrefix;
+    private final int maxBatchSize;
+    private final int retentionDays;
+    private final int maxPoints;
+
+    private final BlockingQueue<TruckLocation> pending;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean templateReady;
+
+    public TruckLocationHistory(RestHighLevelClient esClient,
+                                EsFutures esFutures,
+                                @Value("${elasticsearch.index.truck-location.prefix}") String indexPrefix,
+                                @Value("${truck.location.history.queue-capacity:100000}") int queueCapacity,
+                                @Value("${truck.location.history.max-batch-size:5000}") int maxBatchSize,
+                                @Value("${truck.location.history.retention-days:90}") int retentionDays,
+                                @Value("${truck.location.history.max-points:2000}") int maxPoints) {
+        this.esClient = esClient;
+        this.esFutures = esFutures;
+        this.indexPrefix = indexPrefix;
+        this.maxBatchSize = maxBatchSize;
+        this.retentionDays = retentionDays;
+        this.maxPoints = maxPoints;
+        this.pending = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    public void record(String truckId, GeoLocation geoLocation) {
+        TruckLocation location = new TruckLocation(truckId, new GeoLocation(geoLocation.getLat(), geoLocation.getLon()), System.currentTimeMillis());
+        if(!pending.offer(location) && dropped.incrementAndGet() % 1000 == 1) {
+            log.warn("truck location history queue is full. dropped=" + dropped.get());
+        }
+    }
+
+    public int size() {
+        return pending.size();
+    }
+
+    String indexOf(long timestamp) {
+        return indexPrefix + "-" + DAY_FORMAT.format(Instant.ofEpochMilli(timestamp));
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${truck.location.history.flush-interval-ms:5000}", initialDelayString = "${truck.location.history.flush-interval-ms:5000}")
+    public void flush() {
+
+        if(pending.isEmpty() || !ensureTemplate()) {
+            return;
+        }
+
+        List<TruckLocation> batch = new ArrayList<>();
+        while(pending.drainTo(batch, maxBatchSize) > 0) {
+            if(!send(batch) || batch.size() < maxBatchSize) {
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private boolean send(List<TruckLocation> batch) {
+
+        BulkRequest request = new BulkRequest();
+        batch.forEach(location -> request.add(EsRequestFactory.createIndexRequest(indexOf(location.getTimestamp()), null, location)));
+
+        BulkResponse response;
+        try {
+            response = esClient.bulk(request, RequestOptions.DEFAULT);
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to flush truck location history. " + e.getMessage());
+            batch.forEach(pending::offer);
+            return false;
+        }
+
+        if(response.hasFailures()) {
+            int failures = 0;
+            for(BulkItemResponse item : response.getItems()) {
+                if(item.isFailed()) {
+                    failures++;
+                }
+            }
+            log.error("failed to index " + failures + " truck locations. " + response.buildFailureMessage());
+        }
+
+        log.debug("truck location history flushed. size=" + batch.size() + ", took=" + response.getTook());
+        return true;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        ensureTemplate();
+    }
+
+    private synchronized boolean ensureTemplate() {
+
+        if(templateReady) {
+            return true;
+        }
+
+        try {
+            XContentBuilder mapping = XContentFactory.jsonBuilder();
+            mapping.startObject();
+            {
+                mapping.startObject("properties");
+                {
+                    mapping.startObject("truckId");
+                    {
+                        mapping.field("type", "keyword");
+                    }
+                    mapping.endObject();
+
+                    mapping.startObject("geoLocation");
+                    {
+                        mapping.field("type", "geo_point");
+                    }
+                    mapping.endObject();
+
+                    mapping.startObject("timestamp");
+                    {
+                        mapping.field("type", "date");
+                        mapping.field("format", "epoch_millis");
+                    }
+                    mapping.endObject();
+                }
+                mapping.endObject();
+            }
+            mapping.endObject();
+
+            PutIndexTemplateRequest request = new PutIndexTemplateRequest(indexPrefix)
+                                                    .patterns(Collections.singletonList(indexPrefix + "-*"))
+                                                    .settings(Settings.builder()
+                                                        .put("index.number_of_shards", 1)
+                                                        .put("index.refresh_interval", "30s"))
+                                                    .mapping(mapping);
+
+            templateReady = esClient.indices().putTemplate(request, RequestOptions.DEFAULT).isAcknowledged();
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to put truck location index template. " + e.getMessage());
+        }
+
+        return templateReady;
+    }
+
+    @Scheduled(cron = "${truck.location.history.purge-cron:0 30 3 * * *}", zone = "UTC")
+    public void purgeExpired() {
+
+        String oldest = indexOf(LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli());
+
+        try {
+            GetIndexRequest getIndexRequest = new GetIndexRequest(indexPrefix + "-*");
+            for(String index : esClient.indices().get(getIndexRequest, RequestOptions.DEFAULT).getIndices()) {
+                if(index.compareTo(oldest) < 0) {
+                    esClient.indices().delete(new DeleteIndexRequest(index), RequestOptions.DEFAULT);
+                    log.info("expired truck location index deleted: " + index);
+                }
+            }
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to purge truck location history. " + e.getMessage());
+        }
+    }
+
+    public CompletableFuture<SearchResultDto<TrackPoint>> findTrackAsync(String truckId, long from, long to, String resolution) {
+
+        Matcher matcher = resolution == null ? null : RESOLUTION.matcher(resolution);
+        if(matcher == null || !matcher.matches() || from > to) {
+            return CompletableFuture.completedFuture(makeErrorTrackSearchResultDto(RestStatus.BAD_REQUEST));
+        }
+
+        long intervalMs = Long.parseLong(matcher.group(1)) * unitMillis(matcher.group(2));
+        if(intervalMs <= 0 || (to - from) / intervalMs > maxPoints) {
+            return CompletableFuture.completedFuture(makeErrorTrackSearchResultDto(RestStatus.BAD_REQUEST));
+        }
+
+        SearchSourceBuilder source = new SearchSourceBuilder()
+                                        .size(0)
+                                        .query(QueryBuilders.boolQuery()
+                                                .filter(QueryBuilders.termQuery("truckId", truckId))
+                                                .filter(QueryBuilders.rangeQuery("timestamp").gte(from).lte(to)))
+                                        .aggregation(AggregationBuilders.dateHistogram("track")
+                                                .field("timestamp")
+                                                .fixedInterval(new DateHistogramInterval(resolution))
+                                                .minDocCount(1)
+                                                .subAggregation(AggregationBuilders.geoCentroid("centroid").field("geoLocation")));
+
+        SearchRequest request = new SearchRequest(indicesBetween(from, to), source)
+                                    .indicesOptions(IndicesOptions.lenientExpandOpen());
+
+        return esFutures.search(request)
+                .thenApply(response -> {
+                    List<TrackPoint> points = new ArrayList<>();
+                    Histogram track = response.getAggregations() == null ? null : response.getAggregations().get("track");
+                    if(track != null) {
+                        for(Histogram.Bucket bucket : track.getBuckets()) {
+                            GeoCentroid centroid = bucket.getAggregations().get("centroid");
+                            points.add(TrackPoint.builder()
+                                        .timestamp(((ZonedDateTime) bucket.getKey()).toInstant().toEpochMilli())
+                                        .geoLocation(new GeoLocation((float) centroid.centroid().getLat(), (float) centroid.centroid().getLon()))
+                                        .count(bucket.getDocCount())
+                                        .build());
+                        }
+                    }
+
+                    return SearchResultDto.<TrackPoint> builder()
+                            .status(response.status().name())
+                            .numFound(points.size())
+                            .docs(points)
+                            .build();
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorTrackSearchResultDto(RestStatus.INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    /**
+     * Daily indices only exist from the retention cut-off up to today, so the range is clamped to that window.
+     * This keeps the index list, and the request line it ends up in, to at most retentionDays + 1 names.
+     */
+    private String[] indicesBetween(long from, long to) {
+
+        long until = Math.min(to, System.currentTimeMillis());
+
+        LocalDate first = Instant.ofEpochMilli(from).atZone(ZoneOffset.UTC).toLocalDate();
+        LocalDate last = Instant.ofEpochMilli(until).atZone(ZoneOffset.UTC).toLocalDate();
+        LocalDate oldest = LocalDate.now(ZoneOffset.UTC).minusDays(retentionDays);
+        if(first.isBefore(oldest)) {
+            first = oldest;
+        }
+
+        List<String> indices = new ArrayList<>();
+        for(LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            indices.add(indexOf(day.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli()));
+        }
+
+        if(indices.isEmpty()) {
+            indices.add(indexOf(until));
+        }
+        return indices.toArray(new String[0]);
+    }
+
+    private static long unitMillis(String unit) {
+        switch(unit) {
+            case "s":
+                return 1000L;
+            case "m":
+                return 60 * 1000L;
+            case "h":
+                return 60 * 60 * 1000L;
+            default:
+                return 24 * 60 * 60 * 1000L;
+        }
+    }
+
+    private SearchResultDto<TrackPoint> makeErrorTrackSearchResultDto(RestStatus status) {
+        return SearchResultDto.<TrackPoint> builder()
+                .status(status.name())
+                .numFound(0)
+                .docs(Collections.emptyList())
+                .build();
+    }
+}
@@ -1,27 +1,43 @@
 package com.gamakdragons.wheretruck.domain.truck.service;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.truck.dto.TrackPoint;
 import com.gamakdragons.wheretruck.domain.truck.dto.TruckSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 public interface TruckService {
     
-    SearchResultDto<Truck> findAll();
-    SearchResultDto<Truck> findByUserId(String userId);
+    SearchResponseStreamer streamAll();
     SearchResultDto<Truck> findByGeoLocation(GeoLocation geoLocation, float distance);
-
-    Truck getById(String id);
-    SearchResultDto<Truck> getByIds(List<String> ids);
+    SearchResultDto<Truck> findByGeoLocation(GeoLocation geoLocation, float distance, int size, String cursor);
 
     IndexUpdateResultDto saveTruck(TruckSaveRequestDto truckSaveRequestDto);
     IndexUpdateResultDto updateTruck(TruckSaveRequestDto truckSaveRequestDto);
     DeleteResultDto deleteTruck(String id);
+    PresignedUpload createImageUpload(String id, String contentType);
+    IndexUpdateResultDto completeImageUpload(String id, String key);
+
+    boolean reportLocation(String id, String userId, GeoLocation geoLocation);
+    CompletableFuture<SearchResultDto<TrackPoint>> findTrackAsync(String id, String userId, long from, long to, String resolution);
+
+    SseEmitter subscribeEvents(TruckEventHub.Area area);
 
-    IndexUpdateResultDto openTruck(String id, GeoLocation geoLocation);
-    IndexUpdateResultDto stopTruck(String id);
+    CompletableFuture<SearchResultDto<Truck>> findAllAsync(int size, String cursor);
+    CompletableFuture<SearchResultDto<Truck>> findByUserIdAsync(String userId);
+    CompletableFuture<Truck> getByIdAsync(String id);
+    CompletableFuture<SearchResultDto<Truck>> getByIdsAsync(List<String> ids);
+    CompletableFuture<SearchResultDto<Rating>> findRatingsAsync(String truckId, int size, String cursor);
+    CompletableFuture<IndexUpdateResultDto> openTruckAsync(String id, GeoLocation geoLocation);
+    CompletableFuture<IndexUpdateResultDto> stopTruckAsync(String id);
 }
@@ -6,25 +6,37 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.cloud.aws.exception.S3ServiceException;
+import com.gamakdragons.wheretruck.cloud.aws.service.ImagePipeline;
 import com.gamakdragons.wheretruck.cloud.aws.service.S3Service;
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteCounter;
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.truck.dto.TrackPoint;
+import com.gamakdragons.wheretruck.domain.truck.dto.TruckEvent;
 import com.gamakdragons.wheretruck.domain.truck.dto.TruckSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.gamakdragons.wheretruck.util.EsFutures;
 import com.gamakdragons.wheretruck.util.EsRequestFactory;
-import com.google.gson.Gson;
+import com.gamakdragons.wheretruck.util.GeoGridIndex;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
 
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetRequest;
-import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.get.MultiGetRequest;
-import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchRequest;
@@ -37,9 +49,14 @@ import org.elasticsearch.index.reindex.DeleteByQueryRequest;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
+import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -53,6 +70,12 @@ public class TruckServiceImpl implements TruckService {
     @Value("${elasticsearch.index.favorite.name}")
     private String FAVORITE_INDEX;
 
+    @Value("${elasticsearch.index.rating.name}")
+    private String RATING_INDEX;
+
+    @Value("${rating.page-size:20}")
+    private int RATINGS_PAGE_SIZE;
+
     @Value("${cloud.aws.s3.bucket.truck_image}")
     private String TRUCK_IMAGE_BUCKET;
 
@@ -60,127 +83,264 @@ public class TruckServiceImpl implements TruckService {
     private String FOOD_IMAGE_BUCKET;
 
     private final RestHighLevelClient esClient;
+    private final EsFutures esFutures;
     private final S3Service s3Service;
+    private final OpenTruckIndex openTruckIndex;
+    private final FavoriteCounter favoriteCounter;
+    private final TruckLocationBuffer truckLocationBuffer;
+    private final TruckEventHub truckEventHub;
+    private final TruckLocationHistory truckLocationHistory;
+    private final ImagePipeline imagePipeline;
 
+    private final AtomicLong lastImageVersion = new AtomicLong();
 
     @Autowired
-    public TruckServiceImpl(RestHighLevelClient esClient, S3Service s3Service) {
+    public TruckServiceImpl(RestHighLevelClient esClient, EsFutures esFutures, S3Service s3Service, OpenTruckIndex openTruckIndex, FavoriteCounter favoriteCounter,
+                            TruckLocationBuffer truckLocationBuffer, TruckEventHub truckEventHub, TruckLocationHistory truckLocationHistory,
+                            ImagePipeline imagePipeline) {
         this.esClient = esClient;
+        this.esFutures = esFutures;
         this.s3Service = s3Service;
+        this.openTruckIndex = openTruckIndex;
+        this.favoriteCounter = favoriteCounter;
+        this.truckLocationBuffer = truckLocationBuffer;
+        this.truckEventHub = truckEventHub;
+        this.truckLocationHistory = truckLocationHistory;
+        this.imagePipeline = imagePipeline;
     }
 
     @Override
-    public Truck getById(String id) {
+    public CompletableFuture<Truck> getByIdAsync(String id) {
 
         GetRequest request = EsRequestFactory.createGetRequest(TRUCK_INDEX, id);
-        GetResponse response;
+        request.fetchSourceContext(new FetchSourceContext(true, null, new String[]{"ratings"}));
+
+        return esFutures.get(request)
+                .thenCombine(findRatingsAsync(id, RATINGS_PAGE_SIZE, null), (response, ratings) -> {
+                    if(!response.isExists()) {
+                        return null;
+                    }
+
+                    Truck truck = EsDocumentCodec.read(response.getSourceAsBytesRef(), Truck.class);
+                    truck.setRatings(ratings.getDocs());
+                    truck.setRatingsNext(ratings.getNext());
+
+                    return truck;
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<SearchResultDto<Rating>> findRatingsAsync(String truckId, int size, String cursor) {
+
+        Object[] searchAfter;
         try {
-            response = esClient.get(request, RequestOptions.DEFAULT);
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return null;
+            searchAfter = SearchAfterCursor.decode(cursor, 2);
+        } catch(IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return CompletableFuture.completedFuture(makeErrorRatingSearchResultDto(RestStatus.BAD_REQUEST));
         }
 
-        if(!response.isExists()) {
-            return null;
-        }
+        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(RATING_INDEX, "truckId", truckId);
+        request.source().sort("createdDate", SortOrder.DESC);
+        EsRequestFactory.paginate(request, size, searchAfter, "id");
+
+        return esFutures.search(request)
+                .thenApply(response -> {
+                    SearchHit[] hits = response.getHits().getHits();
+                    List<Rating> ratings = Arrays.stream(hits)
+                                                .map(hit -> EsDocumentCodec.read(hit.getSourceRef(), Rating.class))
+                                                .collect(Collectors.toList());
+
+                    String next = null;
+                    if(hits.length == size) {
+                        next = SearchAfterCursor.encode(hits[hits.length - 1].getSortValues());
+                    }
+
+                    return SearchResultDto.<Rating> builder()
+                            .status(response.status().name())
+                            .numFound((int) response.getHits().getTotalHits().value)
+                            .docs(ratings)
+                            .next(next)
+                            .build();
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorRatingSearchResultDto(RestStatus.INTERNAL_SERVER_ERROR);
+                });
+    }
 
-        Truck truck = new Gson().fromJson(response.getSourceAsString(), Truck.class);
-        truck.setRatings(truck.getRatings().stream().sorted((r1, r2) -> r2.getCreatedDate().compareTo(r1.getCreatedDate())).collect(Collectors.toList()));
+    private SearchResultDto<TrackPoint> makeErrorTrackSearchResultDto(RestStatus status) {
+        return SearchResultDto.<TrackPoint> builder()
+                .status(status.name())
+                .numFound(0)
+                .docs(Collections.emptyList())
+                .build();
+    }
 
-        return truck;
+    private SearchResultDto<Rating> makeErrorRatingSearchResultDto(RestStatus status) {
+        return SearchResultDto.<Rating> builder()
+                .status(status.name())
+                .numFound(0)
+                .docs(Collections.emptyList())
+                .build();
     }
 
     @Override
-    public SearchResultDto<Truck> getByIds(List<String> ids) {
+    public CompletableFuture<SearchResultDto<Truck>> getByIdsAsync(List<String> ids) {
+
+        if(ids.isEmpty()) {
+            return CompletableFuture.completedFuture(SearchResultDto.<Truck> builder()
+                    .status("OK")
+                    .numFound(0)
+                    .docs(Collections.emptyList())
+                    .build());
+        }
 
-        String[] includes = new String[]{"id", "name", "opened", "numRating", "starAvg", "imageUrl"};
+        String[] includes = new String[]{"id", "name", "opened", "numRating", "starAvg", "imageUrl", "imageVariants"};
         String[] excludes = new String[]{"geoLocation", "description", "userId", "foods", "ratings"};
 
         MultiGetRequest request = EsRequestFactory.createMultiGetRequest(TRUCK_INDEX, ids, includes, excludes);
-        MultiGetResponse response;
-        try {
-            response = esClient.mget(request, RequestOptions.DEFAULT);
-        } catch (IOException e) {
-            log.error("IOException occured.");
-            return null;
-        }
 
-        List<Truck> trucks = Arrays.stream(response.getResponses())
-                                    .map(item -> new Gson().fromJson(item.getResponse().getSourceAsString(), Truck.class))
-                                    .collect(Collectors.toList());
-
-        return SearchResultDto.<Truck> builder()
-                .status("OK")
-                .numFound(trucks.size())
-                .docs(trucks)
-                .build();
+        return esFutures.mget(request)
+                .thenApply(response -> {
+                    List<Truck> trucks = Arrays.stream(response.getResponses())
+                                                .filter(item -> !item.isFailed() && item.getResponse().isExists())
+                                                .map(item -> EsDocumentCodec.read(item.getResponse().getSourceAsBytesRef(), Truck.class))
+                                                .collect(Collectors.toList());
+
+                    return SearchResultDto.<Truck> builder()
+                            .status("OK")
+                            .numFound(trucks.size())
+                            .docs(trucks)
+                            .build();
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorSearhResultDtoFromSearchResponse();
+                });
     }
     
 
     @Override
-    public SearchResultDto<Truck> findAll() {
-
-        String[] fieldsToInclude = new String[]{};
-        String[] fieldsToExclude = new String[]{"foods", "ratings"};
-        SearchRequest request = EsRequestFactory.createSearchAllRequest(TRUCK_INDEX, fieldsToInclude, fieldsToExclude); 
+    public CompletableFuture<SearchResultDto<Truck>> findAllAsync(int size, String cursor) {
 
-        SearchResponse response;
+        Object[] searchAfter;
         try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return makeErrorSearhResultDtoFromSearchResponse();
+            searchAfter = SearchAfterCursor.decode(cursor, 1);
+        } catch(IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return CompletableFuture.completedFuture(makeErrorSearhResultDtoFromSearchResponse(RestStatus.BAD_REQUEST));
         }
 
-        return makeSearhResultDtoFromSearchResponse(response);
+        String[] fieldsToInclude = new String[]{};
+        String[] fieldsToExclude = new String[]{"foods", "ratings"};
+        SearchRequest request = EsRequestFactory.paginate(
+                EsRequestFactory.createSearchAllRequest(TRUCK_INDEX, fieldsToInclude, fieldsToExclude), size, searchAfter, "id");
+
+        return esFutures.search(request)
+                .thenApply(response -> {
+                    log.info("total hits: " + response.getHits().getTotalHits());
+                    return makeSearhResultDtoFromSearchResponse(response, size);
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorSearhResultDtoFromSearchResponse();
+                });
     }
 
     @Override
-    public SearchResultDto<Truck> findByUserId(String userId) {
-        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(TRUCK_INDEX, "userId", userId);
+    public SearchResponseStreamer streamAll() {
 
-        SearchResponse response;
-        try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return makeErrorSearhResultDtoFromSearchResponse();
-        }
+        String[] fieldsToInclude = new String[]{};
+        String[] fieldsToExclude = new String[]{"foods", "ratings"};
+        SearchRequest request = EsRequestFactory.createSearchAllRequest(TRUCK_INDEX, fieldsToInclude, fieldsToExclude);
+
+        return SearchResponseStreamer.search(esClient, request, "id");
+    }
 
-        return makeSearhResultDtoFromSearchResponse(response);
+    @Override
+    public CompletableFuture<SearchResultDto<Truck>> findByUserIdAsync(String userId) {
+        SearchRequest request = EsRequestFactory.createSearchByFieldRequest(TRUCK_INDEX, "userId", userId, new String[]{}, new String[]{"ratings"});
+
+        return esFutures.search(request)
+                .thenApply(response -> {
+                    log.info("total hits: " + response.getHits().getTotalHits());
+                    return makeSearhResultDtoFromSearchResponse(response);
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorSearhResultDtoFromSearchResponse();
+                });
     }
 
     
     @Override
     public SearchResultDto<Truck> findByGeoLocation(GeoLocation geoLocation, float distance) {
+        return findByGeoLocation(geoLocation, distance, SearchAfterCursor.MAX_PAGE_SIZE, null);
+    }
 
-        String[] fieldsToInclude = new String[]{};
-        String[] fieldsToExclude = new String[]{"foods", "ratings"};
-        SearchRequest request = EsRequestFactory.createGeoSearchRequest(TRUCK_INDEX, geoLocation, distance, fieldsToInclude, fieldsToExclude);
-        
-        SearchResponse response;
+    @Override
+    public SearchResultDto<Truck> findByGeoLocation(GeoLocation geoLocation, float distance, int size, String cursor) {
+
+        Object[] searchAfter;
         try {
-            response = esClient.search(request, RequestOptions.DEFAULT);
-            log.info("total hits: " + response.getHits().getTotalHits());
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return makeErrorSearhResultDtoFromSearchResponse();
+            searchAfter = SearchAfterCursor.decode(cursor, 2);
+        } catch(IllegalArgumentException e) {
+            log.error(e.getMessage());
+            return makeErrorSearhResultDtoFromSearchResponse(RestStatus.BAD_REQUEST);
+        }
+
+        if(searchAfter != null && !(searchAfter[0] instanceof Number)) {
+            log.error("invalid cursor: " + cursor);
+            return makeErrorSearhResultDtoFromSearchResponse(RestStatus.BAD_REQUEST);
         }
 
-        return makeSearhResultDtoFromSearchResponse(response);
+        List<GeoGridIndex.Hit<Truck>> hits = openTruckIndex.searchWithin(geoLocation, distance);
+        log.info("total hits: " + hits.size());
+
+        int from = 0;
+        if(searchAfter != null) {
+            double afterDistance = ((Number) searchAfter[0]).doubleValue();
+            String afterId = searchAfter[1].toString();
+            while(from < hits.size() && isNotAfter(hits.get(from), afterDistance, afterId)) {
+                from++;
+            }
+        }
+
+        int to = Math.min(hits.size(), from + size);
+        List<Truck> trucks = hits.subList(from, to).stream()
+                                .map(GeoGridIndex.Hit::getValue)
+                                .collect(Collectors.toList());
+
+        String next = null;
+        if(to < hits.size()) {
+            GeoGridIndex.Hit<Truck> last = hits.get(to - 1);
+            next = SearchAfterCursor.encode(new Object[]{last.getDistance(), last.getId()});
+        }
+
+        return SearchResultDto.<Truck> builder()
+                .status(RestStatus.OK.name())
+                .numFound(hits.size())
+                .docs(trucks)
+                .next(next)
+                .build();
+    }
+
+    private boolean isNotAfter(GeoGridIndex.Hit<Truck> hit, double afterDistance, String afterId) {
+        if(hit.getDistance() != afterDistance) {
+            return hit.getDistance() < afterDistance;
+        }
+        return hit.getId().compareTo(afterId) <= 0;
     }
 
     private SearchResultDto<Truck> makeSearhResultDtoFromSearchResponse(SearchResponse response) {
         List<Truck> trucks = Arrays.stream(response.getHits().getHits())
-                            .map(hit -> new Gson().fromJson(hit.getSourceAsString(), Truck.class))
+                            .map(hit -> EsDocumentCodec.read(hit.getSourceRef(), Truck.class))
                             .collect(Collectors.toList());
-        
-        trucks.stream().filter(truck -> truck.getRatings() != null).forEach(truck -> {
-            truck.setRatings(truck.getRatings().stream().sorted((r1, r2) -> r2.getCreatedDate().compareTo(r1.getCreatedDate())).collect(Collectors.toList()));
-        });
 
         return SearchResultDto.<Truck> builder()
                 .status(response.status().name())
@@ -188,9 +348,33 @@ public class TruckServiceImpl implements TruckService {
                 .docs(trucks).build();
     }
 
+    private SearchResultDto<Truck> makeSearhResultDtoFromSearchResponse(SearchResponse response, int size) {
+        SearchHit[] hits = response.getHits().getHits();
+
+        List<Truck> trucks = Arrays.stream(hits)
+                            .map(hit -> EsDocumentCodec.read(hit.getSourceRef(), Truck.class))
+                            .collect(Collectors.toList());
+
+        String next = null;
+        if(hits.length == size) {
+            next = SearchAfterCursor.encode(hits[hits.length - 1].getSortValues());
+        }
+
+        return SearchResultDto.<Truck> builder()
+                .status(response.status().name())
+                .numFound((int) response.getHits().getTotalHits().value)
+                .docs(trucks)
+                .next(next)
+                .build();
+    }
+
     private SearchResultDto<Truck> makeErrorSearhResultDtoFromSearchResponse() {
+        return makeErrorSearhResultDtoFromSearchResponse(RestStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private SearchResultDto<Truck> makeErrorSearhResultDtoFromSearchResponse(RestStatus status) {
         return SearchResultDto.<Truck> builder()
-                .status(RestStatus.INTERNAL_SERVER_ERROR.name())
+                .status(status.name())
                 .numFound(0)
                 .docs(Collections.emptyList())
                 .build();
@@ -203,17 +387,6 @@ public class TruckServiceImpl implements TruckService {
         Truck truck = truckSaveRequestDto.toSaveEntity();
         truck.setGeoLocation(new GeoLocation(0.0f, 0.0f));
 
-        if(truckSaveRequestDto.getImage() != null && !truckSaveRequestDto.getImage().isEmpty()) {
-            try {
-                String truckImageUrl = s3Service.uploadImage(TRUCK_IMAGE_BUCKET, truck.getId(), truckSaveRequestDto.getImage());
-                log.info("image uploaded to s3 bucket. url=" + truckImageUrl);
-                truck.setImageUrl(truckImageUrl);
-            } catch(S3ServiceException e) {
-                log.error(e.getMessage());
-            }
-            
-        }
-
         log.info(truck.toString());
 
         IndexRequest request = EsRequestFactory.createIndexRequest(TRUCK_INDEX, truck.getId(), truck);
@@ -228,8 +401,13 @@ public class TruckServiceImpl implements TruckService {
 
         }
 
+        String imageResult = null;
+        if(truckSaveRequestDto.getImage() != null && !truckSaveRequestDto.getImage().isEmpty()) {
+            imageResult = submitTruckImage(truck.getId(), truckSaveRequestDto.getImage());
+        }
+
         return IndexUpdateResultDto.builder()
-                .result(response.getResult().name())
+                .result(resultWithImage(response.getResult(), imageResult))
                 .id(response.getId())
                 .build();
     }
@@ -238,32 +416,28 @@ public class TruckServiceImpl implements TruckService {
     public IndexUpdateResultDto updateTruck(TruckSaveRequestDto truckSaveRequestDto) {
 
         Truck truck = truckSaveRequestDto.toUpdateEntity();
-
-        if(truckSaveRequestDto.getImage() != null && !truckSaveRequestDto.getImage().isEmpty()) {
-            String truckImageUrl = s3Service.uploadImage(TRUCK_IMAGE_BUCKET, truck.getId(), truckSaveRequestDto.getImage());
-            log.info("image uploaded to s3 bucket. url=" + truckImageUrl);
-            truck.setImageUrl(truckImageUrl);
-        } else {
-            if(s3Service.deleteImage(TRUCK_IMAGE_BUCKET, truck.getId())) {
-                log.info("truck image removed.");
-            }
-            truck.setImageUrl(null);
-        }
+        boolean hasImage = truckSaveRequestDto.getImage() != null && !truckSaveRequestDto.getImage().isEmpty();
 
         log.info(truck.toString());
 
+        // clearing takes a version too, so that a job submitted before it cannot record its image afterwards
         String script = "ctx._source.name = params.name;" +
                         "ctx._source.description = params.description;" +
-                        "ctx._source.imageUrl = params.imageUrl;";
+                        "if(params.clearImage && (ctx._source.imageVersion == null || ctx._source.imageVersion <= params.imageVersion)) {" +
+                            "ctx._source.imageUrl = null;" +
+                            "ctx._source.imageVariants = null;" +
+                            "ctx._source.imageVersion = params.imageVersion;" +
+                        "}";
 
         Map<String, Object> params = new HashMap<>();
         params.put("name", truck.getName());
         params.put("description", truck.getDescription());
-        params.put("imageUrl", truck.getImageUrl());
+        params.put("clearImage", !hasImage);
+        params.put("imageVersion", nextImageVersion());
 
         Script inline = new Script(ScriptType.INLINE, "painless", script, params);
 
-        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truck.getId(), inline);
+        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truck.getId(), inline, new String[]{}, OpenTruckIndex.SUMMARY_EXCLUDES);
         UpdateResponse response;
         try {
             response = esClient.update(request, RequestOptions.DEFAULT);
@@ -274,12 +448,133 @@ public class TruckServiceImpl implements TruckService {
                 .build();
         }
 
+        refreshOpenTruckIndex(response);
+
+        String imageResult = null;
+        if(hasImage) {
+            imageResult = submitTruckImage(truck.getId(), truckSaveRequestDto.getImage());
+        } else if(hasNoImage(response)) {
+            deleteTruckImage(truck.getId());
+        }
+
         return IndexUpdateResultDto.builder()
-                .result(response.getResult().name())
+                .result(resultWithImage(response.getResult(), imageResult))
                 .id(truck.getId())
                 .build();
     }
 
+    @Override
+    public PresignedUpload createImageUpload(String id, String contentType) {
+
+        try {
+            return imagePipeline.prepareUpload(TRUCK_IMAGE_BUCKET, id, contentType);
+        } catch(S3ServiceException e) {
+            log.error(e.getMessage());
+            return PresignedUpload.builder()
+                    .result(e.getLocalizedMessage())
+                    .build();
+        }
+    }
+
+    @Override
+    public IndexUpdateResultDto completeImageUpload(String id, String key) {
+
+        String result;
+        try {
+            long version = nextImageVersion();
+            result = imagePipeline.submitUploaded(TRUCK_IMAGE_BUCKET, id, key, urls -> recordTruckImage(id, version, urls));
+        } catch(S3ServiceException e) {
+            log.error(e.getMessage());
+            result = e.getLocalizedMessage();
+        }
+
+        return IndexUpdateResultDto.builder()
+                .result(result)
+                .id(id)
+                .build();
+    }
+
+    private String submitTruckImage(String truckId, MultipartFile image) {
+        try {
+            long version = nextImageVersion();
+            return imagePipeline.submit(TRUCK_IMAGE_BUCKET, truckId, image, urls -> recordTruckImage(truckId, version, urls));
+        } catch(S3ServiceException e) {
+            log.error(e.getMessage());
+            return e.getLocalizedMessage();
+        }
+    }
+
+    /**
+     * The document was written either way; SERVICE_UNAVAILABLE tells the client that its image was not taken.
+     */
+    private static String resultWithImage(DocWriteResponse.Result result, String imageResult) {
+        return RestStatus.SERVICE_UNAVAILABLE.name().equals(imageResult) ? imageResult : result.name();
+    }
+
+    private static boolean hasNoImage(UpdateResponse response) {
+        return response.getGetResult() != null && response.getGetResult().isExists()
+                && response.getGetResult().sourceAsMap().get("imageUrl") == null;
+    }
+
+    private void deleteTruckImage(String truckId) {
+        try {
+            imagePipeline.delete(TRUCK_IMAGE_BUCKET, truckId);
+            log.info("truck image removed. id=" + truckId);
+        } catch(S3ServiceException e) {
+            log.error(e.getMessage());
+        }
+    }
+
+    /**
+     * Stamped when the image is submitted, so that a job finishing after a newer one cannot put its URLs back.
+     * Milliseconds keep the order across instances; the increment keeps it within one.
+     */
+    private long nextImageVersion() {
+        return lastImageVersion.updateAndGet(last -> Math.max(last + 1, System.currentTimeMillis()));
+    }
+
+    private void recordTruckImage(String truckId, long version, Map<String, String> urls) {
+
+        String script = "if(ctx._source.imageVersion != null && ctx._source.imageVersion > params.imageVersion) {" +
+                            "ctx.op = 'noop';" +
+                        "} else {" +
+                            "ctx._source.imageUrl = params.imageUrl;" +
+                            "ctx._source.imageVariants = params.imageVariants;" +
+                            "ctx._source.imageVersion = params.imageVersion;" +
+                        "}";
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("imageUrl", urls.get(ImagePipeline.ORIGINAL));
+        params.put("imageVariants", urls);
+        params.put("imageVersion", version);
+
+        Script inline = new Script(ScriptType.INLINE, "painless", script, params);
+
+        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, truckId, inline, new String[]{}, OpenTruckIndex.SUMMARY_EXCLUDES);
+        try {
+            UpdateResponse response = esClient.update(request, RequestOptions.DEFAULT);
+            if(response.getResult() == DocWriteResponse.Result.NOOP) {
+                log.info("truck image superseded by a newer submission. id=" + truckId + ", version=" + version);
+                if(hasNoImage(response)) {
+                    // the image was cleared after this job started, and the job has uploaded its objects again
+                    deleteTruckImage(truckId);
+                }
+                return;
+            }
+            refreshOpenTruckIndex(response);
+            log.info("truck image recorded. id=" + truckId + ", version=" + version);
+        } catch(ElasticsearchException e) {
+            if(e.status() == RestStatus.NOT_FOUND) {
+                log.info("truck was deleted while its image was processed. id=" + truckId);
+                imagePipeline.delete(TRUCK_IMAGE_BUCKET, truckId);
+            } else {
+                log.error(e.getMessage());
+            }
+        } catch(IOException e) {
+            log.error("IOException occured.");
+        }
+    }
+
     @Override
     public DeleteResultDto deleteTruck(String id) {
         DeleteRequest request = EsRequestFactory.createDeleteByIdRequest(TRUCK_INDEX, id);
@@ -294,23 +589,31 @@ public class TruckServiceImpl implements TruckService {
                     .build();
         }
 
-        deleteFavorites(id);
+        openTruckIndex.remove(id);
+        truckEventHub.publish(new TruckEvent(TruckEvent.Type.STOP, id, null));
+        deleteFavoritesAndRatings(id);
+        favoriteCounter.reset(id);
 
         try {
-            s3Service.deleteImage(TRUCK_IMAGE_BUCKET, id);
-            s3Service.deleteImagesWithPrefix(FOOD_IMAGE_BUCKET, id);
+            imagePipeline.delete(TRUCK_IMAGE_BUCKET, id);
         } catch(S3ServiceException e) {
             log.error(e.getMessage());
         }
 
+        s3Service.deleteImagesWithPrefixAsync(FOOD_IMAGE_BUCKET, id + "/")
+                .exceptionally(e -> {
+                    log.error("failed to delete food images of truck " + id + ". " + EsFutures.unwrap(e).getMessage());
+                    return 0;
+                });
+
         return DeleteResultDto.builder()
                 .result(response.getResult().name())
                 .build();
     }
 
-    private void deleteFavorites(String truckId) {
+    private void deleteFavoritesAndRatings(String truckId) {
 
-        DeleteByQueryRequest request = EsRequestFactory.createDeleteByQuerydRequest(new String[]{FAVORITE_INDEX}, "truckId", truckId);
+        DeleteByQueryRequest request = EsRequestFactory.createDeleteByQuerydRequest(new String[]{FAVORITE_INDEX, RATING_INDEX}, "truckId", truckId);
 
         try {
             esClient.deleteByQuery(request, RequestOptions.DEFAULT);
@@ -320,7 +623,9 @@ public class TruckServiceImpl implements TruckService {
     }
 
     @Override
-    public IndexUpdateResultDto openTruck(String id, GeoLocation geoLocation) {
+    public CompletableFuture<IndexUpdateResultDto> openTruckAsync(String id, GeoLocation geoLocation) {
+
+        truckLocationBuffer.discard(id);
 
         Map<String, Object> params = new HashMap<>();
         params.put("opened", true);
@@ -332,50 +637,113 @@ public class TruckServiceImpl implements TruckService {
 
         Script inline = new Script(ScriptType.INLINE, "painless", script, params);
 
-        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, id, inline);
-
-        UpdateResponse response;
-        try {
-            response = esClient.update(request, RequestOptions.DEFAULT);
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return IndexUpdateResultDto.builder()
-                    .id(id)
-                    .result(e.getLocalizedMessage())
-                    .build();
-        }
-
-        return IndexUpdateResultDto.builder()
-                .id(id)
-                .result(response.getResult().name())
-                .build();
+        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, id, inline, new String[]{}, OpenTruckIndex.SUMMARY_EXCLUDES);
+
+        return esFutures.update(request)
+                .thenApply(response -> {
+                    refreshOpenTruckIndex(response);
+                    truckEventHub.publish(new TruckEvent(TruckEvent.Type.OPEN, id, new GeoLocation(geoLocation.getLat(), geoLocation.getLon())));
+                    truckLocationHistory.record(id, geoLocation);
+
+                    return IndexUpdateResultDto.builder()
+                            .id(id)
+                            .result(response.getResult().name())
+                            .build();
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return IndexUpdateResultDto.builder()
+                            .id(id)
+                            .result(EsFutures.unwrap(e).getLocalizedMessage())
+                            .build();
+                });
     }
 
     @Override
-    public IndexUpdateResultDto stopTruck(String id) {
+    public CompletableFuture<IndexUpdateResultDto> stopTruckAsync(String id) {
+
+        truckLocationBuffer.discard(id);
 
         Map<String, Object> params = new HashMap<>();
         params.put("opened", false);
         String script = "ctx._source.opened=params.opened;";
         Script inline = new Script(ScriptType.INLINE, "painless", script, params);
 
-        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, id, inline);
+        UpdateRequest request = EsRequestFactory.createUpdateWithScriptRequest(TRUCK_INDEX, id, inline, new String[]{}, OpenTruckIndex.SUMMARY_EXCLUDES);
         
-        UpdateResponse response;
-        try {
-            response = esClient.update(request, RequestOptions.DEFAULT);
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return IndexUpdateResultDto.builder()
-                    .id(id)
-                    .result(e.getLocalizedMessage())
-                    .build();
+        return esFutures.update(request)
+                .thenApply(response -> {
+                    refreshOpenTruckIndex(response);
+                    truckEventHub.publish(new TruckEvent(TruckEvent.Type.STOP, id, null));
+
+                    return IndexUpdateResultDto.builder()
+                            .id(id)
+                            .result(response.getResult().name())
+                            .build();
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return IndexUpdateResultDto.builder()
+                            .id(id)
+                            .result(EsFutures.unwrap(e).getLocalizedMessage())
+                            .build();
+                });
+    }
+
+    /**
+     * Pings are only taken for trucks that are open and owned by the caller; anything else is dropped before it
+     * reaches the location buffer or the history.
+     */
+    @Override
+    public boolean reportLocation(String id, String userId, GeoLocation geoLocation) {
+        Truck truck = openTruckIndex.lookup(id);
+        if(truck == null || userId == null || !userId.equals(truck.getUserId())) {
+            log.debug("location dropped. id=" + id + ", userId=" + userId + ", opened=" + (truck != null));
+            return false;
         }
 
-        return IndexUpdateResultDto.builder()
-                .id(id)
-                .result(response.getResult().name())
-                .build();
+        truckLocationBuffer.offer(id, geoLocation);
+        truckLocationHistory.record(id, geoLocation);
+        if(openTruckIndex.move(id, geoLocation)) {
+            truckEventHub.publish(new TruckEvent(TruckEvent.Type.MOVE, id, new GeoLocation(geoLocation.getLat(), geoLocation.getLon())));
+        }
+        return true;
+    }
+
+    /**
+     * The track reveals where a truck has been outside its open periods, so it is only served to the owner.
+     */
+    @Override
+    public CompletableFuture<SearchResultDto<TrackPoint>> findTrackAsync(String id, String userId, long from, long to, String resolution) {
+
+        GetRequest request = EsRequestFactory.createGetRequest(TRUCK_INDEX, id);
+        request.fetchSourceContext(new FetchSourceContext(true, new String[]{"userId"}, null));
+
+        return esFutures.get(request)
+                .thenCompose(response -> {
+                    Object owner = response.isExists() ? response.getSourceAsMap().get("userId") : null;
+                    if(userId == null || !userId.equals(owner)) {
+                        return CompletableFuture.completedFuture(makeErrorTrackSearchResultDto(RestStatus.FORBIDDEN));
+                    }
+                    return truckLocationHistory.findTrackAsync(id, from, to, resolution);
+                })
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return makeErrorTrackSearchResultDto(RestStatus.INTERNAL_SERVER_ERROR);
+                });
+    }
+
+    @Override
+    public SseEmitter subscribeEvents(TruckEventHub.Area area) {
+        return truckEventHub.subscribe(area);
+    }
+
+    private void refreshOpenTruckIndex(UpdateResponse response) {
+        if(response.getGetResult() == null || !response.getGetResult().isExists()) {
+            return;
+        }
+
+        openTruckIndex.refresh(EsDocumentCodec.read(response.getGetResult().sourceRef(), Truck.class));
     }
 
 }
@@ -1,5 +1,7 @@
 package com.gamakdragons.wheretruck.domain.user.controller;
 
+import java.util.concurrent.CompletableFuture;
+
 import javax.servlet.http.HttpServletRequest;
 
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
@@ -26,12 +28,13 @@ public class UserController {
     private UserService userService;
 
     @GetMapping("/me")
-    public ResponseEntity<User> getById(HttpServletRequest httpServletRequest) {
+    public CompletableFuture<ResponseEntity<User>> getById(HttpServletRequest httpServletRequest) {
         log.info("/user/me");
 
         String userId = httpServletRequest.getAttribute("userId").toString();
 
-        return new ResponseEntity<>(userService.getById(userId), HttpStatus.OK);
+        return userService.getByIdAsync(userId)
+                .thenApply(user -> new ResponseEntity<>(user, HttpStatus.OK));
     }
 
     @PutMapping("/nickname")
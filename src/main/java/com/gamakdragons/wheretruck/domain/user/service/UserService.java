@@ -1,5 +1,7 @@
 package com.gamakdragons.wheretruck.domain.user.service;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.user.dto.Role;
@@ -8,6 +10,7 @@ import com.gamakdragons.wheretruck.domain.user.entity.User;
 public interface UserService {
     
     User getById(String id);
+    CompletableFuture<User> getByIdAsync(String id);
 
     IndexUpdateResultDto saveUser(User user);
     DeleteResultDto deleteUser(String id);
@@ -1,22 +1,28 @@
 package com.gamakdragons.wheretruck.domain.user.service;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
+import com.gamakdragons.wheretruck.domain.favorite.entity.Favorite;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteCounter;
 import com.gamakdragons.wheretruck.domain.user.dto.Role;
 import com.gamakdragons.wheretruck.domain.user.entity.User;
+import com.gamakdragons.wheretruck.util.EsDocumentCodec;
+import com.gamakdragons.wheretruck.util.EsFutures;
 import com.gamakdragons.wheretruck.util.EsRequestFactory;
-import com.google.gson.Gson;
 
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetRequest;
-import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.RequestOptions;
@@ -42,20 +48,25 @@ public class UserServiceImpl implements UserService {
     private String FAVORITE_INDEX;
 
     private final RestHighLevelClient esClient;
+    private final EsFutures esFutures;
+    private final FavoriteCounter favoriteCounter;
 
     @Override
     public User getById(String id) {
+        return getByIdAsync(id).join();
+    }
+
+    @Override
+    public CompletableFuture<User> getByIdAsync(String id) {
 
         GetRequest request = EsRequestFactory.createGetRequest(USER_INDEX, id);
-        GetResponse getResponse;
-        try {
-            getResponse = esClient.get(request, RequestOptions.DEFAULT);
-        } catch(IOException e) {
-            log.error("IOException occured.");
-            return null;
-        }
 
-        return new Gson().fromJson(getResponse.getSourceAsString(), User.class);
+        return esFutures.get(request)
+                .thenApply(getResponse -> EsDocumentCodec.read(getResponse.getSourceAsBytesRef(), User.class))
+                .exceptionally(e -> {
+                    log.error(EsFutures.unwrap(e).getMessage());
+                    return null;
+                });
     }
 
     @Override
@@ -158,10 +169,16 @@ public class UserServiceImpl implements UserService {
 
     private void deleteRelatedFavorites(String userId) {
 
+        SearchRequest searchRequest = EsRequestFactory.createSearchByFieldRequest(FAVORITE_INDEX, "userId", userId, new String[]{"truckId"}, new String[]{});
         DeleteByQueryRequest request = EsRequestFactory.createDeleteByQuerydRequest(new String[]{FAVORITE_INDEX}, "userId", userId);
 
         try {
+            SearchResponse favorites = esClient.search(searchRequest, RequestOptions.DEFAULT);
             esClient.deleteByQuery(request, RequestOptions.DEFAULT);
+
+            Arrays.stream(favorites.getHits().getHits())
+                .map(hit -> EsDocumentCodec.read(hit.getSourceRef(), Favorite.class).getTruckId())
+                .forEach(favoriteCounter::decrement);
         } catch(IOException e) {
             log.error("IOException occured.");
         }
@@ -0,0 +1,134 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HttpContext;
+import org.elasticsearch.client.Node;
+import org.elasticsearch.client.RestClient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+public class EsClientMetricsInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+    public static final String METRIC_NAME = "es.client.requests";
+    public static final String FAILURE_METRIC_NAME = "es.client.failures";
+
+    /**
+     * Daily or versioned index suffixes (truck-location-2021.06.01, region-20210601120000) and wildcards,
+     * stripped so that the index tag stays within the fixed set of logical indices.
+     */
+    private static final Pattern INDEX_SUFFIX = Pattern.compile("-(\\d[\\d.*]*|\\*)$");
+
+    private static final String START_ATTRIBUTE = EsClientMetricsInterceptor.class.getName() + ".start";
+    private static final String INDEX_ATTRIBUTE = EsClientMetricsInterceptor.class.getName() + ".index";
+    private static final String OPERATION_ATTRIBUTE = EsClientMetricsInterceptor.class.getName() + ".operation";
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+
+        String method = request.getRequestLine().getMethod();
+        String uri = request.getRequestLine().getUri();
+
+        int queryStart = uri.indexOf('?');
+        String path = queryStart < 0 ? uri : uri.substring(0, queryStart);
+
+        String index = "none";
+        String endpoint = null;
+        for(String segment : path.split("/")) {
+            if(segment.isEmpty()) {
+                continue;
+            }
+            if(segment.startsWith("_")) {
+                endpoint = segment.substring(1);
+                break;
+            }
+            if("none".equals(index)) {
+                index = indexTag(segment);
+            }
+        }
+
+        context.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        context.setAttribute(INDEX_ATTRIBUTE, index);
+        context.setAttribute(OPERATION_ATTRIBUTE, operation(method, endpoint));
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) {
+
+        Object start = context.getAttribute(START_ATTRIBUTE);
+        if(!(start instanceof Long)) {
+            return;
+        }
+
+        Timer.builder(METRIC_NAME)
+                .tag("index", String.valueOf(context.getAttribute(INDEX_ATTRIBUTE)))
+                .tag("operation", String.valueOf(context.getAttribute(OPERATION_ATTRIBUTE)))
+                .tag("outcome", outcome(response.getStatusLine().getStatusCode()))
+                .register(Metrics.globalRegistry)
+                .record(System.nanoTime() - (Long) start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts requests that never got a response (connect/socket timeouts, refused connections). The
+     * response interceptor does not see those, so they are recorded when the client marks the node failed.
+     */
+    public RestClient.FailureListener failureListener(RestClient.FailureListener delegate) {
+
+        Counter failures = Counter.builder(FAILURE_METRIC_NAME).register(Metrics.globalRegistry);
+
+        return new RestClient.FailureListener() {
+
+            @Override
+            public void onFailure(Node node) {
+                failures.increment();
+                if(delegate != null) {
+                    delegate.onFailure(node);
+                }
+            }
+        };
+    }
+
+    private static String indexTag(String segment) {
+        if(segment.contains(",") || segment.contains("%2C") || segment.contains("%2c")) {
+            return "multi";
+        }
+        return INDEX_SUFFIX.matcher(segment).replaceFirst("");
+    }
+
+    private static String operation(String method, String endpoint) {
+        if(endpoint == null) {
+            return method.toLowerCase();
+        }
+
+        if("doc".equals(endpoint)) {
+            switch(method) {
+                case "GET":
+                case "HEAD":
+                    return "get";
+                case "DELETE":
+                    return "delete";
+                default:
+                    return "index";
+            }
+        }
+
+        return endpoint;
+    }
+
+    private static String outcome(int statusCode) {
+        if(statusCode >= 500) {
+            return "SERVER_ERROR";
+        }
+        if(statusCode >= 400) {
+            return "CLIENT_ERROR";
+        }
+        return "SUCCESS";
+    }
+}
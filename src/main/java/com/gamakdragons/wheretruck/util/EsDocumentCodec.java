@@ -0,0 +1,85 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.gamakdragons.wheretruck.domain.favorite.entity.Favorite;
+import com.gamakdragons.wheretruck.domain.food.entity.Food;
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.region.entity.Region;
+import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.domain.user.entity.User;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+public class EsDocumentCodec {
+
+    private static final Gson GSON = new Gson();
+
+    private static final Map<Class<?>, TypeAdapter<?>> ADAPTERS = new ConcurrentHashMap<>();
+
+    static {
+        register(Truck.class);
+        register(Region.class);
+        register(Rating.class);
+        register(Food.class);
+        register(User.class);
+        register(Favorite.class);
+    }
+
+    private static <T> void register(Class<T> type) {
+        ADAPTERS.put(type, GSON.getAdapter(type));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TypeAdapter<T> adapter(Class<T> type) {
+        return (TypeAdapter<T>) ADAPTERS.computeIfAbsent(type, GSON::getAdapter);
+    }
+
+    public static <T> T read(BytesReference source, Class<T> type) {
+        if(source == null) {
+            return null;
+        }
+
+        try(JsonReader reader = GSON.newJsonReader(new InputStreamReader(source.streamInput(), StandardCharsets.UTF_8))) {
+            return adapter(type).read(reader);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static <T> T read(String source, Class<T> type) {
+        if(source == null) {
+            return null;
+        }
+
+        try {
+            return adapter(type).fromJson(source);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static byte[] write(Object document) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try(JsonWriter writer = GSON.newJsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            adapter((Class<Object>) document.getClass()).write(writer, document);
+        } catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,102 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EsFutures {
+
+    private final RestHighLevelClient esClient;
+
+    /**
+     * Responses are handed off to this pool before the future completes, so the stages callers chain on
+     * (decoding hits, building DTOs) do not run on the client's I/O reactor threads. When the queue is full,
+     * or the pool is already shut down, the future is completed on the reactor thread rather than lost.
+     */
+    private final ThreadPoolExecutor responseExecutor;
+
+    public EsFutures(RestHighLevelClient esClient,
+                        @Value("${elasticsearch.client.response-threads:0}") int responseThreads,
+                        @Value("${elasticsearch.client.response-queue-capacity:1000}") int responseQueueCapacity) {
+        int threads = responseThreads > 0 ? responseThreads : Runtime.getRuntime().availableProcessors();
+
+        this.esClient = esClient;
+        this.responseExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(responseQueueCapacity),
+                                                        runnable -> {
+                                                            Thread thread = new Thread(runnable, "es-response");
+                                                            thread.setDaemon(true);
+                                                            return thread;
+                                                        },
+                                                        (runnable, executor) -> runnable.run());
+    }
+
+    public CompletableFuture<SearchResponse> search(SearchRequest request) {
+        CompletableFuture<SearchResponse> future = new CompletableFuture<>();
+        esClient.searchAsync(request, RequestOptions.DEFAULT, listener(future));
+        return future;
+    }
+
+    public CompletableFuture<GetResponse> get(GetRequest request) {
+        CompletableFuture<GetResponse> future = new CompletableFuture<>();
+        esClient.getAsync(request, RequestOptions.DEFAULT, listener(future));
+        return future;
+    }
+
+    public CompletableFuture<MultiGetResponse> mget(MultiGetRequest request) {
+        CompletableFuture<MultiGetResponse> future = new CompletableFuture<>();
+        esClient.mgetAsync(request, RequestOptions.DEFAULT, listener(future));
+        return future;
+    }
+
+    public CompletableFuture<UpdateResponse> update(UpdateRequest request) {
+        CompletableFuture<UpdateResponse> future = new CompletableFuture<>();
+        esClient.updateAsync(request, RequestOptions.DEFAULT, listener(future));
+        return future;
+    }
+
+    public static Throwable unwrap(Throwable e) {
+        if(e instanceof CompletionException && e.getCause() != null) {
+            return e.getCause();
+        }
+        return e;
+    }
+
+    @PreDestroy
+    public void close() {
+        responseExecutor.shutdown();
+    }
+
+    private <T> ActionListener<T> listener(CompletableFuture<T> future) {
+        return new ActionListener<T>() {
+
+            @Override
+            public void onResponse(T response) {
+                responseExecutor.execute(() -> future.complete(response));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                responseExecutor.execute(() -> future.completeExceptionally(e));
+            }
+        };
+    }
+}
@@ -1,9 +1,9 @@
 package com.gamakdragons.wheretruck.util;
 
 import java.util.List;
+import java.util.Map;
 
 import com.gamakdragons.wheretruck.common.GeoLocation;
-import com.google.gson.Gson;
 
 import org.apache.lucene.search.join.ScoreMode;
 import org.elasticsearch.action.delete.DeleteRequest;
@@ -27,6 +27,7 @@ import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.sort.GeoDistanceSortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortMode;
+import org.elasticsearch.search.sort.SortOrder;
 
 public class EsRequestFactory {
 
@@ -190,14 +191,24 @@ public class EsRequestFactory {
     public static IndexRequest createIndexRequest(String indexName, String id, Object object) {
         IndexRequest indexRequest = new IndexRequest(indexName);
         indexRequest.id(id);
-        indexRequest.source(new Gson().toJson(object), XContentType.JSON);
+        indexRequest.source(EsDocumentCodec.write(object), XContentType.JSON);
 
         return indexRequest;
     }
 
     public static UpdateRequest createUpdateRequest(String index, String id, Object object) {
         UpdateRequest request = new UpdateRequest(index, id);
-        request.doc(new Gson().toJson(object), XContentType.JSON);
+        request.doc(EsDocumentCodec.write(object), XContentType.JSON);
+
+        return request;
+    }
+
+    /**
+     * Partial update from a map. Unlike the object variant, null values are kept, so a field can be cleared.
+     */
+    public static UpdateRequest createUpdateRequest(String index, String id, Map<String, Object> fields) {
+        UpdateRequest request = new UpdateRequest(index, id);
+        request.doc(fields);
 
         return request;
     }
@@ -222,6 +233,36 @@ public class EsRequestFactory {
         return request;
     }
 
+    public static SearchRequest createSearchByFieldValuesRequest(String index, String field, List<String> values) {
+
+        SearchRequest request = new SearchRequest(index);
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+
+        searchSourceBuilder.query(QueryBuilders.termsQuery(field, values));
+        searchSourceBuilder.from(0);
+        searchSourceBuilder.size(10000);
+
+        request.source(searchSourceBuilder);
+
+        return request;
+    }
+
+    public static SearchRequest createSearchByFieldRequest(String index, String field, Object value, String[] fieldsToInclude, String[] fieldsToExclude) {
+
+        SearchRequest request = new SearchRequest(index);
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+
+        TermQueryBuilder termQueryBuilder = QueryBuilders.termQuery(field, value);
+        searchSourceBuilder.query(termQueryBuilder);
+        searchSourceBuilder.from(0);
+        searchSourceBuilder.size(10000);
+        searchSourceBuilder.fetchSource(fieldsToInclude, fieldsToExclude);
+
+        request.source(searchSourceBuilder);
+
+        return request;
+    }
+
 
     public static DeleteByQueryRequest createDeleteByQuerydRequest(String[] indices, String field, String value) {
         
@@ -244,6 +285,16 @@ public class EsRequestFactory {
 
     }
 
+    public static UpdateRequest createUpdateWithScriptRequest(String index, String id, Script inline, String[] fieldsToInclude, String[] fieldsToExclude) {
+
+        UpdateRequest request = new UpdateRequest(index, id);
+        request.script(inline);
+        request.fetchSource(new FetchSourceContext(true, fieldsToInclude, fieldsToExclude));
+
+        return request;
+
+    }
+
     public static SearchRequest createNestedSearchRequest(String index, String path, String field, String value) {
 
         BoolQueryBuilder boolQueryBuilder = QueryBuilders.boolQuery();
@@ -265,4 +316,18 @@ public class EsRequestFactory {
         return request;
     }
 
+    public static SearchRequest paginate(SearchRequest request, int size, Object[] searchAfter, String tieBreakerField) {
+
+        SearchSourceBuilder searchSourceBuilder = request.source();
+        searchSourceBuilder.from(0);
+        searchSourceBuilder.size(size);
+        searchSourceBuilder.sort(SortBuilders.fieldSort(tieBreakerField).order(SortOrder.ASC));
+
+        if(searchAfter != null) {
+            searchSourceBuilder.searchAfter(searchAfter);
+        }
+
+        return request;
+    }
+
 }
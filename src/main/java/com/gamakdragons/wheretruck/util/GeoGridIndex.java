@@ -0,0 +1,160 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+
+import lombok.Getter;
+
+public class GeoGridIndex<T> {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private final double cellSize;
+    private final int lonCells;
+
+    private final Map<String, Entry<T>> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, Entry<T>>> cells = new ConcurrentHashMap<>();
+
+    public GeoGridIndex(double cellSizeInDegrees) {
+        this.cellSize = cellSizeInDegrees;
+        this.lonCells = (int) Math.ceil(360.0 / cellSizeInDegrees);
+    }
+
+    public synchronized void put(String id, GeoLocation geoLocation, T value) {
+        remove(id);
+
+        Entry<T> entry = new Entry<>(id, new GeoLocation(geoLocation.getLat(), geoLocation.getLon()), value);
+        entries.put(id, entry);
+        cells.computeIfAbsent(cellKey(latCell(entry.geoLocation.getLat()), lonCell(entry.geoLocation.getLon())), key -> new ConcurrentHashMap<>())
+                .put(id, entry);
+    }
+
+    public synchronized void remove(String id) {
+        Entry<T> entry = entries.remove(id);
+        if(entry == null) {
+            return;
+        }
+
+        long key = cellKey(latCell(entry.geoLocation.getLat()), lonCell(entry.geoLocation.getLon()));
+        Map<String, Entry<T>> cell = cells.get(key);
+        if(cell != null) {
+            cell.remove(id);
+            if(cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    public T get(String id) {
+        Entry<T> entry = entries.get(id);
+        return entry == null ? null : entry.value;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<T> findWithin(GeoLocation center, float distanceKm) {
+
+        List<Hit<T>> hits = searchWithin(center, distanceKm);
+
+        List<T> result = new ArrayList<>(hits.size());
+        hits.forEach(hit -> result.add(hit.value));
+        return result;
+    }
+
+    public List<Hit<T>> searchWithin(GeoLocation center, float distanceKm) {
+
+        double latDelta = distanceKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(center.getLat()));
+        double lonDelta = cosLat < 1e-6 ? 180.0 : Math.min(180.0, distanceKm / (KM_PER_DEGREE * cosLat));
+
+        int minLatCell = latCell(Math.max(-90.0, center.getLat() - latDelta));
+        int maxLatCell = latCell(Math.min(90.0, center.getLat() + latDelta));
+        int minLonCell = (int) Math.floor((center.getLon() - lonDelta + 180.0) / cellSize);
+        int maxLonCell = (int) Math.floor((center.getLon() + lonDelta + 180.0) / cellSize);
+        if(maxLonCell - minLonCell >= lonCells) {
+            minLonCell = 0;
+            maxLonCell = lonCells - 1;
+        }
+
+        List<Hit<T>> hits = new ArrayList<>();
+        for(int latIdx = minLatCell; latIdx <= maxLatCell; latIdx++) {
+            for(int lonIdx = minLonCell; lonIdx <= maxLonCell; lonIdx++) {
+                Map<String, Entry<T>> cell = cells.get(cellKey(latIdx, Math.floorMod(lonIdx, lonCells)));
+                if(cell == null) {
+                    continue;
+                }
+
+                for(Entry<T> entry : cell.values()) {
+                    double distance = distanceKm(center, entry.geoLocation);
+                    if(distance <= distanceKm) {
+                        hits.add(new Hit<>(entry.id, distance, entry.value));
+                    }
+                }
+            }
+        }
+
+        hits.sort(Comparator.<Hit<T>>comparingDouble(hit -> hit.distance).thenComparing(hit -> hit.id));
+
+        return hits;
+    }
+
+    public static double distanceKm(GeoLocation from, GeoLocation to) {
+
+        double lat1 = Math.toRadians(from.getLat());
+        double lat2 = Math.toRadians(to.getLat());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(to.getLon() - from.getLon());
+
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                    + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private int latCell(double lat) {
+        return (int) Math.floor((lat + 90.0) / cellSize);
+    }
+
+    private int lonCell(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180.0) / cellSize), lonCells);
+    }
+
+    private long cellKey(int latIdx, int lonIdx) {
+        return ((long) latIdx << 32) | (lonIdx & 0xffffffffL);
+    }
+
+    private static class Entry<T> {
+
+        private final String id;
+        private final GeoLocation geoLocation;
+        private final T value;
+
+        private Entry(String id, GeoLocation geoLocation, T value) {
+            this.id = id;
+            this.geoLocation = geoLocation;
+            this.value = value;
+        }
+    }
+
+    @Getter
+    public static class Hit<T> {
+
+        private final String id;
+        private final double distance;
+        private final T value;
+
+        private Hit(String id, double distance, T value) {
+            this.id = id;
+            this.distance = distance;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+public class ImageResizer {
+
+    private static final int ORIENTATION_TAG = 0x0112;
+
+    /**
+     * Decodes the image, subsampling while reading so that the longest side stays at or above minLongestSide,
+     * and turns it upright according to its EXIF orientation. Returns null when the file is not in a format
+     * ImageIO can read.
+     */
+    public static BufferedImage read(Path path, int minLongestSide, long maxPixels) throws IOException {
+
+        try(ImageInputStream in = ImageIO.createImageInputStream(path.toFile())) {
+            if(in == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if(!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if((long) width * height > maxPixels) {
+                    throw new IOException("image too large: " + width + "x" + height);
+                }
+
+                int subsampling = Math.max(1, Math.max(width, height) / Math.max(1, minLongestSide));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+
+                return orient(reader.read(0, param), orientation(path));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * EXIF orientation (1-8) of a JPEG, or 1 when the file has none. Cameras write the pixels in sensor order
+     * and record the rotation here, and ImageIO ignores it.
+     */
+    static int orientation(Path path) throws IOException {
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if(in.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+
+            while(true) {
+                int marker = in.readUnsignedShort();
+                if((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return 1;
+                }
+
+                int length = in.readUnsignedShort() - 2;
+                if(length < 0) {
+                    return 1;
+                }
+
+                if(marker == 0xFFE1) {
+                    byte[] segment = new byte[length];
+                    in.readFully(segment);
+                    int orientation = exifOrientation(segment);
+                    if(orientation > 0) {
+                        return orientation;
+                    }
+                } else {
+                    skip(in, length);
+                }
+            }
+        } catch(EOFException e) {
+            return 1;
+        }
+    }
+
+    /**
+     * Orientation from an APP1 segment, or 0 when the segment is not EXIF (XMP also lives in APP1).
+     */
+    private static int exifOrientation(byte[] segment) {
+
+        if(segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+            return 0;
+        }
+
+        int tiff = 6;
+        ByteBuffer buffer = ByteBuffer.wrap(segment)
+                                .order(segment[tiff] == 'I' ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+        try {
+            int ifd = tiff + buffer.getInt(tiff + 4);
+            int entries = buffer.getShort(ifd) & 0xFFFF;
+            for(int i = 0; i < entries; i++) {
+                int entry = ifd + 2 + i * 12;
+                if((buffer.getShort(entry) & 0xFFFF) == ORIENTATION_TAG) {
+                    int orientation = buffer.getShort(entry + 8) & 0xFFFF;
+                    return orientation >= 1 && orientation <= 8 ? orientation : 1;
+                }
+            }
+        } catch(IndexOutOfBoundsException e) {
+            return 1;
+        }
+        return 1;
+    }
+
+    private static void skip(DataInputStream in, int length) throws IOException {
+        while(length > 0) {
+            int skipped = in.skipBytes(length);
+            if(skipped <= 0) {
+                in.readByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    static BufferedImage orient(BufferedImage source, int orientation) {
+
+        int width = source.getWidth();
+        int height = source.getHeight();
+
+        AffineTransform transform;
+        switch(orientation) {
+            case 2:
+                transform = new AffineTransform(-1, 0, 0, 1, width, 0);
+                break;
+            case 3:
+                transform = new AffineTransform(-1, 0, 0, -1, width, height);
+                break;
+            case 4:
+                transform = new AffineTransform(1, 0, 0, -1, 0, height);
+                break;
+            case 5:
+                transform = new AffineTransform(0, 1, 1, 0, 0, 0);
+                break;
+            case 6:
+                transform = new AffineTransform(0, 1, -1, 0, height, 0);
+                break;
+            case 7:
+                transform = new AffineTransform(0, -1, -1, 0, height, width);
+                break;
+            case 8:
+                transform = new AffineTransform(0, -1, 1, 0, 0, width);
+                break;
+            default:
+                return source;
+        }
+
+        boolean swap = orientation >= 5;
+        BufferedImage target = new BufferedImage(swap ? height : width, swap ? width : height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, target.getWidth(), target.getHeight());
+            graphics.drawImage(source, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    public static byte[] toJpeg(BufferedImage source, int maxLongestSide, float quality) throws IOException {
+
+        BufferedImage resized = resize(source, maxLongestSide);
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+
+            writer.write(null, new IIOImage(resized, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Halves the image until it is within twice the target and then scales the rest of the way, which keeps
+     * bilinear downscaling from aliasing on large reductions. Alpha is flattened onto white for JPEG output.
+     */
+    static BufferedImage resize(BufferedImage source, int maxLongestSide) {
+
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        double scale = Math.min(1.0, (double) maxLongestSide / longest);
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = width / 2 >= targetWidth ? width / 2 : targetWidth;
+            height = height / 2 >= targetHeight ? height / 2 : targetHeight;
+            current = draw(current, width, height);
+        } while(width != targetWidth || height != targetHeight);
+
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+}
@@ -0,0 +1,47 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+public class RestTemplateMetricsInterceptor implements ClientHttpRequestInterceptor {
+
+    public static final String METRIC_NAME = "rest.client.requests";
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+
+        long start = System.nanoTime();
+        String outcome = "IO_ERROR";
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            outcome = outcome(response.getRawStatusCode());
+            return response;
+        } finally {
+            Timer.builder(METRIC_NAME)
+                    .tag("host", String.valueOf(request.getURI().getHost()))
+                    .tag("uri", String.valueOf(request.getURI().getPath()))
+                    .tag("method", String.valueOf(request.getMethodValue()))
+                    .tag("outcome", outcome)
+                    .register(Metrics.globalRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(int statusCode) {
+        if(statusCode >= 500) {
+            return "SERVER_ERROR";
+        }
+        if(statusCode >= 400) {
+            return "CLIENT_ERROR";
+        }
+        return "SUCCESS";
+    }
+}
@@ -0,0 +1,68 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+public class S3MetricCollector extends RequestMetricCollector {
+
+    public static final String METRIC_NAME = "s3.client.requests";
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+
+        AWSRequestMetrics requestMetrics = request.getAWSRequestMetrics();
+        if(requestMetrics == null) {
+            return;
+        }
+
+        TimingInfo timingInfo = requestMetrics.getTimingInfo();
+        Double elapsedMillis = timingInfo.getTimeTakenMillisIfKnown();
+        if(elapsedMillis == null) {
+            return;
+        }
+
+        Timer.builder(METRIC_NAME)
+                .tag("bucket", bucket(request))
+                .tag("operation", operation(request))
+                .tag("outcome", response == null ? "FAILURE" : "SUCCESS")
+                .register(Metrics.globalRegistry)
+                .record((long) (elapsedMillis * 1000), TimeUnit.MICROSECONDS);
+    }
+
+    private static String operation(Request<?> request) {
+        if(request.getOriginalRequest() == null) {
+            return request.getHttpMethod().name().toLowerCase();
+        }
+
+        String name = request.getOriginalRequest().getClass().getSimpleName();
+        return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+    }
+
+    private static String bucket(Request<?> request) {
+        if(request.getEndpoint() == null || request.getEndpoint().getHost() == null) {
+            return "none";
+        }
+
+        String host = request.getEndpoint().getHost();
+        int s3Start = host.indexOf(".s3");
+        if(s3Start > 0) {
+            return host.substring(0, s3Start);
+        }
+
+        String path = request.getResourcePath();
+        if(path != null && !path.isEmpty()) {
+            int slash = path.indexOf('/', path.startsWith("/") ? 1 : 0);
+            return path.substring(path.startsWith("/") ? 1 : 0, slash < 0 ? path.length() : slash);
+        }
+
+        return "none";
+    }
+}
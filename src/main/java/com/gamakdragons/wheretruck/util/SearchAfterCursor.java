@@ -0,0 +1,90 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+public class SearchAfterCursor {
+
+    public static final int MAX_PAGE_SIZE = 10000;
+
+    private static final Gson GSON = new Gson();
+
+    public static int pageSize(Integer size, int defaultSize) {
+        if(size == null || size <= 0) {
+            return defaultSize;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    public static String encode(Object[] sortValues) {
+        if(sortValues == null || sortValues.length == 0) {
+            return null;
+        }
+
+        String json = GSON.toJson(sortValues);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Object[] decode(String cursor) throws IllegalArgumentException {
+        if(cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        JsonArray array;
+        try {
+            String json = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            array = JsonParser.parseString(json).getAsJsonArray();
+        } catch(IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            throw new IllegalArgumentException("invalid cursor: " + cursor);
+        }
+
+        Object[] sortValues = new Object[array.size()];
+        for(int i = 0; i < array.size(); i++) {
+            sortValues[i] = toSortValue(array.get(i));
+        }
+
+        return sortValues;
+    }
+
+    /**
+     * Same as decode, but also rejects a cursor that does not carry one value per sort field. Such a cursor
+     * would otherwise only fail inside ES.
+     */
+    public static Object[] decode(String cursor, int sortValueCount) throws IllegalArgumentException {
+
+        Object[] sortValues = decode(cursor);
+        if(sortValues != null && sortValues.length != sortValueCount) {
+            throw new IllegalArgumentException("invalid cursor: expected " + sortValueCount + " sort values but got " + sortValues.length);
+        }
+
+        return sortValues;
+    }
+
+    private static Object toSortValue(JsonElement element) {
+        if(!element.isJsonPrimitive()) {
+            throw new IllegalArgumentException("invalid cursor value: " + element);
+        }
+
+        JsonPrimitive primitive = element.getAsJsonPrimitive();
+        if(primitive.isBoolean()) {
+            return primitive.getAsBoolean();
+        }
+
+        if(primitive.isNumber()) {
+            double value = primitive.getAsDouble();
+            if(value == Math.rint(value) && Math.abs(value) < (1L << 53)) {
+                return primitive.getAsLong();
+            }
+            return value;
+        }
+
+        return primitive.getAsString();
+    }
+}
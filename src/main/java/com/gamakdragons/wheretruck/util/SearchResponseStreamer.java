@@ -0,0 +1,145 @@
+package com.gamakdragons.wheretruck.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.SearchHit;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams every hit of a search as {"status":..,"numFound":..,"docs":[..]} page by page.
+ * The first page is searched up front so its status can go into the response before anything is written.
+ * A page failing after that ends the body with an "error" element next to "docs".
+ */
+@Slf4j
+public class SearchResponseStreamer implements StreamingResponseBody {
+
+    public static final int PAGE_SIZE = 1000;
+
+    private static final byte[] DOCS_END = "]}".getBytes(StandardCharsets.UTF_8);
+    private static final int COMMA = ',';
+
+    private final RestHighLevelClient esClient;
+    private final SearchRequest request;
+    private final int pageSize;
+    private final RestStatus status;
+    private final SearchResponse firstPage;
+    private final List<?> docs;
+
+    private SearchResponseStreamer(RestHighLevelClient esClient, SearchRequest request, int pageSize, RestStatus status, SearchResponse firstPage, List<?> docs) {
+        this.esClient = esClient;
+        this.request = request;
+        this.pageSize = pageSize;
+        this.status = status;
+        this.firstPage = firstPage;
+        this.docs = docs;
+    }
+
+    public static SearchResponseStreamer search(RestHighLevelClient esClient, SearchRequest request, String tieBreakerField) {
+        return search(esClient, request, tieBreakerField, PAGE_SIZE);
+    }
+
+    public static SearchResponseStreamer search(RestHighLevelClient esClient, SearchRequest request, String tieBreakerField, int pageSize) {
+
+        EsRequestFactory.paginate(request, pageSize, null, tieBreakerField);
+        request.source().trackTotalHits(true);
+
+        try {
+            SearchResponse response = esClient.search(request, RequestOptions.DEFAULT);
+            log.info("total hits: " + response.getHits().getTotalHits());
+            return new SearchResponseStreamer(esClient, request, pageSize, response.status(), response, null);
+        } catch(IOException | ElasticsearchException e) {
+            log.error("failed to start streaming search. " + e.getMessage());
+            return new SearchResponseStreamer(esClient, request, pageSize, RestStatus.INTERNAL_SERVER_ERROR, null, null);
+        }
+    }
+
+    /**
+     * Streams documents that are already in memory in the same shape as a search.
+     */
+    public static SearchResponseStreamer of(List<?> docs) {
+        return new SearchResponseStreamer(null, null, 0, RestStatus.OK, null, docs);
+    }
+
+    public RestStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+
+        if(docs != null) {
+            writeHeader(out, status, docs.size());
+            for(int i = 0; i < docs.size(); i++) {
+                if(i > 0) {
+                    out.write(COMMA);
+                }
+                out.write(EsDocumentCodec.write(docs.get(i)));
+            }
+            out.write(DOCS_END);
+            out.flush();
+            return;
+        }
+
+        if(firstPage == null) {
+            writeHeader(out, status, 0);
+            out.write(DOCS_END);
+            out.flush();
+            return;
+        }
+
+        writeHeader(out, status, firstPage.getHits().getTotalHits().value);
+
+        SearchResponse response = firstPage;
+        boolean first = true;
+        while(true) {
+            SearchHit[] hits = response.getHits().getHits();
+            for(SearchHit hit : hits) {
+                if(!first) {
+                    out.write(COMMA);
+                }
+                hit.getSourceRef().writeTo(out);
+                first = false;
+            }
+            out.flush();
+
+            if(hits.length < pageSize) {
+                break;
+            }
+
+            request.source().searchAfter(hits[hits.length - 1].getSortValues());
+            request.source().trackTotalHits(false);
+            try {
+                response = esClient.search(request, RequestOptions.DEFAULT);
+            } catch(IOException | ElasticsearchException e) {
+                log.error("streaming search failed after the response was committed. " + e.getMessage());
+                writeError(out, RestStatus.INTERNAL_SERVER_ERROR);
+                return;
+            }
+        }
+
+        out.write(DOCS_END);
+        out.flush();
+    }
+
+    private static void writeHeader(OutputStream out, RestStatus status, long numFound) throws IOException {
+        String header = "{\"status\":\"" + status.name() + "\",\"numFound\":" + numFound + ",\"docs\":[";
+        out.write(header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeError(OutputStream out, RestStatus status) throws IOException {
+        String error = "],\"error\":\"" + status.name() + "\"}";
+        out.write(error.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+}
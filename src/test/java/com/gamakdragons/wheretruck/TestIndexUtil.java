@@ -34,6 +34,8 @@ public class TestIndexUtil {
     private static String TEST_REGION_INDEX;
     private static String TEST_FAVORITE_INDEX;
     private static String TEST_USER_INDEX;
+    private static String TEST_RATING_INDEX;
+    private static String TEST_TRUCK_LOCATION_INDEX_PREFIX;
 
     private static RestHighLevelClient esClient;
 
@@ -57,6 +59,16 @@ public class TestIndexUtil {
 		TEST_USER_INDEX = value;
 	}
 
+	@Value("${elasticsearch.index.rating.name}")
+	public void injectRatingIndexName(String value) {
+		TEST_RATING_INDEX = value;
+	}
+
+	@Value("${elasticsearch.index.truck-location.prefix}")
+	public void injectTruckLocationIndexPrefix(String value) {
+		TEST_TRUCK_LOCATION_INDEX_PREFIX = value;
+	}
+
     private static ElasticsearchContainer elasticsearchContainer;
 
     public static void createElasticSearchTestContainer() {
@@ -94,6 +106,7 @@ public class TestIndexUtil {
 		createTestTruckIndex();
 		createTestFavoriteIndex();
 		createTestUserIndex();
+		createTestRatingIndex();
 	}
 
 	public static void deleteTestIndices() throws IOException {
@@ -101,6 +114,8 @@ public class TestIndexUtil {
 		deleteTestTruckIndex();
 		deleteTestFavoriteIndex();
 		deleteTestUserIndex();
+		deleteTestRatingIndex();
+		deleteTestTruckLocationIndices();
 	}
 
 	public static void createTestRegionIndex() throws IOException {
@@ -117,6 +132,12 @@ public class TestIndexUtil {
         {
             builder.startObject("properties");
             {
+                builder.startObject("id");
+                {
+                    builder.field("type", "keyword");
+                }
+                builder.endObject();
+
                 builder.startObject("regionName");
                 {
                     builder.field("type", "keyword");
@@ -324,12 +345,31 @@ public class TestIndexUtil {
                 }
                 builder.endObject();
 
+                builder.startObject("ratingSum");
+                {
+                    builder.field("type", "double");
+                }
+                builder.endObject();
+
                 builder.startObject("imageUrl");
                 {
                     builder.field("type", "keyword");
                 }
                 builder.endObject();
 
+                builder.startObject("imageVariants");
+                {
+                    builder.field("type", "object");
+                    builder.field("enabled", false);
+                }
+                builder.endObject();
+
+                builder.startObject("imageVersion");
+                {
+                    builder.field("type", "long");
+                }
+                builder.endObject();
+
                 builder.startObject("foods");
                 {
                     builder.field("type", "nested");
@@ -360,6 +400,12 @@ public class TestIndexUtil {
                             builder.field("type", "keyword");
                         }
                         builder.endObject();
+                        builder.startObject("imageVariants");
+                        {
+                            builder.field("type", "object");
+                            builder.field("enabled", false);
+                        }
+                        builder.endObject();
                         builder.startObject("image");
                         {
                             builder.field("type", "dense_vector");
@@ -370,50 +416,6 @@ public class TestIndexUtil {
                     builder.endObject();
                 }
                 builder.endObject();
-                builder.startObject("ratings");
-                {
-                    builder.field("type", "nested");
-                    builder.startObject("properties");
-                        builder.startObject("id");
-                        {
-                            builder.field("type", "keyword");
-                        }
-                        builder.endObject();
-                        builder.startObject("truckId");
-                        {
-                            builder.field("type", "keyword");
-                        }
-                        builder.endObject();
-                        builder.startObject("userId");
-                        {
-                            builder.field("type", "keyword");
-                        }
-                        builder.endObject();
-                        builder.startObject("star");
-                        {
-                            builder.field("type", "double");
-                        }
-                        builder.endObject();
-                        builder.startObject("comment");
-                        {
-                            builder.field("type", "keyword");
-                        }
-                        builder.endObject();
-                        builder.startObject("createdDate");
-                        {
-                            builder.field("type", "date");
-                            builder.field("format", "yyyy-MM-dd HH:mm:ss");
-                        }
-                        builder.endObject();
-                        builder.startObject("updatedDate");
-                        {
-                            builder.field("type", "date");
-                            builder.field("format", "yyyy-MM-dd HH:mm:ss");
-                        }
-                        builder.endObject();
-                    builder.endObject();
-                }
-                builder.endObject();
             }
             builder.endObject();
         }
@@ -576,5 +578,105 @@ public class TestIndexUtil {
 
     }
 
-    
+	public static void createTestRatingIndex() throws IOException {
+
+        CreateIndexRequest request = new CreateIndexRequest(TEST_RATING_INDEX);
+
+        request.settings(Settings.builder()
+            .put("index.number_of_shards", 3)
+            .put("index.number_of_replicas", 1)
+        );
+
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        {
+            builder.startObject("properties");
+            {
+                builder.startObject("id");
+                {
+                    builder.field("type", "keyword");
+                }
+                builder.endObject();
+
+                builder.startObject("truckId");
+                {
+                    builder.field("type", "keyword");
+                }
+                builder.endObject();
+
+                builder.startObject("userId");
+                {
+                    builder.field("type", "keyword");
+                }
+                builder.endObject();
+
+                builder.startObject("star");
+                {
+                    builder.field("type", "float");
+                }
+                builder.endObject();
+
+                builder.startObject("comment");
+                {
+                    builder.field("type", "keyword");
+                }
+                builder.endObject();
+
+                builder.startObject("createdDate");
+                {
+                    builder.field("type", "date");
+                    builder.field("format", "yyyy-MM-dd HH:mm:ss");
+                }
+                builder.endObject();
+
+                builder.startObject("updatedDate");
+                {
+                    builder.field("type", "date");
+                    builder.field("format", "yyyy-MM-dd HH:mm:ss");
+                }
+                builder.endObject();
+            }
+            builder.endObject();
+        }
+        builder.endObject();
+
+        request.mapping(builder);
+
+        CreateIndexResponse response = esClient.indices().create(request, RequestOptions.DEFAULT);
+        log.info("index created: " + response.index());
+        if(!response.isAcknowledged()) {
+            throw new IOException();
+        }
+
+        try {
+            Thread.sleep(1000);
+        } catch(InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+	public static void deleteTestRatingIndex() throws IOException {
+        GetIndexRequest getIndexRequest = new GetIndexRequest(TEST_RATING_INDEX);
+        if(esClient.indices().exists(getIndexRequest, RequestOptions.DEFAULT)) {
+            DeleteIndexRequest request = new DeleteIndexRequest(TEST_RATING_INDEX);
+            AcknowledgedResponse response = esClient.indices().delete(request, RequestOptions.DEFAULT);
+            log.info("index deleted: " + response.isAcknowledged());
+            if(!response.isAcknowledged()) {
+                throw new IOException();
+            }
+        }
+
+    }
+
+	public static void deleteTestTruckLocationIndices() throws IOException {
+        GetIndexRequest getIndexRequest = new GetIndexRequest(TEST_TRUCK_LOCATION_INDEX_PREFIX + "-*");
+        if(esClient.indices().exists(getIndexRequest, RequestOptions.DEFAULT)) {
+            DeleteIndexRequest request = new DeleteIndexRequest(TEST_TRUCK_LOCATION_INDEX_PREFIX + "-*");
+            AcknowledgedResponse response = esClient.indices().delete(request, RequestOptions.DEFAULT);
+            log.info("index deleted: " + response.isAcknowledged());
+            if(!response.isAcknowledged()) {
+                throw new IOException();
+            }
+        }
+    }
 }
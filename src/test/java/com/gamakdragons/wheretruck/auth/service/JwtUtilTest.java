@@ -0,0 +1,65 @@
+package com.gamakdragons.wheretruck.auth.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.UUID;
+
+import com.gamakdragons.wheretruck.auth.exception.JwtException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class JwtUtilTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil.setSecretKey("wheretruck-test-secret-key-wheretruck-test-secret-key");
+        jwtUtil.setExpirationTime(1);
+        jwtUtil.setValidatedTokenCacheSize(2);
+    }
+
+    @Test
+    void testValidate() {
+        String userId = UUID.randomUUID().toString();
+        String token = JwtUtil.generateToken(userId);
+
+        assertThat(JwtUtil.validate(token), is(userId));
+        assertThat(JwtUtil.validate(token), is(userId));
+    }
+
+    @Test
+    void testValidateWithEvictedToken() {
+        String token1 = JwtUtil.generateToken("user1");
+        String token2 = JwtUtil.generateToken("user2");
+        String token3 = JwtUtil.generateToken("user3");
+
+        assertThat(JwtUtil.validate(token1), is("user1"));
+        assertThat(JwtUtil.validate(token2), is("user2"));
+        assertThat(JwtUtil.validate(token3), is("user3"));
+        assertThat(JwtUtil.validate(token1), is("user1"));
+    }
+
+    @Test
+    void testValidateWithInvalidSignature() {
+        String token = JwtUtil.generateToken("user1");
+        JwtUtil.validate(token);
+
+        jwtUtil.setSecretKey("another-secret-key-another-secret-key-another-secret-key");
+
+        JwtException e = assertThrows(JwtException.class, () -> JwtUtil.validate(token));
+        assertThat(e.getMessage(), is("Invalid JWT signature"));
+    }
+
+    @Test
+    void testValidateWithExpiredToken() {
+        jwtUtil.setExpirationTime(0);
+        String token = JwtUtil.generateToken("user1");
+
+        JwtException e = assertThrows(JwtException.class, () -> JwtUtil.validate(token));
+        assertThat(e.getMessage(), is("JWT token is expired"));
+    }
+}
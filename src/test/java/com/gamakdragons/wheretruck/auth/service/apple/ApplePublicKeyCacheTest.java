@@ -0,0 +1,158 @@
+package com.gamakdragons.wheretruck.auth.service.apple;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gamakdragons.wheretruck.auth.service.JwtUtil;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+
+public class ApplePublicKeyCacheTest {
+
+    private static final String PUBLIC_KEY_URL = "https://appleid.test/auth/keys";
+    private static final long TTL_MS = 60000;
+    private static final long REFRESH_AHEAD_MS = 10000;
+    private static final long MIN_REFETCH_INTERVAL_MS = 5000;
+
+    private static KeyPair keyPair1;
+    private static KeyPair keyPair2;
+
+    private MockRestServiceServer keyServer;
+    private AtomicLong now;
+    private ApplePublicKeyCache cache;
+
+    @BeforeAll
+    static void generateKeys() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair1 = generator.generateKeyPair();
+        keyPair2 = generator.generateKeyPair();
+    }
+
+    @BeforeEach
+    void setUp() {
+        RestTemplate restTemplate = new RestTemplate();
+        keyServer = MockRestServiceServer.bindTo(restTemplate).build();
+        now = new AtomicLong(1000000);
+        cache = new ApplePublicKeyCache(restTemplate, PUBLIC_KEY_URL, TTL_MS, REFRESH_AHEAD_MS, MIN_REFETCH_INTERVAL_MS, Runnable::run, now::get);
+    }
+
+    @Test
+    void testKeysAreFetchedOnce() {
+        expectKeys(jwk("kid1", keyPair1));
+
+        assertThat(cache.get("kid1", "RS256").get(), is(keyPair1.getPublic()));
+        now.addAndGet(1000);
+        assertThat(cache.get("kid1", "RS256").get(), is(keyPair1.getPublic()));
+        assertThat(cache.get("kid1", "ES256").isPresent(), is(false));
+
+        keyServer.verify();
+    }
+
+    @Test
+    void testUnknownKidRefetches() {
+        expectKeys(jwk("kid1", keyPair1));
+        expectKeys(jwk("kid1", keyPair1), jwk("kid2", keyPair2));
+
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(true));
+        assertThat(cache.get("kid2", "RS256").isPresent(), is(false));
+
+        now.addAndGet(MIN_REFETCH_INTERVAL_MS);
+        assertThat(cache.get("kid2", "RS256").get(), is(keyPair2.getPublic()));
+
+        keyServer.verify();
+    }
+
+    @Test
+    void testExpiredKeysAreRefetched() {
+        expectKeys(jwk("kid1", keyPair1));
+        expectKeys(jwk("kid2", keyPair2));
+
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(true));
+
+        now.addAndGet(TTL_MS);
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(false));
+        assertThat(cache.get("kid2", "RS256").get(), is(keyPair2.getPublic()));
+
+        keyServer.verify();
+    }
+
+    @Test
+    void testKeysAreRefreshedAhead() {
+        expectKeys(jwk("kid1", keyPair1));
+        expectKeys(jwk("kid2", keyPair2));
+
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(true));
+
+        now.addAndGet(TTL_MS - REFRESH_AHEAD_MS);
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(true));
+        assertThat(cache.get("kid2", "RS256").get(), is(keyPair2.getPublic()));
+
+        keyServer.verify();
+    }
+
+    @Test
+    void testFailedRefreshAheadIsNotRetriedWithinMinInterval() {
+        expectKeys(jwk("kid1", keyPair1));
+        keyServer.expect(once(), requestTo(PUBLIC_KEY_URL)).andRespond(withServerError());
+
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(true));
+
+        now.addAndGet(TTL_MS - REFRESH_AHEAD_MS);
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(true));
+
+        now.addAndGet(MIN_REFETCH_INTERVAL_MS - 1);
+        assertThat(cache.get("kid1", "RS256").isPresent(), is(true));
+
+        keyServer.verify();
+    }
+
+    @Test
+    void testParseUserIdFromAppleJwt() {
+        expectKeys(jwk("kid1", keyPair1), jwk("kid2", keyPair2));
+
+        String identityToken = Jwts.builder()
+                                    .setHeaderParam("kid", "kid2")
+                                    .setSubject("apple-user")
+                                    .signWith(SignatureAlgorithm.RS256, keyPair2.getPrivate())
+                                    .compact();
+
+        assertThat(JwtUtil.parseUserIdFormAppleJwt(identityToken, cache), is("apple-user"));
+        assertThat(JwtUtil.parseUserIdFormAppleJwt(identityToken, cache), is("apple-user"));
+
+        keyServer.verify();
+    }
+
+    private void expectKeys(String... jwks) {
+        keyServer.expect(once(), requestTo(PUBLIC_KEY_URL))
+                .andRespond(withSuccess("{\"keys\":[" + String.join(",", jwks) + "]}", MediaType.APPLICATION_JSON));
+    }
+
+    private static String jwk(String kid, KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        return "{\"kty\":\"RSA\",\"kid\":\"" + kid + "\",\"use\":\"sig\",\"alg\":\"RS256\""
+                + ",\"n\":\"" + encoder.encodeToString(publicKey.getModulus().toByteArray()) + "\""
+                + ",\"e\":\"" + encoder.encodeToString(publicKey.getPublicExponent().toByteArray()) + "\"}";
+    }
+}
@@ -1,26 +1,33 @@
 package com.gamakdragons.wheretruck.cloud.aws.service;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
 import java.util.Iterator;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.CreateBucketRequest;
 import com.amazonaws.services.s3.model.DeleteBucketRequest;
 import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.config.S3Config;
 
 import org.junit.jupiter.api.AfterEach;
@@ -35,7 +42,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import lombok.extern.slf4j.Slf4j;
 
 @SpringBootTest(
-    classes = {S3ServiceImpl.class, S3Config.class}, 
+    classes = {S3ServiceImpl.class, ImagePipeline.class, S3Config.class}, 
     properties = {"spring.config.location=classpath:application-test.yml"}
 )
 @Slf4j
@@ -44,20 +51,17 @@ public class S3ServiceImplTest {
     @Value("${cloud.aws.s3.bucket.food_image}")
     private String FOOD_IMAGE_BUCKET;
 
-    @Value("${cloud.aws.credentials.accessKey}")
-    private String accessKey;
-
-    @Value("${cloud.aws.credentials.secretKey}")
-    private String secretKey;
-
+    @Autowired
     private AmazonS3 s3Client;
 
     @Autowired
     private S3Service service;
 
+    @Autowired
+    private ImagePipeline imagePipeline;
+
     @BeforeEach
     public void setup() {
-        initS3Client();
         createS3Bucket(FOOD_IMAGE_BUCKET);
     }
 
@@ -86,6 +90,24 @@ public class S3ServiceImplTest {
         assertThat(readImageBinary, is(imageBinary));
     }
 
+    @Test
+    void testUploadLargeImageAsMultipart() {
+
+        String truckId = UUID.randomUUID().toString();
+        String foodId = UUID.randomUUID().toString();
+
+        byte[] imageBinary = new byte[6 * 1024 * 1024];
+        new Random().nextBytes(imageBinary);
+        MockMultipartFile imageFile = new MockMultipartFile("file", null, MediaType.IMAGE_JPEG_VALUE, imageBinary);
+        String imageUrl = service.uploadImage(FOOD_IMAGE_BUCKET, truckId + foodId, imageFile);
+        log.info("image uploaded. url="+ imageUrl);
+
+        ObjectMetadata metadata = s3Client.getObjectMetadata(FOOD_IMAGE_BUCKET, truckId + foodId);
+        assertThat(metadata.getContentLength(), is((long) imageBinary.length));
+        assertThat(metadata.getContentType(), is(MediaType.IMAGE_JPEG_VALUE));
+        assertThat(metadata.getETag().contains("-"), is(true));
+    }
+
     @Test
     void testDeleteImage() {
 
@@ -100,14 +122,117 @@ public class S3ServiceImplTest {
 
         assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, truckId + foodId), is(true));
         assertThat(service.deleteImage(FOOD_IMAGE_BUCKET, truckId + foodId), is(true));
+        assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, truckId + foodId), is(false));
     }
 
-    public void initS3Client() {
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        s3Client = AmazonS3ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .withRegion(Regions.AP_NORTHEAST_2)
-                .build();
+    @Test
+    void testDeleteMissingImage() {
+        assertThat(service.deleteImage(FOOD_IMAGE_BUCKET, UUID.randomUUID().toString()), is(true));
+    }
+
+    @Test
+    void testUploadImageRecreatesDeletedBucket() {
+
+        byte[] imageBinary = new byte[128];
+        new Random().nextBytes(imageBinary);
+        MockMultipartFile imageFile = new MockMultipartFile("file", null, MediaType.MULTIPART_FORM_DATA_VALUE, imageBinary);
+        service.uploadImage(FOOD_IMAGE_BUCKET, UUID.randomUUID().toString(), imageFile);
+
+        deleteAllBucketObjects(FOOD_IMAGE_BUCKET);
+        deleteS3Bucket(FOOD_IMAGE_BUCKET);
+
+        String fileName = UUID.randomUUID().toString();
+        service.uploadImage(FOOD_IMAGE_BUCKET, fileName, imageFile);
+
+        assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, fileName), is(true));
+    }
+
+    @Test
+    void testDeleteImagesWithPrefix() {
+
+        String truckId = UUID.randomUUID().toString();
+        String otherTruckId = UUID.randomUUID().toString();
+
+        byte[] imageBinary = new byte[128];
+        new Random().nextBytes(imageBinary);
+        MockMultipartFile imageFile = new MockMultipartFile("file", null, MediaType.MULTIPART_FORM_DATA_VALUE, imageBinary);
+        for(int i = 0; i < 3; i++) {
+            service.uploadImage(FOOD_IMAGE_BUCKET, truckId + "/" + UUID.randomUUID().toString(), imageFile);
+        }
+        service.uploadImage(FOOD_IMAGE_BUCKET, otherTruckId + "/" + UUID.randomUUID().toString(), imageFile);
+
+        assertThat(service.deleteImagesWithPrefixAsync(FOOD_IMAGE_BUCKET, truckId + "/").join(), is(3));
+        assertThat(s3Client.listObjectsV2(FOOD_IMAGE_BUCKET, truckId + "/").getKeyCount(), is(0));
+        assertThat(s3Client.listObjectsV2(FOOD_IMAGE_BUCKET, otherTruckId + "/").getKeyCount(), is(1));
+    }
+
+    @Test
+    void testPresignedUpload() throws IOException {
+
+        String fileName = UUID.randomUUID().toString();
+
+        PresignedUpload upload = service.createUploadUrl(FOOD_IMAGE_BUCKET, fileName, MediaType.IMAGE_JPEG_VALUE);
+        assertThat(service.isUploadKeyOf(fileName, upload.getKey()), is(true));
+        assertThat(service.isUploadKeyOf(UUID.randomUUID().toString(), upload.getKey()), is(false));
+        assertThat(service.getImageMetadata(FOOD_IMAGE_BUCKET, upload.getKey()), is(nullValue()));
+
+        byte[] imageBinary = new byte[128];
+        new Random().nextBytes(imageBinary);
+        uploadToPresignedUrl(upload, imageBinary);
+
+        ObjectMetadata metadata = service.getImageMetadata(FOOD_IMAGE_BUCKET, upload.getKey());
+        assertThat(metadata.getContentLength(), is((long) imageBinary.length));
+        assertThat(metadata.getContentType(), is(MediaType.IMAGE_JPEG_VALUE));
+
+        String imageUrl = service.copyImage(FOOD_IMAGE_BUCKET, upload.getKey(), fileName);
+        assertThat(imageUrl, is(service.getImageUrl(FOOD_IMAGE_BUCKET, fileName)));
+
+        byte[] readImageBinary = new byte[128];
+        s3Client.getObject(new GetObjectRequest(FOOD_IMAGE_BUCKET, fileName)).getObjectContent().read(readImageBinary);
+        assertThat(readImageBinary, is(imageBinary));
+    }
+
+    @Test
+    void testImagePipelineUploadsVariants() throws IOException {
+
+        String fileName = UUID.randomUUID().toString();
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1600, 1200, BufferedImage.TYPE_INT_ARGB), "png", png);
+        MockMultipartFile imageFile = new MockMultipartFile("file", null, MediaType.IMAGE_PNG_VALUE, png.toByteArray());
+
+        AtomicReference<Map<String, String>> uploaded = new AtomicReference<>();
+        imagePipeline.submit(FOOD_IMAGE_BUCKET, fileName, imageFile, uploaded::set);
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
+
+        assertThat(uploaded.get().get(ImagePipeline.ORIGINAL), is(service.getImageUrl(FOOD_IMAGE_BUCKET, fileName)));
+        assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, fileName), is(true));
+
+        BufferedImage medium = ImageIO.read(s3Client.getObject(FOOD_IMAGE_BUCKET, ImagePipeline.variantName(fileName, ImagePipeline.MEDIUM)).getObjectContent());
+        assertThat(medium.getWidth(), is(800));
+        assertThat(medium.getHeight(), is(600));
+
+        BufferedImage thumb = ImageIO.read(s3Client.getObject(FOOD_IMAGE_BUCKET, ImagePipeline.variantName(fileName, ImagePipeline.THUMB)).getObjectContent());
+        assertThat(thumb.getWidth(), is(200));
+        assertThat(thumb.getHeight(), is(150));
+
+        assertThat(imagePipeline.delete(FOOD_IMAGE_BUCKET, fileName), is(3));
+        assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, ImagePipeline.variantName(fileName, ImagePipeline.THUMB)), is(false));
+    }
+
+    private void uploadToPresignedUrl(PresignedUpload upload, byte[] body) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(upload.getUrl()).openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", upload.getContentType());
+        connection.setFixedLengthStreamingMode(body.length);
+        try(OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        assertThat(connection.getResponseCode(), is(200));
+        connection.disconnect();
     }
 
     public void createS3Bucket(String bucketName) {
@@ -1,11 +1,14 @@
 package com.gamakdragons.wheretruck.domain.favorite.controller;
 
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.Collections;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
@@ -24,6 +27,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -64,11 +68,15 @@ public class FavoriteControllerTest {
 
 		String truckId = UUID.randomUUID().toString();
 
-		given(favoriteService.countByTruckId(truckId)).willReturn(3);
+		given(favoriteService.countByTruckIdAsync(truckId)).willReturn(CompletableFuture.completedFuture(3));
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/favorite/truck/" + truckId);
 			
-		mockMvc.perform(request)
+		MvcResult mvcResult = mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string("3"));
@@ -93,12 +101,16 @@ public class FavoriteControllerTest {
 														.docs(Collections.singletonList(truck))
 														.build();
 
-		given(favoriteService.findByUserId(truck.getUserId())).willReturn(result);
+		given(favoriteService.findByUserIdAsync(truck.getUserId())).willReturn(CompletableFuture.completedFuture(result));
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/favorite/my")
 																	.requestAttr("userId", truck.getUserId());
 			
-		mockMvc.perform(request)
+		MvcResult mvcResult = mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
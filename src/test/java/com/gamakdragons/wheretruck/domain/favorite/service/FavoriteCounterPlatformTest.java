@@ -0,0 +1,115 @@
+package com.gamakdragons.wheretruck.domain.favorite.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import com.gamakdragons.wheretruck.TestIndexUtil;
+import com.gamakdragons.wheretruck.domain.favorite.entity.Favorite;
+import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+import com.gamakdragons.wheretruck.util.EsFutures;
+import com.gamakdragons.wheretruck.util.EsRequestFactory;
+
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(classes = {ElasticSearchTestConfig.class, TestIndexUtil.class},
+                properties = {"spring.config.location=classpath:application-test.yml"})
+public class FavoriteCounterPlatformTest {
+
+    private static final long REFRESH_GRACE_MS = 60000;
+
+    @Value("${elasticsearch.index.favorite.name}")
+    private String TEST_FAVORITE_INDEX;
+
+    @Autowired
+    private RestHighLevelClient esClient;
+
+    private FavoriteCounter counter;
+
+    @BeforeAll
+    public static void beforeAll() {
+        TestIndexUtil.createElasticSearchTestContainer();
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        TestIndexUtil.closeElasticSearchTestContainer();
+    }
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+
+        TestIndexUtil.initRestHighLevelClient();
+        TestIndexUtil.deleteTestFavoriteIndex();
+        TestIndexUtil.createTestFavoriteIndex();
+
+        counter = new FavoriteCounter(esClient, new EsFutures(esClient, 1, 100), TEST_FAVORITE_INDEX, REFRESH_GRACE_MS);
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        TestIndexUtil.deleteTestFavoriteIndex();
+    }
+
+    @Test
+    void testCountFallsBackToCountQueryBeforeReconcile() throws IOException {
+
+        indexFavorites("truck1", 2);
+        indexFavorites("truck2", 1);
+
+        assertThat(counter.countAsync("truck1").join(), is(2));
+        assertThat(counter.countAsync("truck2").join(), is(1));
+        assertThat(counter.countAsync("truck3").join(), is(0));
+    }
+
+    @Test
+    void testReconcileLoadsCountsFromIndex() throws IOException {
+
+        indexFavorites("truck1", 2);
+        indexFavorites("truck2", 3);
+
+        counter.reconcile();
+
+        assertThat(counter.countAsync("truck1").join(), is(2));
+        assertThat(counter.countAsync("truck2").join(), is(3));
+    }
+
+    @Test
+    void testTruckTouchedDuringReconcileKeepsInMemoryCount() throws IOException {
+
+        indexFavorites("truck1", 2);
+        assertThat(counter.countAsync("truck1").join(), is(2));
+
+        // the third favorite is saved but not yet visible to the aggregation
+        counter.increment("truck1");
+        counter.reconcile();
+
+        assertThat(counter.countAsync("truck1").join(), is(3));
+    }
+
+    private void indexFavorites(String truckId, int count) throws IOException {
+
+        for(int i = 0; i < count; i++) {
+            Favorite favorite = new Favorite();
+            favorite.setId(UUID.randomUUID().toString());
+            favorite.setTruckId(truckId);
+            favorite.setUserId(UUID.randomUUID().toString());
+
+            esClient.index(EsRequestFactory.createIndexRequest(TEST_FAVORITE_INDEX, favorite.getId(), favorite), RequestOptions.DEFAULT);
+        }
+
+        esClient.indices().refresh(new RefreshRequest(TEST_FAVORITE_INDEX), RequestOptions.DEFAULT);
+    }
+}
@@ -16,6 +16,7 @@ import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.domain.favorite.entity.Favorite;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
 import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+import com.gamakdragons.wheretruck.util.EsFutures;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -25,7 +26,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest(classes = {FavoriteServiceImpl.class, ElasticSearchTestConfig.class, TestIndexUtil.class}, 
+@SpringBootTest(classes = {FavoriteServiceImpl.class, FavoriteSetCache.class, FavoriteCounter.class, ElasticSearchTestConfig.class, EsFutures.class, TestIndexUtil.class}, 
                 properties = {"spring.config.location=classpath:application-test.yml"})
 public class FavoriteServiceImplPlatformTest {
 
@@ -97,7 +98,7 @@ public class FavoriteServiceImplPlatformTest {
 			e.printStackTrace();
 		}
 
-		assertThat(favoriteService.countByTruckId(truckId), is(1));
+		assertThat(favoriteService.countByTruckIdAsync(truckId).join(), is(1));
 	}
 
 	@Test
@@ -119,7 +120,7 @@ public class FavoriteServiceImplPlatformTest {
 			e.printStackTrace();
 		}
 
-		SearchResultDto<Truck> searchResult = favoriteService.findByUserId(userId);
+		SearchResultDto<Truck> searchResult = favoriteService.findByUserIdAsync(userId).join();
 		assertThat(searchResult.getDocs(), hasItem(allOf(hasProperty("id", is(truckId)), hasProperty("userId", is(userId)))));
 	}
 
@@ -0,0 +1,61 @@
+package com.gamakdragons.wheretruck.domain.favorite.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+public class FavoriteSetCacheTest {
+
+    @Test
+    void testPutAndGet() {
+        FavoriteSetCache cache = new FavoriteSetCache(10, 60000);
+
+        cache.put("user1", Arrays.asList("truck1", "truck2"), cache.version());
+
+        assertThat(cache.get("user1"), contains("truck1", "truck2"));
+        assertThat(cache.get("user2"), is(nullValue()));
+    }
+
+    @Test
+    void testStaleLoadIsNotCached() {
+        FavoriteSetCache cache = new FavoriteSetCache(10, 60000);
+
+        long version = cache.version();
+        cache.add("user1", "truck3");
+        cache.put("user1", Arrays.asList("truck1", "truck2"), version);
+
+        assertThat(cache.get("user1"), is(nullValue()));
+    }
+
+    @Test
+    void testAddAndRemoveTruck() {
+        FavoriteSetCache cache = new FavoriteSetCache(10, 60000);
+
+        cache.put("user1", Arrays.asList("truck1", "truck2"), cache.version());
+        cache.put("user2", Arrays.asList("truck2"), cache.version());
+
+        cache.add("user1", "truck3");
+        cache.removeTruck("truck2");
+
+        assertThat(cache.get("user1"), contains("truck1", "truck3"));
+        assertThat(cache.get("user2").isEmpty(), is(true));
+    }
+
+    @Test
+    void testExpiredAndEvictedEntries() {
+        FavoriteSetCache expiring = new FavoriteSetCache(10, 0);
+        expiring.put("user1", Arrays.asList("truck1"), expiring.version());
+        assertThat(expiring.get("user1"), is(nullValue()));
+
+        FavoriteSetCache bounded = new FavoriteSetCache(1, 60000);
+        bounded.put("user1", Arrays.asList("truck1"), bounded.version());
+        bounded.put("user2", Arrays.asList("truck2"), bounded.version());
+        assertThat(bounded.get("user1"), is(nullValue()));
+        assertThat(bounded.get("user2"), contains("truck2"));
+    }
+}
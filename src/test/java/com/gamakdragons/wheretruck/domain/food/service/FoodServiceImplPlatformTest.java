@@ -16,26 +16,28 @@ import java.util.stream.Collectors;
 
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.DeleteBucketRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.gamakdragons.wheretruck.TestIndexUtil;
+import com.gamakdragons.wheretruck.cloud.aws.service.ImagePipeline;
 import com.gamakdragons.wheretruck.cloud.aws.service.S3ServiceImpl;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.config.S3Config;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteCounter;
 import com.gamakdragons.wheretruck.domain.food.dto.FoodSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.food.entity.Food;
 import com.gamakdragons.wheretruck.domain.truck.dto.TruckSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.domain.truck.service.OpenTruckIndex;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckEventHub;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckLocationHistory;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckLocationBuffer;
 import com.gamakdragons.wheretruck.domain.truck.service.TruckService;
 import com.gamakdragons.wheretruck.domain.truck.service.TruckServiceImpl;
 import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+import com.gamakdragons.wheretruck.util.EsFutures;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -51,20 +53,15 @@ import org.springframework.mock.web.MockMultipartFile;
 import lombok.extern.slf4j.Slf4j;
 
 @SpringBootTest(
-    classes = {TruckServiceImpl.class, FoodServiceImpl.class, S3ServiceImpl.class, ElasticSearchTestConfig.class, S3Config.class, TestIndexUtil.class},
+    classes = {TruckServiceImpl.class, OpenTruckIndex.class, TruckLocationBuffer.class, TruckEventHub.class, TruckLocationHistory.class, FavoriteCounter.class, FoodServiceImpl.class, S3ServiceImpl.class, ImagePipeline.class, ElasticSearchTestConfig.class, EsFutures.class, S3Config.class, TestIndexUtil.class},
     properties = {"spring.config.location=classpath:application-test.yml"}
 )
 @Slf4j
 public class FoodServiceImplPlatformTest {
 
+    @Autowired
     private AmazonS3 s3Client;
 
-    @Value("${cloud.aws.credentials.accessKey}")
-    private String accessKey;
-
-    @Value("${cloud.aws.credentials.secretKey}")
-    private String secretKey;
-
     @Value("${cloud.aws.s3.bucket.food_image}")
     private String FOOD_IMAGE_BUCKET;
 
@@ -74,6 +71,9 @@ public class FoodServiceImplPlatformTest {
     @Autowired
     private TruckService truckService;
 
+    @Autowired
+    private ImagePipeline imagePipeline;
+
     @Value("${elasticsearch.index.truck.name}")
     private String TEST_TRUCK_INDEX;
     
@@ -92,8 +92,6 @@ public class FoodServiceImplPlatformTest {
         TestIndexUtil.initRestHighLevelClient();
         TestIndexUtil.deleteTestTruckIndex();
         TestIndexUtil.createTestTruckIndex();
-
-        initS3Client();
     }
 
     @AfterEach
@@ -115,6 +113,7 @@ public class FoodServiceImplPlatformTest {
             IndexUpdateResultDto indexResult = foodService.saveFood(truckIds.get(0), foodSaveRequestDto);
             assertThat(indexResult.getResult(), is("UPDATED"));
 
+            assertThat(imagePipeline.awaitIdle(10000), is(true));
             try {
                 Thread.sleep(2000);
             } catch(InterruptedException e) {
@@ -123,7 +122,7 @@ public class FoodServiceImplPlatformTest {
             assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, truckIds.get(0) + "/" + indexResult.getId()), is(true));
         });
 
-        Truck truck = truckService.getById(truckIds.get(0));
+        Truck truck = truckService.getByIdAsync(truckIds.get(0)).join();
         assertThat(truck.getFoods(), hasSize(2));
     }
 
@@ -136,7 +135,7 @@ public class FoodServiceImplPlatformTest {
         List<FoodSaveRequestDto> foodSaveRequestDtos = createTestFoodSaveRequestDto();
         indexTestFoodData(truckIds.get(0), foodSaveRequestDtos);
 
-        List<Food> foods = truckService.getById(truckIds.get(0)).getFoods();
+        List<Food> foods = truckService.getByIdAsync(truckIds.get(0)).join().getFoods();
         foods.forEach(food -> {
             String nameToUpdate = "updated" + food.getName();
             int costToUpdate = food.getCost() * 10;
@@ -155,13 +154,14 @@ public class FoodServiceImplPlatformTest {
             IndexUpdateResultDto updateResult = foodService.updateFood(truckIds.get(0), foodSaveRequestDto);
             assertThat(updateResult.getResult(), is("UPDATED"));
             
+            assertThat(imagePipeline.awaitIdle(10000), is(true));
             try {
                 Thread.sleep(2000);
             } catch(InterruptedException e) {
                 e.printStackTrace();
             }
 
-            Food updatedFood = truckService.getById(truckIds.get(0)).getFoods().stream()
+            Food updatedFood = truckService.getByIdAsync(truckIds.get(0)).join().getFoods().stream()
                                                 .filter(f-> f.getId().equals(food.getId()))
                                                 .findFirst().get();
 
@@ -195,7 +195,7 @@ public class FoodServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        List<Food> foods = truckService.getById(truckIds.get(0)).getFoods();
+        List<Food> foods = truckService.getByIdAsync(truckIds.get(0)).join().getFoods();
         foods.forEach(food -> {
             IndexUpdateResultDto deleteResult = foodService.deleteFood(truckIds.get(0), food.getId());
             assertThat("푸드 엔티티 삭제", deleteResult.getResult(), is("UPDATED"));
@@ -208,7 +208,7 @@ public class FoodServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        assertThat(truckService.getById(truckIds.get(0)).getFoods(), hasSize(0));
+        assertThat(truckService.getByIdAsync(truckIds.get(0)).join().getFoods(), hasSize(0));
     }
 
     @Test
@@ -249,7 +249,7 @@ public class FoodServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        List<Food> foods = truckService.getById(truckIds.get(0)).getFoods();
+        List<Food> foods = truckService.getByIdAsync(truckIds.get(0)).join().getFoods();
         List<String> sortedIds = foods.stream().map(food -> food.getId()).collect(Collectors.toList());
         assertThat(sortedIds, equalTo(createdIds));
     }
@@ -290,6 +290,7 @@ public class FoodServiceImplPlatformTest {
             truckIds.add(indexResult.getId());
         });
 
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
         try {
             Thread.sleep(2000);
         } catch(InterruptedException e) {
@@ -330,6 +331,7 @@ public class FoodServiceImplPlatformTest {
             assertThat(updateResult.getResult(), is("UPDATED"));
         });
 
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
         try {
             Thread.sleep(2000);
         } catch(InterruptedException e) {
@@ -337,14 +339,6 @@ public class FoodServiceImplPlatformTest {
         }
     }
 
-    public void initS3Client() {
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        s3Client = AmazonS3ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .withRegion(Regions.AP_NORTHEAST_2)
-                .build();
-    }
-
     public void deleteS3Bucket(String bucketName) {
         if(s3Client.doesBucketExistV2(bucketName)) {
             s3Client.deleteBucket(new DeleteBucketRequest(bucketName));
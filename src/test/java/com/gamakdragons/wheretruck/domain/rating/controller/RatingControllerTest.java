@@ -1,7 +1,11 @@
 package com.gamakdragons.wheretruck.domain.rating.controller;
 
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.LocalDateTime;
@@ -9,6 +13,7 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
@@ -20,10 +25,12 @@ import com.gamakdragons.wheretruck.domain.rating.service.RatingService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -36,6 +43,9 @@ public class RatingControllerTest {
 	@MockBean
 	private RatingService ratingService;
 
+	@Value("${rating.page-size:20}")
+	private int PAGE_SIZE;
+
 	private ObjectMapper objectMapper;
 
 	@BeforeEach
@@ -86,12 +96,16 @@ public class RatingControllerTest {
 												.docs(myRatings)
 												.build();
 
-		given(ratingService.findByUserId(userId)).willReturn(result);
+		given(ratingService.findByUserIdAsync(eq(userId), eq(PAGE_SIZE), isNull())).willReturn(CompletableFuture.completedFuture(result));
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/rating/my")
 														.requestAttr("userId", userId);
 
-		mockMvc.perform(request)
+		MvcResult mvcResult = mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
@@ -0,0 +1,122 @@
+package com.gamakdragons.wheretruck.domain.rating.migrate;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.not;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.gamakdragons.wheretruck.TestIndexUtil;
+import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.core.CountRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(classes = {ElasticSearchTestConfig.class, TestIndexUtil.class},
+                properties = {"spring.config.location=classpath:application-test.yml"})
+public class RatingMigrationPlatformTest {
+
+    @Value("${elasticsearch.index.truck.name}")
+    private String TEST_TRUCK_INDEX;
+
+    @Value("${elasticsearch.index.rating.name}")
+    private String TEST_RATING_INDEX;
+
+    @Autowired
+    private RestHighLevelClient esClient;
+
+    @BeforeAll
+    public static void beforeAll() {
+        TestIndexUtil.createElasticSearchTestContainer();
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        TestIndexUtil.closeElasticSearchTestContainer();
+    }
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+
+        TestIndexUtil.initRestHighLevelClient();
+        TestIndexUtil.deleteTestTruckIndex();
+        TestIndexUtil.deleteTestRatingIndex();
+        TestIndexUtil.createTestTruckIndex();
+        TestIndexUtil.createTestRatingIndex();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        TestIndexUtil.deleteTestTruckIndex();
+        TestIndexUtil.deleteTestRatingIndex();
+    }
+
+    @Test
+    void testNestedRatingsAreMovedToRatingIndex() throws IOException {
+
+        indexTruck("truck1", Arrays.asList(nestedRating("rating1", 4), nestedRating("rating2", 2)));
+        indexTruck("truck2", null);
+        esClient.indices().refresh(new RefreshRequest(TEST_TRUCK_INDEX), RequestOptions.DEFAULT);
+
+        RatingMigration.Result result = RatingMigration.migrate(esClient, TEST_TRUCK_INDEX, TEST_RATING_INDEX, 1);
+        assertThat(result.getTrucks(), is(1L));
+        assertThat(result.getRatings(), is(2L));
+        assertThat(result.getFailed(), is(0L));
+
+        long count = esClient.count(new CountRequest(TEST_RATING_INDEX), RequestOptions.DEFAULT).getCount();
+        assertThat(count, is(2L));
+
+        Map<String, Object> truck = esClient.get(new GetRequest(TEST_TRUCK_INDEX, "truck1"), RequestOptions.DEFAULT).getSourceAsMap();
+        assertThat(truck, not(hasKey("ratings")));
+        assertThat(((Number) truck.get("numRating")).intValue(), is(2));
+        assertThat(((Number) truck.get("ratingSum")).doubleValue(), closeTo(6.0, 0.001));
+        assertThat(((Number) truck.get("starAvg")).doubleValue(), closeTo(3.0, 0.001));
+
+        esClient.indices().refresh(new RefreshRequest(TEST_TRUCK_INDEX), RequestOptions.DEFAULT);
+        RatingMigration.Result rerun = RatingMigration.migrate(esClient, TEST_TRUCK_INDEX, TEST_RATING_INDEX, 1);
+        assertThat(rerun.getTrucks(), is(0L));
+    }
+
+    private void indexTruck(String id, Object ratings) throws IOException {
+
+        Map<String, Object> truck = new HashMap<>();
+        truck.put("id", id);
+        truck.put("name", id);
+        truck.put("numRating", ratings == null ? 0 : 2);
+        truck.put("starAvg", ratings == null ? 0.0 : 3.0);
+        if(ratings != null) {
+            truck.put("ratings", ratings);
+        }
+
+        esClient.index(new IndexRequest(TEST_TRUCK_INDEX).id(id).source(truck), RequestOptions.DEFAULT);
+    }
+
+    private static Map<String, Object> nestedRating(String id, int star) {
+
+        Map<String, Object> rating = new HashMap<>();
+        rating.put("id", id);
+        rating.put("userId", "user-" + id);
+        rating.put("star", star);
+        rating.put("comment", "comment of " + id);
+        rating.put("createdDate", "2021-06-01 12:00:00");
+        rating.put("updatedDate", "2021-06-01 12:00:00");
+        return rating;
+    }
+}
@@ -7,6 +7,7 @@ import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -17,16 +18,24 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 
 import com.gamakdragons.wheretruck.TestIndexUtil;
+import com.gamakdragons.wheretruck.cloud.aws.service.ImagePipeline;
 import com.gamakdragons.wheretruck.cloud.aws.service.S3ServiceImpl;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.config.S3Config;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteCounter;
 import com.gamakdragons.wheretruck.domain.rating.dto.MyRatingDto;
 import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
 import com.gamakdragons.wheretruck.domain.truck.dto.TruckSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.domain.truck.service.OpenTruckIndex;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckEventHub;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckLocationHistory;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckLocationBuffer;
 import com.gamakdragons.wheretruck.domain.truck.service.TruckService;
 import com.gamakdragons.wheretruck.domain.truck.service.TruckServiceImpl;
 import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+import com.gamakdragons.wheretruck.util.EsFutures;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -41,7 +50,7 @@ import org.springframework.mock.web.MockMultipartFile;
 
 import lombok.extern.slf4j.Slf4j;
 
-@SpringBootTest(classes = {RatingServiceImpl.class, TruckServiceImpl.class, ElasticSearchTestConfig.class, TestIndexUtil.class, S3ServiceImpl.class, S3Config.class}, 
+@SpringBootTest(classes = {RatingServiceImpl.class, TruckServiceImpl.class, OpenTruckIndex.class, TruckLocationBuffer.class, TruckEventHub.class, TruckLocationHistory.class, FavoriteCounter.class, ElasticSearchTestConfig.class, EsFutures.class, TestIndexUtil.class, S3ServiceImpl.class, ImagePipeline.class, S3Config.class}, 
                 properties = {"spring.config.location=classpath:application-test.yml"})
 @Slf4j
 public class RatingServiceImplPlatformTest {
@@ -69,12 +78,15 @@ public class RatingServiceImplPlatformTest {
     public void beforeEach() throws IOException, InterruptedException {
         TestIndexUtil.initRestHighLevelClient();
         TestIndexUtil.deleteTestTruckIndex();
+        TestIndexUtil.deleteTestRatingIndex();
         TestIndexUtil.createTestTruckIndex();
+        TestIndexUtil.createTestRatingIndex();
     }
 
     @AfterEach
     public void afterEach() throws IOException {
         TestIndexUtil.deleteTestTruckIndex();
+        TestIndexUtil.deleteTestRatingIndex();
     }
 
     @Test
@@ -97,7 +109,7 @@ public class RatingServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        Truck truck = truckService.getById(truckIds.get(0));
+        Truck truck = truckService.getByIdAsync(truckIds.get(0)).join();
         List<Rating> truck1Ratings = truck.getRatings();
 
         assertThat(truck.getNumRating(), is(ratings.size()));
@@ -137,11 +149,36 @@ public class RatingServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        Truck truck = truckService.getById(truckIds.get(0));
+        Truck truck = truckService.getByIdAsync(truckIds.get(0)).join();
         double calculatedStarAvg = ratings.stream().mapToDouble(rating -> rating.getStar()).average().getAsDouble();
         assertThat((double) truck.getStarAvg(), closeTo(calculatedStarAvg, 0.0001f));
     }
 
+    @Test
+    void testUpdateRatingClearsComment() {
+
+        List<TruckSaveRequestDto> trucks = createTestTruckData();
+        List<String> truckIds = indexTestTruckData(trucks);
+
+        List<Rating> ratings = createTestRatingData();
+        indexTestRatingData(truckIds.get(0), ratings);
+
+        ratings.get(0).setComment(null);
+        assertThat(ratingService.updateRating(truckIds.get(0), ratings.get(0)).getResult(), is("UPDATED"));
+
+        try {
+            Thread.sleep(1000);
+        } catch(InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        Rating updated = truckService.getByIdAsync(truckIds.get(0)).join().getRatings().stream()
+                                .filter(rating -> rating.getId().equals(ratings.get(0).getId()))
+                                .findFirst()
+                                .get();
+        assertThat(updated.getComment(), is(nullValue()));
+    }
+
     @Test
     void testDeleteRating() {
 
@@ -166,7 +203,7 @@ public class RatingServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        Truck truck = truckService.getById(truckIds.get(0));
+        Truck truck = truckService.getByIdAsync(truckIds.get(0)).join();
         List<Rating> truck1Ratings = truck.getRatings();
 
         assertThat(truck.getNumRating(), is(ratings.size() - 1));
@@ -194,7 +231,7 @@ public class RatingServiceImplPlatformTest {
 
         String commonUserId = ratings.get(0).getUserId();
 
-        List<MyRatingDto> searchedRatings = ratingService.findByUserId(commonUserId).getDocs();
+        List<MyRatingDto> searchedRatings = ratingService.findByUserIdAsync(commonUserId, SearchAfterCursor.MAX_PAGE_SIZE, null).join().getDocs();
         assertThat(searchedRatings.stream().map(r -> r.getId()).collect(Collectors.toList()), 
                     contains(ratings.get(2).getId(), ratings.get(1).getId(), ratings.get(0).getId())
         );
@@ -0,0 +1,45 @@
+package com.gamakdragons.wheretruck.domain.region.controller;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import com.gamakdragons.wheretruck.domain.region.service.RegionCatalog;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+
+public class RegionCatalogEndpointTest {
+
+    private RegionCatalog regionCatalog;
+    private RegionCatalogEndpoint endpoint;
+
+    @BeforeEach
+    void setUp() {
+        regionCatalog = mock(RegionCatalog.class);
+        endpoint = new RegionCatalogEndpoint(regionCatalog);
+    }
+
+    @Test
+    void testReload() {
+        given(regionCatalog.reload()).willReturn(true);
+        given(regionCatalog.isLoaded()).willReturn(true);
+        given(regionCatalog.size()).willReturn(3);
+
+        WebEndpointResponse<?> response = endpoint.reload();
+
+        assertThat(response.getStatus(), is(WebEndpointResponse.STATUS_OK));
+        assertThat(endpoint.status().get("size"), is(3));
+    }
+
+    @Test
+    void testReloadFails() {
+        given(regionCatalog.reload()).willReturn(false);
+
+        WebEndpointResponse<?> response = endpoint.reload();
+
+        assertThat(response.getStatus(), is(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE));
+    }
+}
@@ -2,17 +2,22 @@ package com.gamakdragons.wheretruck.domain.region.controller;
 
 import static org.mockito.ArgumentMatchers.anyFloat;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gamakdragons.wheretruck.common.GeoLocation;
@@ -24,9 +29,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.util.LinkedMultiValueMap;
@@ -41,6 +48,9 @@ public class RegionControllerTest {
 	@MockBean
 	private RegionService regionService;
 
+	@Value("${region.page-size:10000}")
+	private int PAGE_SIZE;
+
 	private ObjectMapper objectMapper;
 
 	@BeforeEach
@@ -70,9 +80,13 @@ public class RegionControllerTest {
 											.docs(regions)
 											.build();
 
-		given(regionService.findAll()).willReturn(result);
+		given(regionService.findAllAsync(eq(PAGE_SIZE), isNull())).willReturn(CompletableFuture.completedFuture(result));
+
+		MvcResult mvcResult = mockMvc.perform(get("/api/region/all"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
 
-		mockMvc.perform(get("/api/region/all"))
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
@@ -101,7 +115,7 @@ public class RegionControllerTest {
 													.docs(regions)
 													.build();
 		
-		given(regionService.findByLocation(isA(GeoLocation.class), anyFloat())).willReturn(result);
+		given(regionService.findByLocationAsync(isA(GeoLocation.class), anyFloat(), eq(PAGE_SIZE), isNull())).willReturn(CompletableFuture.completedFuture(result));
 		
 		MultiValueMap<String, String> requestParams = new LinkedMultiValueMap<>();
 		requestParams.set("lat", String.valueOf(30.0f));
@@ -110,7 +124,11 @@ public class RegionControllerTest {
 
 		MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders.get("/api/region/geo").params(requestParams);
 
-		mockMvc.perform(requestBuilder)
+		MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)))
@@ -142,7 +160,7 @@ public class RegionControllerTest {
 		String city = UUID.randomUUID().toString().substring(0, 5);
 		String town = UUID.randomUUID().toString().substring(0, 5);
 
-		given(regionService.findByAddress(anyString(), anyString())).willReturn(result);
+		given(regionService.findByAddressAsync(anyString(), anyString(), eq(PAGE_SIZE), isNull())).willReturn(CompletableFuture.completedFuture(result));
 
 		MultiValueMap<String, String> requestParams = new LinkedMultiValueMap<>();
 		requestParams.set("city", city);
@@ -150,7 +168,11 @@ public class RegionControllerTest {
 
 		MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders.get("/api/region/address").params(requestParams);
 
-		mockMvc.perform(requestBuilder)
+		MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
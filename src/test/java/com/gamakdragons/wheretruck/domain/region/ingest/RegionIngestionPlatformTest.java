@@ -0,0 +1,125 @@
+package com.gamakdragons.wheretruck.domain.region.ingest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+import com.gamakdragons.wheretruck.TestIndexUtil;
+import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.core.CountRequest;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(classes = {ElasticSearchTestConfig.class, TestIndexUtil.class},
+                properties = {"spring.config.location=classpath:application-test.yml"})
+public class RegionIngestionPlatformTest {
+
+    @Value("${elasticsearch.index.region.name}")
+    private String TEST_REGION_INDEX_NAME;
+
+    @Autowired
+    private RestHighLevelClient esClient;
+
+    @BeforeAll
+    public static void beforeAll() {
+        TestIndexUtil.createElasticSearchTestContainer();
+    }
+
+    @AfterAll
+    public static void afterAll() {
+        TestIndexUtil.closeElasticSearchTestContainer();
+    }
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+
+        TestIndexUtil.initRestHighLevelClient();
+        TestIndexUtil.deleteTestRegionIndex();
+        TestIndexUtil.createTestRegionIndex();
+    }
+
+    @AfterEach
+    public void afterEach() throws IOException {
+        esClient.indices().delete(new DeleteIndexRequest(TEST_REGION_INDEX_NAME + "-*"), RequestOptions.DEFAULT);
+        TestIndexUtil.deleteTestRegionIndex();
+    }
+
+    @Test
+    void testIngestFixtureTwiceKeepsOneDocumentPerRegion() throws Exception {
+
+        RegionIngestion.Options options = RegionIngestion.Options.builder()
+                                                .batchSize(2)
+                                                .concurrency(1)
+                                                .build();
+
+        RegionIngestion.Result first = ingest(options);
+        assertThat(first.getRead(), is(3L));
+        assertThat(first.getIndexed(), is(3L));
+        assertThat(first.getFailed(), is(0L));
+
+        RegionIngestion.Result second = ingest(options);
+        assertThat(second.getIndexed(), is(3L));
+
+        long count = esClient.count(new CountRequest(TEST_REGION_INDEX_NAME), RequestOptions.DEFAULT).getCount();
+        assertThat(count, is(3L));
+    }
+
+    @Test
+    void testRebuildSwapsAliasOntoFreshIndex() throws Exception {
+
+        // a document the fixture does not contain, e.g. one written by an older loader
+        esClient.index(new IndexRequest(TEST_REGION_INDEX_NAME).id("stale").source("regionName", "stale"), RequestOptions.DEFAULT);
+        esClient.indices().refresh(new RefreshRequest(TEST_REGION_INDEX_NAME), RequestOptions.DEFAULT);
+
+        RegionIngestion.Options options = RegionIngestion.Options.builder()
+                                                .batchSize(2)
+                                                .concurrency(1)
+                                                .build();
+
+        RegionIngestion.Result first = rebuild(options);
+        assertThat(first.getIndexed(), is(3L));
+        assertThat(count(), is(3L));
+
+        RegionIngestion.Result second = rebuild(options);
+        assertThat(second.getIndexed(), is(3L));
+        assertThat(count(), is(3L));
+
+        assertThat(esClient.indices().getAlias(new GetAliasesRequest(TEST_REGION_INDEX_NAME), RequestOptions.DEFAULT).getAliases().size(), is(1));
+    }
+
+    private long count() throws IOException {
+        return esClient.count(new CountRequest(TEST_REGION_INDEX_NAME), RequestOptions.DEFAULT).getCount();
+    }
+
+    private RegionIngestion.Result rebuild(RegionIngestion.Options options) throws Exception {
+
+        String path = Paths.get(getClass().getResource("/region/region-fixture.json").toURI()).toString();
+        try(RegionRecordReader reader = RegionRecordReader.open(path, "json", StandardCharsets.UTF_8)) {
+            return RegionIngestion.rebuild(esClient, TEST_REGION_INDEX_NAME, reader, options);
+        }
+    }
+
+    private RegionIngestion.Result ingest(RegionIngestion.Options options) throws Exception {
+
+        String path = Paths.get(getClass().getResource("/region/region-fixture.json").toURI()).toString();
+        try(RegionRecordReader reader = RegionRecordReader.open(path, "json", StandardCharsets.UTF_8)) {
+            return RegionIngestion.ingest(esClient, TEST_REGION_INDEX_NAME, reader, options);
+        }
+    }
+}
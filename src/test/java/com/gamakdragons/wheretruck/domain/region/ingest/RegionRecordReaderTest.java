@@ -0,0 +1,91 @@
+package com.gamakdragons.wheretruck.domain.region.ingest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.region.entity.Region;
+
+import org.junit.jupiter.api.Test;
+
+public class RegionRecordReaderTest {
+
+    @Test
+    void testReadJsonFixture() throws Exception {
+
+        List<Region> regions = readAll("/region/region-fixture.json");
+
+        assertThat(regions.size(), is(3));
+        assertFixtureRegions(regions);
+        assertThat(regions.get(2).getRegionName(), is("좌표 없는 구역"));
+    }
+
+    @Test
+    void testReadCsvFixture() throws Exception {
+
+        List<Region> regions = readAll("/region/region-fixture.csv");
+
+        assertThat(regions.size(), is(3));
+        assertFixtureRegions(regions);
+        assertThat(regions.get(2).getRegionName(), is("좌표 없는 \"임시\" 구역"));
+    }
+
+    @Test
+    void testIdIsStableAcrossRuns() throws Exception {
+
+        List<Region> first = readAll("/region/region-fixture.json");
+        List<Region> second = readAll("/region/region-fixture.json");
+
+        for(int i = 0; i < first.size(); i++) {
+            assertThat(RegionRecordMapper.idOf(first.get(i)), is(RegionRecordMapper.idOf(second.get(i))));
+        }
+    }
+
+    private void assertFixtureRegions(List<Region> regions) {
+
+        Region first = regions.get(0);
+        assertThat(first.getRegionName(), is("관악산 입구"));
+        assertThat(first.getRegionType(), is(1));
+        assertThat(first.getCity(), is("서울특별시"));
+        assertThat(first.getTown(), is("관악구"));
+        assertThat(first.getGeoLocation(), is(new GeoLocation(37.4599f, 126.9519f)));
+        assertThat(first.getCapacity(), is(3));
+        assertThat(first.getCost(), is("월 100,000원"));
+        assertThat(first.getAgencyName(), is("관악구청"));
+
+        Region second = regions.get(1);
+        assertThat(second.getCity(), is("부산광역시"));
+        assertThat(second.getTown(), is("해운대구"));
+        assertThat(second.getCapacity(), is(5));
+
+        Region third = regions.get(2);
+        assertThat(third.getCity(), is("경기도"));
+        assertThat(third.getTown(), is("수원시"));
+        assertThat(third.getGeoLocation(), is(nullValue()));
+        assertThat(third.getRegionType(), is(-1));
+        assertThat(third.getCapacity(), is(-1));
+    }
+
+    private List<Region> readAll(String resource) throws IOException, URISyntaxException {
+
+        String path = Paths.get(getClass().getResource(resource).toURI()).toString();
+
+        List<Region> regions = new ArrayList<>();
+        try(RegionRecordReader reader = RegionRecordReader.open(path, RegionRecordReader.formatOf(path), StandardCharsets.UTF_8)) {
+            Map<String, String> record;
+            while((record = reader.next()) != null) {
+                regions.add(RegionRecordMapper.toRegion(record));
+            }
+        }
+        return regions;
+    }
+}
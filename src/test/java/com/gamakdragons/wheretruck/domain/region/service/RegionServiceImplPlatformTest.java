@@ -3,25 +3,36 @@ package com.gamakdragons.wheretruck.domain.region.service;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.BDDMockito.willReturn;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gamakdragons.wheretruck.TestIndexUtil;
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
 import com.gamakdragons.wheretruck.domain.region.entity.Region;
 import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+import com.gamakdragons.wheretruck.util.EsFutures;
 import com.gamakdragons.wheretruck.util.EsRequestFactory;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
 
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -30,10 +41,11 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 
 import lombok.extern.slf4j.Slf4j;
 
-@SpringBootTest(classes = {RegionServiceImpl.class, ElasticSearchTestConfig.class, TestIndexUtil.class}, 
+@SpringBootTest(classes = {RegionServiceImpl.class, RegionCatalog.class, ElasticSearchTestConfig.class, EsFutures.class, TestIndexUtil.class}, 
                 properties = {"spring.config.location=classpath:application-test.yml"})
 @Slf4j
 public class RegionServiceImplPlatformTest {
@@ -47,6 +59,9 @@ public class RegionServiceImplPlatformTest {
     @Autowired
     private RestHighLevelClient esClient;
 
+    @SpyBean
+    private RegionCatalog regionCatalog;
+
     @BeforeAll
     public static void beforeAll() {
         TestIndexUtil.createElasticSearchTestContainer();
@@ -76,7 +91,7 @@ public class RegionServiceImplPlatformTest {
         List<Region> regions = createTestRegionData();
         indexTestData(regions);
 
-        SearchResultDto<Region> result = service.findAll();
+        SearchResultDto<Region> result = service.findAllAsync(SearchAfterCursor.MAX_PAGE_SIZE, null).join();
 
         assertThat(result.getStatus(), is("OK"));
         assertThat(result.getNumFound(), is(regions.size()));
@@ -91,7 +106,7 @@ public class RegionServiceImplPlatformTest {
         List<Region> regions = createTestRegionData();
         indexTestData(regions);
 
-        SearchResultDto<Region> result = service.findByAddress(regions.get(0).getCity(), regions.get(0).getTown());
+        SearchResultDto<Region> result = service.findByAddressAsync(regions.get(0).getCity(), regions.get(0).getTown(), SearchAfterCursor.MAX_PAGE_SIZE, null).join();
         log.info(result.toString());
 
         assertThat(result.getStatus(), is("OK"));
@@ -106,7 +121,7 @@ public class RegionServiceImplPlatformTest {
         List<Region> regions = createTestRegionData();
         indexTestData(regions);
 
-        SearchResultDto<Region> result = service.findByAddress(UUID.randomUUID().toString(), UUID.randomUUID().toString());
+        SearchResultDto<Region> result = service.findByAddressAsync(UUID.randomUUID().toString(), UUID.randomUUID().toString(), SearchAfterCursor.MAX_PAGE_SIZE, null).join();
         log.info(result.toString());
 
         assertThat(result.getStatus(), is("OK"));
@@ -122,9 +137,7 @@ public class RegionServiceImplPlatformTest {
         float region2Lat = regions.get(1).getGeoLocation().getLat() + 0.2f;
         float region2Lon = regions.get(1).getGeoLocation().getLon() + 0.2f;
 
-        SearchResultDto<Region> result = service.findByLocation(
-                new GeoLocation(region2Lat, region2Lon), 500
-        );
+        SearchResultDto<Region> result = service.findByLocationAsync(new GeoLocation(region2Lat, region2Lon), 500, SearchAfterCursor.MAX_PAGE_SIZE, null).join();
 
         result.getDocs().forEach(region -> {
             log.info(region.getRegionName());
@@ -144,9 +157,7 @@ public class RegionServiceImplPlatformTest {
         float region2Lat = regions.get(1).getGeoLocation().getLat() + 0.000001f;
         float region2Lon = regions.get(1).getGeoLocation().getLon() + 0.000001f;
 
-        SearchResultDto<Region> result = service.findByLocation(
-            new GeoLocation(region2Lat, region2Lon), 10
-        );
+        SearchResultDto<Region> result = service.findByLocationAsync(new GeoLocation(region2Lat, region2Lon), 10, SearchAfterCursor.MAX_PAGE_SIZE, null).join();
 
         result.getDocs().forEach(region -> {
             log.info(region.getRegionName());
@@ -166,7 +177,7 @@ public class RegionServiceImplPlatformTest {
         float pivotLat = regions.get(0).getGeoLocation().getLat() - 10.0f;
         float pivotLon = regions.get(0).getGeoLocation().getLon() - 10.0f;
 
-        SearchResultDto<Region> result = service.findByLocation(new GeoLocation(pivotLat, pivotLon), 10.0f);
+        SearchResultDto<Region> result = service.findByLocationAsync(new GeoLocation(pivotLat, pivotLon), 10.0f, SearchAfterCursor.MAX_PAGE_SIZE, null).join();
         log.info(result.toString());
 
         assertThat(result.getStatus(), is("OK"));
@@ -174,6 +185,117 @@ public class RegionServiceImplPlatformTest {
         assertThat(result.getDocs(), hasSize(0));
     }
 
+    @Test
+    void testFindAllPagesThroughCatalog() {
+
+        List<Region> regions = createTestRegionData();
+        indexTestData(regions);
+
+        SearchResultDto<Region> first = service.findAllAsync(2, null).join();
+        assertThat(first.getNumFound(), is(regions.size()));
+        assertThat(first.getDocs(), hasSize(2));
+
+        SearchResultDto<Region> second = service.findAllAsync(2, first.getNext()).join();
+        assertThat(second.getDocs(), hasSize(1));
+        assertThat(second.getNext(), is(nullValue()));
+
+        List<Region> paged = new ArrayList<>(first.getDocs());
+        paged.addAll(second.getDocs());
+        assertThat(paged, containsInAnyOrder(regions.toArray()));
+    }
+
+    @Test
+    void testFindByLocationPagesThroughCatalog() {
+
+        List<Region> regions = createTestRegionData();
+        indexTestData(regions);
+
+        GeoLocation pivot = new GeoLocation(regions.get(1).getGeoLocation().getLat() + 0.2f, regions.get(1).getGeoLocation().getLon() + 0.2f);
+
+        SearchResultDto<Region> first = service.findByLocationAsync(pivot, 500, 2, null).join();
+        assertThat(first.getDocs(), contains(regions.get(1), regions.get(2)));
+
+        SearchResultDto<Region> second = service.findByLocationAsync(pivot, 500, 2, first.getNext()).join();
+        assertThat(second.getDocs(), contains(regions.get(0)));
+    }
+
+    @Test
+    void testStreamAllFromCatalog() throws IOException {
+
+        List<Region> regions = createTestRegionData();
+        indexTestData(regions);
+
+        JsonNode body = streamAll();
+
+        assertThat(body.get("status").asText(), is("OK"));
+        assertThat(body.get("numFound").asInt(), is(regions.size()));
+        assertThat(body.get("docs").size(), is(regions.size()));
+    }
+
+    @Test
+    void testStreamAllFromIndexWhenCatalogIsNotLoaded() throws IOException {
+
+        List<Region> regions = createTestRegionData();
+        indexTestData(regions);
+        willReturn(false).given(regionCatalog).isLoaded();
+
+        JsonNode body = streamAll();
+
+        assertThat(body.get("status").asText(), is("OK"));
+        assertThat(body.get("numFound").asInt(), is(regions.size()));
+        assertThat(body.get("docs").size(), is(regions.size()));
+    }
+
+    @Test
+    void testStreamAllWhenFirstPageFails() throws IOException {
+
+        willReturn(false).given(regionCatalog).isLoaded();
+        TestIndexUtil.deleteTestRegionIndex();
+
+        SearchResponseStreamer streamer = service.streamAll();
+        assertThat(streamer.getStatus(), is(RestStatus.INTERNAL_SERVER_ERROR));
+
+        JsonNode body = write(streamer, new ByteArrayOutputStream());
+        assertThat(body.get("status").asText(), is("INTERNAL_SERVER_ERROR"));
+        assertThat(body.get("docs").size(), is(0));
+    }
+
+    @Test
+    void testStreamEndsWithErrorWhenLaterPageFails() throws IOException {
+
+        List<Region> regions = createTestRegionData();
+        indexTestData(regions);
+
+        SearchResponseStreamer streamer = SearchResponseStreamer.search(esClient, EsRequestFactory.createSearchAllRequest(TEST_REGION_INDEX_NAME), "id", 1);
+        assertThat(streamer.getStatus(), is(RestStatus.OK));
+
+        // the index goes away once the first page is on the wire
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() throws IOException {
+                TestIndexUtil.deleteTestRegionIndex();
+            }
+        };
+
+        JsonNode body = write(streamer, out);
+        assertThat(body.get("status").asText(), is("OK"));
+        assertThat(body.get("numFound").asInt(), is(regions.size()));
+        assertThat(body.get("docs").size(), is(1));
+        assertThat(body.get("error").asText(), is("INTERNAL_SERVER_ERROR"));
+    }
+
+    private JsonNode streamAll() throws IOException {
+        return write(service.streamAll(), new ByteArrayOutputStream());
+    }
+
+    private JsonNode write(SearchResponseStreamer streamer, ByteArrayOutputStream out) throws IOException {
+
+        streamer.writeTo(out);
+        log.info(out.toString("UTF-8"));
+
+        return new ObjectMapper().readTree(out.toByteArray());
+    }
+
     private List<Region> createTestRegionData() {
 
         Region region1 = Region.builder()
@@ -198,7 +320,8 @@ public class RegionServiceImplPlatformTest {
     private void indexTestData(List<Region> regions) {
 
         regions.forEach(region -> {
-            IndexRequest request = EsRequestFactory.createIndexRequest(TEST_REGION_INDEX_NAME, UUID.randomUUID().toString(), region);
+            region.setId(UUID.randomUUID().toString());
+            IndexRequest request = EsRequestFactory.createIndexRequest(TEST_REGION_INDEX_NAME, region.getId(), region);
             try {
                 IndexResponse response = esClient.index(request, RequestOptions.DEFAULT);
                 log.info(response.getResult().name());
@@ -213,6 +336,7 @@ public class RegionServiceImplPlatformTest {
             e.printStackTrace();
         }
 
+        assertThat(regionCatalog.reload(), is(true));
     }
 
 }
@@ -0,0 +1,87 @@
+package com.gamakdragons.wheretruck.domain.region.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.region.entity.Region;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RegionSnapshotCodecTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTrip() throws IOException {
+
+        Map<String, Region> regions = createTestRegions();
+        Path path = tempDir.resolve("region.bin");
+
+        RegionSnapshotCodec.write(path, regions);
+
+        assertThat(RegionSnapshotCodec.read(path), is(regions));
+    }
+
+    @Test
+    void testReadFailsIfVersionIsUnknown() throws IOException {
+
+        Path path = tempDir.resolve("region.bin");
+        RegionSnapshotCodec.write(path, createTestRegions());
+
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer.wrap(bytes).putInt(Integer.BYTES, RegionSnapshotCodec.VERSION + 1);
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> RegionSnapshotCodec.read(path));
+    }
+
+    @Test
+    void testReadFailsIfContentIsCorrupted() throws IOException {
+
+        Path path = tempDir.resolve("region.bin");
+        RegionSnapshotCodec.write(path, createTestRegions());
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length / 2] ^= 0x01;
+        Files.write(path, bytes);
+
+        assertThrows(IOException.class, () -> RegionSnapshotCodec.read(path));
+    }
+
+    private Map<String, Region> createTestRegions() {
+
+        Map<String, Region> regions = new LinkedHashMap<>();
+        regions.put("region1", Region.builder()
+                                .id("region1")
+                                .regionName("region1")
+                                .regionType(1)
+                                .city("서울특별시").town("관악구")
+                                .geoLocation(new GeoLocation(37.47f, 126.95f))
+                                .capacity(3)
+                                .agencyName("관악구청")
+                                .build());
+        regions.put("region2", Region.builder()
+                                .id("region2")
+                                .regionName("region2")
+                                .city("서울특별시").town("마포구")
+                                .agencyName("관악구청")
+                                .build());
+        regions.put("region3", Region.builder()
+                                .id("region3")
+                                .regionName("region3")
+                                .geoLocation(new GeoLocation(35.1f, 129.0f))
+                                .build());
+        return regions;
+    }
+}
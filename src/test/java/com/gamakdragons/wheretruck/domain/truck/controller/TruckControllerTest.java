@@ -1,42 +1,67 @@
 package com.gamakdragons.wheretruck.domain.truck.controller;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyFloat;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.GeoLocation;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.common.SearchResultDto;
+import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
+import com.gamakdragons.wheretruck.domain.truck.dto.TrackPoint;
 import com.gamakdragons.wheretruck.domain.truck.dto.TruckSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
+import com.gamakdragons.wheretruck.domain.truck.service.TruckEventHub;
 import com.gamakdragons.wheretruck.domain.truck.service.TruckService;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
+import com.gamakdragons.wheretruck.util.SearchResponseStreamer;
 
+import org.elasticsearch.rest.RestStatus;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @WebMvcTest(TruckController.class)
 public class TruckControllerTest {
@@ -47,6 +72,9 @@ public class TruckControllerTest {
 	@MockBean
 	private TruckService truckService;
 
+	@Value("${truck.page-size:10000}")
+	private int PAGE_SIZE;
+
 	private ObjectMapper objectMapper;
 
 	@BeforeEach
@@ -67,25 +95,149 @@ public class TruckControllerTest {
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
 	}
 
+	@Test
+	void testCreateImageUpload() throws Exception {
+
+		String truckId = UUID.randomUUID().toString();
+		PresignedUpload result = PresignedUpload.builder()
+									.result("CREATED")
+									.key("upload/" + truckId + "/" + UUID.randomUUID().toString())
+									.url("https://s3.example.com/upload")
+									.contentType(MediaType.IMAGE_JPEG_VALUE)
+									.expiresAt(System.currentTimeMillis() + 600000)
+									.build();
+
+		given(truckService.createImageUpload(truckId, MediaType.IMAGE_JPEG_VALUE)).willReturn(result);
+
+		mockMvc.perform(post("/api/truck/" + truckId + "/image/upload-url").param("contentType", MediaType.IMAGE_JPEG_VALUE))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/json"))
+				.andExpect(content().string(objectMapper.writeValueAsString(result)));
+	}
+
+	@Test
+	void testCompleteImageUpload() throws Exception {
+
+		String truckId = UUID.randomUUID().toString();
+		String key = "upload/" + truckId + "/" + UUID.randomUUID().toString();
+		IndexUpdateResultDto result = IndexUpdateResultDto.builder().result("ACCEPTED").id(truckId).build();
+
+		given(truckService.completeImageUpload(truckId, key)).willReturn(result);
+
+		mockMvc.perform(put("/api/truck/" + truckId + "/image").param("key", key))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/json"))
+				.andExpect(content().string(objectMapper.writeValueAsString(result)));
+	}
+
+	@Test
+	void testCompleteImageUploadWhenPipelineIsFull() throws Exception {
+
+		String truckId = UUID.randomUUID().toString();
+		String key = "upload/" + truckId + "/" + UUID.randomUUID().toString();
+		IndexUpdateResultDto result = IndexUpdateResultDto.builder().result("SERVICE_UNAVAILABLE").id(truckId).build();
+
+		given(truckService.completeImageUpload(truckId, key)).willReturn(result);
+
+		mockMvc.perform(put("/api/truck/" + truckId + "/image").param("key", key))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(content().string(objectMapper.writeValueAsString(result)));
+	}
+
 	@Test
 	void testGetAllTrucks() throws Exception {
 
 		SearchResultDto<Truck> result = createTruckSearchResultDto();
 
-		given(truckService.findAll()).willReturn(result);
+		given(truckService.findAllAsync(eq(PAGE_SIZE), isNull())).willReturn(CompletableFuture.completedFuture(result));
+
+		MvcResult mvcResult = mockMvc.perform(get("/api/truck/all"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/json"))
+				.andExpect(content().string(objectMapper.writeValueAsString(result)));
+	}
+
+	@Test
+	void testGetAllTrucksWithCursor() throws Exception {
+
+		List<Truck> trucks = createTruckSearchResultDto().getDocs().subList(0, 5);
+		SearchResultDto<Truck> result = SearchResultDto.<Truck> builder()
+											.status("OK")
+											.numFound(10)
+											.docs(trucks)
+											.next(SearchAfterCursor.encode(new Object[]{trucks.get(4).getId()}))
+											.build();
+
+		String cursor = SearchAfterCursor.encode(new Object[]{UUID.randomUUID().toString()});
 
-		mockMvc.perform(get("/api/truck/all"))
+		given(truckService.findAllAsync(5, cursor)).willReturn(CompletableFuture.completedFuture(result));
+
+		MultiValueMap<String, String> requestParams = new LinkedMultiValueMap<>();
+		requestParams.set("size", "5");
+		requestParams.set("cursor", cursor);
+
+		MvcResult mvcResult = mockMvc.perform(get("/api/truck/all").params(requestParams))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
 	}
 
+	@Test
+	void testStreamAllTrucks() throws Exception {
+
+		SearchResultDto<Truck> result = createTruckSearchResultDto();
+
+		given(truckService.streamAll()).willReturn(SearchResponseStreamer.of(result.getDocs()));
+
+		MvcResult mvcResult = mockMvc.perform(get("/api/truck/all").param("stream", "true"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/json"))
+				.andExpect(jsonPath("$.status").value("OK"))
+				.andExpect(jsonPath("$.numFound").value(result.getDocs().size()))
+				.andExpect(jsonPath("$.docs[0].id").value(result.getDocs().get(0).getId()));
+	}
+
+	@Test
+	void testStreamAllTrucksWhenFirstPageFails() throws Exception {
+
+		String body = "{\"status\":\"INTERNAL_SERVER_ERROR\",\"numFound\":0,\"docs\":[]}";
+
+		SearchResponseStreamer streamer = mock(SearchResponseStreamer.class);
+		given(streamer.getStatus()).willReturn(RestStatus.INTERNAL_SERVER_ERROR);
+		willAnswer(invocation -> {
+			OutputStream out = invocation.getArgument(0);
+			out.write(body.getBytes(StandardCharsets.UTF_8));
+			return null;
+		}).given(streamer).writeTo(any(OutputStream.class));
+		given(truckService.streamAll()).willReturn(streamer);
+
+		MvcResult mvcResult = mockMvc.perform(get("/api/truck/all").param("stream", "true"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isInternalServerError())
+				.andExpect(content().string(body));
+	}
+
 	@Test
 	void testGetByGeoLocation() throws Exception {
 
 		SearchResultDto<Truck> result = createTruckSearchResultDto();
 
-		given(truckService.findByGeoLocation(isA(GeoLocation.class), anyFloat())).willReturn(result);
+		given(truckService.findByGeoLocation(isA(GeoLocation.class), anyFloat(), eq(PAGE_SIZE), isNull())).willReturn(result);
 
 		MultiValueMap<String, String> requestParams = new LinkedMultiValueMap<>();
 		requestParams.set("lat", String.valueOf(30.0f));
@@ -113,18 +265,101 @@ public class TruckControllerTest {
             0, //numRating
             0.0f, //starAvg
 			null,
+            null, //imageVariants
             null, //foods
-            null //ratings
+            null, //ratings
+            null //ratingsNext
         );
 
-		given(truckService.getById(truck.getId())).willReturn(truck);
+		given(truckService.getByIdAsync(truck.getId())).willReturn(CompletableFuture.completedFuture(truck));
 			
-		mockMvc.perform(get("/api/truck/" + truck.getId()))
+		MvcResult mvcResult = mockMvc.perform(get("/api/truck/" + truck.getId()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(truck)));
 	}
 
+	@Test
+	void testFindRatings() throws Exception {
+
+		String truckId = UUID.randomUUID().toString();
+
+		List<Rating> ratings = new ArrayList<>();
+		for(int i = 0; i < 2; i++) {
+			Rating rating = new Rating();
+			rating.setId(UUID.randomUUID().toString());
+			rating.setTruckId(truckId);
+			rating.setUserId(UUID.randomUUID().toString());
+			rating.setStar(4.0f);
+			rating.setComment("comment" + i);
+			rating.setCreatedDate("2021-06-0" + (2 - i) + " 12:00:00");
+			rating.setUpdatedDate("2021-06-0" + (2 - i) + " 12:00:00");
+			ratings.add(rating);
+		}
+
+		String cursor = SearchAfterCursor.encode(new Object[]{1622721600000L, UUID.randomUUID().toString()});
+		SearchResultDto<Rating> result = SearchResultDto.<Rating> builder()
+											.status("OK")
+											.numFound(5)
+											.docs(ratings)
+											.next(SearchAfterCursor.encode(new Object[]{1622548800000L, ratings.get(1).getId()}))
+											.build();
+
+		given(truckService.findRatingsAsync(truckId, 2, cursor)).willReturn(CompletableFuture.completedFuture(result));
+
+		MvcResult mvcResult = mockMvc.perform(get("/api/truck/" + truckId + "/ratings")
+												.param("size", "2")
+												.param("cursor", cursor))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/json"))
+				.andExpect(content().string(objectMapper.writeValueAsString(result)));
+	}
+
+	@Test
+	void testFindTrack() throws Exception {
+
+		String truckId = UUID.randomUUID().toString();
+		String userId = UUID.randomUUID().toString();
+
+		List<TrackPoint> points = new ArrayList<>();
+		for(int i = 0; i < 2; i++) {
+			points.add(TrackPoint.builder()
+							.timestamp(1622548800000L + i * 60 * 1000L)
+							.geoLocation(new GeoLocation(35.0f + i * 0.01f, 135.0f))
+							.count(3)
+							.build());
+		}
+
+		SearchResultDto<TrackPoint> result = SearchResultDto.<TrackPoint> builder()
+												.status("OK")
+												.numFound(points.size())
+												.docs(points)
+												.build();
+
+		given(truckService.findTrackAsync(truckId, userId, 1622548800000L, 1622552400000L, "1m")).willReturn(CompletableFuture.completedFuture(result));
+
+		MvcResult mvcResult = mockMvc.perform(get("/api/truck/" + truckId + "/track")
+												.param("from", "1622548800000")
+												.param("to", "1622552400000")
+												.param("resolution", "1m")
+												.requestAttr("userId", userId))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("application/json"))
+				.andExpect(content().string(objectMapper.writeValueAsString(result)));
+	}
+
 	/*@Test
 	void testGetByIds() throws Exception {
 
@@ -152,8 +387,10 @@ public class TruckControllerTest {
             0, //numRating
             0.0f, //starAvg
 			null,
+            null, //imageVariants
             null, //foods
-            null //ratings
+            null, //ratings
+            null //ratingsNext
         );
 
 		SearchResultDto<Truck> result = SearchResultDto.<Truck> builder()
@@ -162,12 +399,16 @@ public class TruckControllerTest {
 														.docs(Collections.singletonList(truck))
 														.build();
 
-		given(truckService.findByUserId(truck.getUserId())).willReturn(result);
+		given(truckService.findByUserIdAsync(truck.getUserId())).willReturn(CompletableFuture.completedFuture(result));
 
 		MockHttpServletRequestBuilder requestBuilder = MockMvcRequestBuilders.get("/api/truck/my")
 															.requestAttr("userId", truck.getUserId());
 			
-		mockMvc.perform(requestBuilder)
+		MvcResult mvcResult = mockMvc.perform(requestBuilder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
@@ -219,18 +460,99 @@ public class TruckControllerTest {
 												.id(truckId)
 												.build();
 
-		given(truckService.openTruck(anyString(), isA(GeoLocation.class))).willReturn(result);
+		given(truckService.openTruckAsync(anyString(), isA(GeoLocation.class))).willReturn(CompletableFuture.completedFuture(result));
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put("/api/truck/start/" + truckId)
 																		.content(objectMapper.writeValueAsString(new GeoLocation(35.0f, 135.0f)))
 																		.contentType(MediaType.APPLICATION_JSON);
 
-		mockMvc.perform(request)
+		MvcResult mvcResult = mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
 	}
 
+	@Test
+	void testReportLocation() throws Exception {
+
+		String truckId = UUID.randomUUID().toString();
+		String userId = UUID.randomUUID().toString();
+		GeoLocation geoLocation = new GeoLocation(35.0f, 135.0f);
+
+		given(truckService.reportLocation(truckId, userId, geoLocation)).willReturn(true);
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put("/api/truck/location/" + truckId)
+																		.content(objectMapper.writeValueAsString(geoLocation))
+																		.contentType(MediaType.APPLICATION_JSON)
+																		.requestAttr("userId", userId);
+
+		mockMvc.perform(request)
+				.andExpect(status().isAccepted());
+
+		verify(truckService).reportLocation(truckId, userId, geoLocation);
+	}
+
+	@Test
+	void testReportLocationOfTruckNotOwned() throws Exception {
+
+		String truckId = UUID.randomUUID().toString();
+		String userId = UUID.randomUUID().toString();
+		GeoLocation geoLocation = new GeoLocation(35.0f, 135.0f);
+
+		given(truckService.reportLocation(truckId, userId, geoLocation)).willReturn(false);
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put("/api/truck/location/" + truckId)
+																		.content(objectMapper.writeValueAsString(geoLocation))
+																		.contentType(MediaType.APPLICATION_JSON)
+																		.requestAttr("userId", userId);
+
+		mockMvc.perform(request)
+				.andExpect(status().isForbidden());
+	}
+
+	@Test
+	void testSubscribeEvents() throws Exception {
+
+		given(truckService.subscribeEvents(any(TruckEventHub.Area.class))).willReturn(new SseEmitter());
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/truck/events")
+																		.param("lat", "35.0")
+																		.param("lon", "135.0")
+																		.param("distance", "1.0")
+																		.accept(MediaType.TEXT_EVENT_STREAM);
+
+		mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andExpect(header().string("X-Accel-Buffering", "no"));
+	}
+
+	@Test
+	void testSubscribeEventsWithoutArea() throws Exception {
+
+		mockMvc.perform(get("/api/truck/events").accept(MediaType.TEXT_EVENT_STREAM))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	void testSubscribeEventsWhenFull() throws Exception {
+
+		given(truckService.subscribeEvents(any(TruckEventHub.Area.class))).willReturn(null);
+
+		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/truck/events")
+																		.param("minLat", "35.0")
+																		.param("minLon", "135.0")
+																		.param("maxLat", "35.1")
+																		.param("maxLon", "135.1")
+																		.accept(MediaType.TEXT_EVENT_STREAM);
+
+		mockMvc.perform(request)
+				.andExpect(status().isServiceUnavailable());
+	}
+
 	@Test
 	void testStopTruck() throws Exception {
 
@@ -241,11 +563,15 @@ public class TruckControllerTest {
 												.id(truckId)
 												.build();
 
-		given(truckService.stopTruck(truckId)).willReturn(result);
+		given(truckService.stopTruckAsync(truckId)).willReturn(CompletableFuture.completedFuture(result));
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put("/api/truck/stop/" + truckId);
 
-		mockMvc.perform(request)
+		MvcResult mvcResult = mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(result)));
@@ -305,8 +631,10 @@ public class TruckControllerTest {
             		0, //numRating
             		0.0f, //starAvg
 					null,
+            		null, //imageVariants
             		null, //foods
-            		null //ratings
+            		null, //ratings
+            		null //ratingsNext
         		)
 			);
 		}
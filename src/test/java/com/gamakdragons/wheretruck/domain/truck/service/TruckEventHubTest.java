@@ -0,0 +1,167 @@
+package com.gamakdragons.wheretruck.domain.truck.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+import com.gamakdragons.wheretruck.domain.truck.dto.TruckEvent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class TruckEventHubTest {
+
+    private static final GeoLocation SEOUL = new GeoLocation(37.5665f, 126.9780f);
+    private static final GeoLocation NEAR_SEOUL = new GeoLocation(37.5700f, 126.9800f);
+    private static final GeoLocation BUSAN = new GeoLocation(35.1796f, 129.0756f);
+
+    private TruckEventHub hub;
+
+    @AfterEach
+    public void afterEach() {
+        hub.close();
+    }
+
+    @Test
+    void testPublishOnlyToSubscribersWhoseAreaContainsTheTruck() throws InterruptedException {
+
+        hub = createHub(10, 16);
+        RecordingEmitter seoul = subscribe(TruckEventHub.Area.circle(SEOUL, 5.0f));
+        RecordingEmitter busan = subscribe(TruckEventHub.Area.circle(BUSAN, 5.0f));
+
+        hub.publish(new TruckEvent(TruckEvent.Type.OPEN, "truck1", NEAR_SEOUL));
+
+        assertThat(seoul.next(), is(new TruckEvent(TruckEvent.Type.OPEN, "truck1", NEAR_SEOUL)));
+        assertThat(busan.poll(), is(nullValue()));
+    }
+
+    @Test
+    void testLeaveWhenTruckMovesOutOfArea() throws InterruptedException {
+
+        hub = createHub(10, 16);
+        RecordingEmitter seoul = subscribe(TruckEventHub.Area.circle(SEOUL, 5.0f));
+
+        hub.publish(new TruckEvent(TruckEvent.Type.OPEN, "truck1", NEAR_SEOUL));
+        hub.publish(new TruckEvent(TruckEvent.Type.MOVE, "truck1", BUSAN));
+        hub.publish(new TruckEvent(TruckEvent.Type.MOVE, "truck1", BUSAN));
+
+        assertThat(seoul.next().getType(), is(TruckEvent.Type.OPEN));
+        assertThat(seoul.next(), is(new TruckEvent(TruckEvent.Type.LEAVE, "truck1", null)));
+        assertThat(seoul.poll(), is(nullValue()));
+    }
+
+    @Test
+    void testStopOnlyToSubscribersThatSawTheTruck() throws InterruptedException {
+
+        hub = createHub(10, 16);
+        RecordingEmitter seoul = subscribe(TruckEventHub.Area.circle(SEOUL, 5.0f));
+        RecordingEmitter busan = subscribe(TruckEventHub.Area.circle(BUSAN, 5.0f));
+
+        hub.publish(new TruckEvent(TruckEvent.Type.OPEN, "truck1", NEAR_SEOUL));
+        hub.publish(new TruckEvent(TruckEvent.Type.STOP, "truck1", null));
+
+        assertThat(seoul.next().getType(), is(TruckEvent.Type.OPEN));
+        assertThat(seoul.next(), is(new TruckEvent(TruckEvent.Type.STOP, "truck1", null)));
+        assertThat(busan.poll(), is(nullValue()));
+    }
+
+    @Test
+    void testSlowSubscriberIsClosed() throws InterruptedException {
+
+        hub = createHub(10, 2);
+        RecordingEmitter slow = subscribe(TruckEventHub.Area.circle(SEOUL, 5.0f));
+        RecordingEmitter fast = subscribe(TruckEventHub.Area.circle(SEOUL, 5.0f));
+        slow.gate = new CountDownLatch(1);
+
+        try {
+            for(int i = 0; i < 10; i++) {
+                hub.publish(new TruckEvent(TruckEvent.Type.OPEN, "truck" + i, NEAR_SEOUL));
+            }
+
+            assertThat(slow.completed.await(1, TimeUnit.SECONDS), is(true));
+            for(int i = 0; i < 10; i++) {
+                assertThat(fast.next().getTruckId(), is("truck" + i));
+            }
+            assertThat(hub.subscriberCount(), is(1));
+        } finally {
+            slow.gate.countDown();
+        }
+    }
+
+    @Test
+    void testSubscribeOverLimit() {
+
+        hub = createHub(1, 16);
+
+        assertThat(hub.subscribe(TruckEventHub.Area.circle(SEOUL, 5.0f)), is(notNullValue()));
+        assertThat(hub.subscribe(TruckEventHub.Area.circle(SEOUL, 5.0f)), is(nullValue()));
+    }
+
+    private TruckEventHub createHub(int maxSubscribers, int outboxCapacity) {
+        return new TruckEventHub(mock(OpenTruckIndex.class), 60000L, maxSubscribers, 100, outboxCapacity, 2) {
+
+            @Override
+            SseEmitter createEmitter(long timeoutMs) {
+                return new RecordingEmitter(timeoutMs);
+            }
+        };
+    }
+
+    private RecordingEmitter subscribe(TruckEventHub.Area area) {
+        return (RecordingEmitter) hub.subscribe(area);
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final BlockingQueue<TruckEvent> events = new LinkedBlockingQueue<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile CountDownLatch gate;
+
+        RecordingEmitter(long timeoutMs) {
+            super(timeoutMs);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+
+            CountDownLatch gate = this.gate;
+            if(gate != null) {
+                try {
+                    gate.await();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            builder.build().stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(TruckEvent.class::isInstance)
+                    .forEach(data -> events.add((TruckEvent) data));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        TruckEvent next() throws InterruptedException {
+            TruckEvent event = events.poll(1, TimeUnit.SECONDS);
+            assertThat(event, is(notNullValue()));
+            return event;
+        }
+
+        TruckEvent poll() throws InterruptedException {
+            return events.poll(300, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -11,7 +11,12 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.number.IsCloseTo.closeTo;
 
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -20,18 +25,17 @@ import java.util.Random;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import javax.imageio.ImageIO;
+
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.SdkClientException;
-import com.amazonaws.auth.AWSCredentials;
-import com.amazonaws.auth.AWSStaticCredentialsProvider;
-import com.amazonaws.auth.BasicAWSCredentials;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.model.DeleteBucketRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.gamakdragons.wheretruck.TestIndexUtil;
+import com.gamakdragons.wheretruck.cloud.aws.entity.PresignedUpload;
+import com.gamakdragons.wheretruck.cloud.aws.service.ImagePipeline;
 import com.gamakdragons.wheretruck.cloud.aws.service.S3ServiceImpl;
 import com.gamakdragons.wheretruck.common.DeleteResultDto;
 import com.gamakdragons.wheretruck.common.GeoLocation;
@@ -41,16 +45,24 @@ import com.gamakdragons.wheretruck.config.S3Config;
 import com.gamakdragons.wheretruck.domain.favorite.entity.Favorite;
 import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteService;
 import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteServiceImpl;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteCounter;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteSetCache;
 import com.gamakdragons.wheretruck.domain.food.dto.FoodSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.food.service.FoodService;
 import com.gamakdragons.wheretruck.domain.food.service.FoodServiceImpl;
 import com.gamakdragons.wheretruck.domain.rating.entity.Rating;
 import com.gamakdragons.wheretruck.domain.rating.service.RatingService;
 import com.gamakdragons.wheretruck.domain.rating.service.RatingServiceImpl;
+import com.gamakdragons.wheretruck.domain.truck.dto.TrackPoint;
 import com.gamakdragons.wheretruck.domain.truck.dto.TruckSaveRequestDto;
 import com.gamakdragons.wheretruck.domain.truck.entity.Truck;
 import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+import com.gamakdragons.wheretruck.util.EsFutures;
+import com.gamakdragons.wheretruck.util.SearchAfterCursor;
 
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
@@ -65,8 +77,8 @@ import org.springframework.mock.web.MockMultipartFile;
 import lombok.extern.slf4j.Slf4j;
 
 @SpringBootTest(
-    classes = {TruckServiceImpl.class, ElasticSearchTestConfig.class,
-                RatingServiceImpl.class, S3ServiceImpl.class, S3Config.class, FoodServiceImpl.class, FavoriteServiceImpl.class, TestIndexUtil.class}, 
+    classes = {TruckServiceImpl.class, OpenTruckIndex.class, TruckLocationBuffer.class, TruckEventHub.class, TruckLocationHistory.class, ElasticSearchTestConfig.class, EsFutures.class,
+                RatingServiceImpl.class, S3ServiceImpl.class, ImagePipeline.class, S3Config.class, FoodServiceImpl.class, FavoriteServiceImpl.class, FavoriteSetCache.class, FavoriteCounter.class, TestIndexUtil.class}, 
     properties = {"spring.config.location=classpath:application-test.yml"}
 )
 @Slf4j
@@ -83,18 +95,31 @@ public class TruckServiceImplPlatformTest {
     
     @Autowired
     private FoodService foodService;
+
+    @Autowired
+    private TruckLocationBuffer truckLocationBuffer;
+
+    @Autowired
+    private TruckLocationHistory truckLocationHistory;
+
+    @Autowired
+    private OpenTruckIndex openTruckIndex;
+
+    @Autowired
+    private ImagePipeline imagePipeline;
+
+    @Autowired
+    private RestHighLevelClient esClient;
+
+    @Value("${elasticsearch.index.truck-location.prefix}")
+    private String TEST_TRUCK_LOCATION_INDEX_PREFIX;
     
     @Value("${elasticsearch.index.truck.name}")
     private String TEST_TRUCK_INDEX;
 
+    @Autowired
     private AmazonS3 s3Client;
 
-    @Value("${cloud.aws.credentials.accessKey}")
-    private String accessKey;
-
-    @Value("${cloud.aws.credentials.secretKey}")
-    private String secretKey;
-
     @Value("${cloud.aws.s3.bucket.truck_image}")
     private String TRUCK_IMAGE_BUCKET;
 
@@ -117,7 +142,6 @@ public class TruckServiceImplPlatformTest {
         TestIndexUtil.initRestHighLevelClient();
         TestIndexUtil.deleteTestIndices();
         TestIndexUtil.createTestIndices();
-        initS3Client();
     }
 
     @AfterEach
@@ -134,7 +158,7 @@ public class TruckServiceImplPlatformTest {
         List<TruckSaveRequestDto> dtos = createTestTruckSaveRequestDtos();
         List<String> truckIds = indexTestTruckData(dtos);
 
-        SearchResultDto<Truck> result = truckService.findAll();
+        SearchResultDto<Truck> result = truckService.findAllAsync(SearchAfterCursor.MAX_PAGE_SIZE, null).join();
 
         assertThat(result.getStatus(), is("OK"));
         assertThat(result.getNumFound(), is(dtos.size()));
@@ -166,9 +190,9 @@ public class TruckServiceImplPlatformTest {
         List<String> truckIds = indexTestTruckData(dtos);
 
         GeoLocation geo1 = new GeoLocation(30.0f, 130.0f);
-        truckService.openTruck(truckIds.get(0), geo1);
+        truckService.openTruckAsync(truckIds.get(0), geo1).join();
         GeoLocation geo2 = new GeoLocation(40.0f, 140.0f);
-        truckService.openTruck(truckIds.get(1), geo2);
+        truckService.openTruckAsync(truckIds.get(1), geo2).join();
 
         try {
             Thread.sleep(1000);
@@ -191,7 +215,7 @@ public class TruckServiceImplPlatformTest {
 
         String userIdToFind = dtos.get(0).getUserId();
 
-        SearchResultDto<Truck> result = truckService.findByUserId(userIdToFind);
+        SearchResultDto<Truck> result = truckService.findByUserIdAsync(userIdToFind).join();
         log.info(result.toString());
         
         assertThat(result.getStatus(), is("OK"));
@@ -204,7 +228,7 @@ public class TruckServiceImplPlatformTest {
     }
 
     @Test
-    void testFindByUserIdRatingsIsInCreatedDateReverseOrder() {
+    void testFindByUserIdReturnsRatingAggregatesOnly() {
 
         List<TruckSaveRequestDto> trucks = createTestTruckSaveRequestDtos();
         List<String> truckIds = indexTestTruckData(trucks);
@@ -212,15 +236,17 @@ public class TruckServiceImplPlatformTest {
         List<Rating> ratings = createTestRatingData();
         indexTestRatingData(truckIds.get(0), ratings);
 
-        SearchResultDto<Truck> result = truckService.findByUserId(trucks.get(0).getUserId());
+        SearchResultDto<Truck> result = truckService.findByUserIdAsync(trucks.get(0).getUserId()).join();
         log.info(result.toString());
         
-        result.getDocs().stream().forEach(truck -> {
-            assertThat(truck.getRatings().stream().map(rating -> rating.getId()).collect(Collectors.toList()),
-                        contains(ratings.get(2).getId(), ratings.get(1).getId(), ratings.get(0).getId())
-            );
-        });
+        Truck truck = result.getDocs().stream().filter(doc -> doc.getId().equals(truckIds.get(0))).findFirst().get();
+        assertThat(truck.getNumRating(), is(ratings.size()));
+        assertThat(truck.getRatings(), is(nullValue()));
 
+        SearchResultDto<Rating> truckRatings = truckService.findRatingsAsync(truckIds.get(0), 20, null).join();
+        assertThat(truckRatings.getDocs().stream().map(rating -> rating.getId()).collect(Collectors.toList()),
+                    contains(ratings.get(2).getId(), ratings.get(1).getId(), ratings.get(0).getId())
+        );
     }
 
     @Test
@@ -235,7 +261,7 @@ public class TruckServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        Truck truck = truckService.getById(truckIds.get(0));
+        Truck truck = truckService.getByIdAsync(truckIds.get(0)).join();
         log.info(truck.toString());
 
         assertThat(truck.getId(), is(truckIds.get(0)));
@@ -256,7 +282,7 @@ public class TruckServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        SearchResultDto<Truck> result = truckService.getByIds(truckIds);
+        SearchResultDto<Truck> result = truckService.getByIdsAsync(truckIds).join();
 
         assertThat(result.getNumFound(), is(truckIds.size()));
 
@@ -284,7 +310,7 @@ public class TruckServiceImplPlatformTest {
         List<Rating> ratings = createTestRatingData();
         indexTestRatingData(truckIds.get(0), ratings);
 
-        Truck truck = truckService.getById(truckIds.get(0));
+        Truck truck = truckService.getByIdAsync(truckIds.get(0)).join();
         log.info(truck.toString());
 
         assertThat(truck.getRatings().stream().map(rating -> rating.getId()).collect(Collectors.toList()),
@@ -292,6 +318,28 @@ public class TruckServiceImplPlatformTest {
         );
     }
 
+    @Test
+    void testFindRatingsPagesInCreatedDateReverseOrder() {
+
+        List<TruckSaveRequestDto> trucks = createTestTruckSaveRequestDtos();
+        List<String> truckIds = indexTestTruckData(trucks);
+
+        List<Rating> ratings = createTestRatingData();
+        indexTestRatingData(truckIds.get(0), ratings);
+
+        SearchResultDto<Rating> firstPage = truckService.findRatingsAsync(truckIds.get(0), 2, null).join();
+        assertThat(firstPage.getNumFound(), is(ratings.size()));
+        assertThat(firstPage.getDocs().stream().map(rating -> rating.getId()).collect(Collectors.toList()),
+                    contains(ratings.get(2).getId(), ratings.get(1).getId())
+        );
+
+        SearchResultDto<Rating> secondPage = truckService.findRatingsAsync(truckIds.get(0), 2, firstPage.getNext()).join();
+        assertThat(secondPage.getDocs().stream().map(rating -> rating.getId()).collect(Collectors.toList()),
+                    contains(ratings.get(0).getId())
+        );
+        assertThat(secondPage.getNext(), nullValue());
+    }
+
     @Test
     void testSaveTruck() {
 
@@ -304,13 +352,14 @@ public class TruckServiceImplPlatformTest {
             assertThat(indexResult.getResult(), is("CREATED"));
         });
 
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
         try {
             Thread.sleep(2000);
         } catch(InterruptedException e) {
             e.printStackTrace();
         }
 
-        List<Truck> trucks = truckService.findAll().getDocs();
+        List<Truck> trucks = truckService.findAllAsync(SearchAfterCursor.MAX_PAGE_SIZE, null).join().getDocs();
 
         assertThat(trucks.size(), is(dtos.size()));
         trucks.stream().filter(truck -> truck.getImageUrl() != null).forEach(truck -> {
@@ -341,19 +390,48 @@ public class TruckServiceImplPlatformTest {
         IndexUpdateResultDto updateResult = truckService.updateTruck(truckUpdateRequestDto);
         assertThat(updateResult.getResult(), equalTo("UPDATED"));
 
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
         try {
             Thread.sleep(2000);
         } catch(InterruptedException e) {
             e.printStackTrace();
         }
 
-        Truck updatedTruck = truckService.getById(truckIds.get(1));
+        Truck updatedTruck = truckService.getByIdAsync(truckIds.get(1)).join();
         assertThat(updatedTruck.getName(), equalTo(nameToUpdate));
         assertThat(updatedTruck.getDescription(), equalTo(descriptionToUpdate));
         assertThat(updatedTruck.getImageUrl(), is(not(nullValue())));
         assertThat(s3Client.doesObjectExist(TRUCK_IMAGE_BUCKET, updatedTruck.getId()), is(true));
     }
 
+    @Test
+    void testCompleteImageUpload() throws IOException {
+
+        List<String> truckIds = indexTestTruckData(createTestTruckSaveRequestDtos());
+        String truckId = truckIds.get(1);
+
+        assertThat(truckService.createImageUpload(truckId, MediaType.TEXT_PLAIN_VALUE).getResult(), is("BAD_REQUEST"));
+        assertThat(truckService.completeImageUpload(truckId, "upload/" + truckIds.get(0) + "/" + UUID.randomUUID().toString()).getResult(), is("BAD_REQUEST"));
+        assertThat(truckService.completeImageUpload(truckId, "upload/" + truckId + "/" + UUID.randomUUID().toString()).getResult(), is("NOT_FOUND"));
+
+        PresignedUpload upload = truckService.createImageUpload(truckId, MediaType.IMAGE_PNG_VALUE);
+        assertThat(upload.getResult(), is("CREATED"));
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB), "png", png);
+        uploadToPresignedUrl(upload, png.toByteArray());
+
+        assertThat(truckService.completeImageUpload(truckId, upload.getKey()).getResult(), is("ACCEPTED"));
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
+
+        Truck truck = truckService.getByIdAsync(truckId).join();
+        assertThat(truck.getImageUrl(), is(not(nullValue())));
+        assertThat(truck.getImageVariants().get(ImagePipeline.THUMB), is(not(nullValue())));
+        assertThat(s3Client.doesObjectExist(TRUCK_IMAGE_BUCKET, truckId), is(true));
+        assertThat(s3Client.doesObjectExist(TRUCK_IMAGE_BUCKET, ImagePipeline.variantName(truckId, ImagePipeline.MEDIUM)), is(true));
+        assertThat("스테이징 업로드 삭제", s3Client.doesObjectExist(TRUCK_IMAGE_BUCKET, upload.getKey()), is(false));
+    }
+
     @Test
     void testDeleteTruck() {
 
@@ -363,8 +441,8 @@ public class TruckServiceImplPlatformTest {
         DeleteResultDto deleteResult1 = truckService.deleteTruck(truckIds.get(0));
         assertThat(deleteResult1.getResult(), is("DELETED"));
 
-        assertThat(truckService.getById(truckIds.get(0)), nullValue());
-        assertThat(truckService.getById(truckIds.get(1)), not(nullValue()));
+        assertThat(truckService.getByIdAsync(truckIds.get(0)).join(), nullValue());
+        assertThat(truckService.getByIdAsync(truckIds.get(1)).join(), not(nullValue()));
 
         assertThat("트럭 이미지 삭제", s3Client.doesObjectExist(TRUCK_IMAGE_BUCKET, truckIds.get(0)), is(false));
     }
@@ -397,6 +475,7 @@ public class TruckServiceImplPlatformTest {
         String foodId = updateResultDto.getId();
 
         assertThat(updateResultDto.getResult(), is("UPDATED"));
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
         assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, truckId + "/" + foodId), is(true));
 
         try {
@@ -406,6 +485,13 @@ public class TruckServiceImplPlatformTest {
         }
 
         assertThat(truckService.deleteTruck(truckId).getResult(), is("DELETED"));
+
+        try {
+            Thread.sleep(1500);
+        } catch(InterruptedException e) {
+            e.printStackTrace();
+        }
+
         assertThat(s3Client.doesObjectExist(FOOD_IMAGE_BUCKET, truckId + "/" + foodId), is(false));
     }
 
@@ -432,7 +518,7 @@ public class TruckServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        assertThat(favoriteService.countByTruckId(truckId), is(1));
+        assertThat(favoriteService.countByTruckIdAsync(truckId).join(), is(1));
         assertThat(truckService.deleteTruck(truckId).getResult(), is("DELETED"));
 
         try {
@@ -441,7 +527,7 @@ public class TruckServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        assertThat(favoriteService.countByTruckId(truckId), is(0));
+        assertThat(favoriteService.countByTruckIdAsync(truckId).join(), is(0));
     }
 
     @Test
@@ -451,7 +537,7 @@ public class TruckServiceImplPlatformTest {
         List<String> truckIds = indexTestTruckData(testTrucks);
         
         GeoLocation openLocation = new GeoLocation(33.0f, 133.0f);
-        IndexUpdateResultDto updateResult = truckService.openTruck(truckIds.get(0), openLocation);
+        IndexUpdateResultDto updateResult = truckService.openTruckAsync(truckIds.get(0), openLocation).join();
         assertThat(updateResult.getResult(), is("UPDATED"));
 
     try {
@@ -460,12 +546,105 @@ public class TruckServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        Truck startedTruck = truckService.getById(truckIds.get(0));
+        Truck startedTruck = truckService.getByIdAsync(truckIds.get(0)).join();
         assertThat(startedTruck.isOpened(), is(true));
         assertThat((double) startedTruck.getGeoLocation().getLat(), closeTo(openLocation.getLat(), 0.001f));
         assertThat((double) startedTruck.getGeoLocation().getLon(), closeTo(openLocation.getLon(), 0.001f));
     }
 
+    @Test
+    void testReportLocationKeepsOnlyLatestPosition() {
+
+        List<TruckSaveRequestDto> testTrucks = createTestTruckSaveRequestDtos();
+        List<String> truckIds = indexTestTruckData(testTrucks);
+
+        assertThat(truckService.openTruckAsync(truckIds.get(0), new GeoLocation(33.0f, 133.0f)).join().getResult(), is("UPDATED"));
+        assertThat(truckService.openTruckAsync(truckIds.get(1), new GeoLocation(33.5f, 133.5f)).join().getResult(), is("UPDATED"));
+
+        String owner = testTrucks.get(0).getUserId();
+        String otherOwner = testTrucks.get(1).getUserId();
+        assertThat(truckService.reportLocation(truckIds.get(0), owner, new GeoLocation(33.1f, 133.1f)), is(true));
+        assertThat(truckService.reportLocation(truckIds.get(0), owner, new GeoLocation(33.2f, 133.2f)), is(true));
+        assertThat(truckService.reportLocation(truckIds.get(1), otherOwner, new GeoLocation(34.0f, 134.0f)), is(true));
+        assertThat(truckService.reportLocation(truckIds.get(0), UUID.randomUUID().toString(), new GeoLocation(35.0f, 135.0f)), is(false));
+        assertThat(truckLocationBuffer.size(), is(2));
+
+        truckLocationBuffer.flush();
+        assertThat(truckLocationBuffer.size(), is(0));
+
+        try {
+            Thread.sleep(2000);
+        } catch(InterruptedException e) {
+            e.printStackTrace();
+        }
+
+        Truck movedTruck = truckService.getByIdAsync(truckIds.get(0)).join();
+        assertThat(movedTruck.isOpened(), is(true));
+        assertThat((double) movedTruck.getGeoLocation().getLat(), closeTo(33.2f, 0.001f));
+        assertThat((double) movedTruck.getGeoLocation().getLon(), closeTo(133.2f, 0.001f));
+
+        Truck otherTruck = truckService.getByIdAsync(truckIds.get(1)).join();
+        assertThat((double) otherTruck.getGeoLocation().getLat(), closeTo(34.0f, 0.001f));
+    }
+
+    @Test
+    void testReportLocationOfTruckOpenedElsewhere() {
+
+        List<TruckSaveRequestDto> testTrucks = createTestTruckSaveRequestDtos();
+        List<String> truckIds = indexTestTruckData(testTrucks);
+
+        assertThat(truckService.openTruckAsync(truckIds.get(0), new GeoLocation(33.0f, 133.0f)).join().getResult(), is("UPDATED"));
+
+        // as if the truck had been opened through another instance
+        openTruckIndex.remove(truckIds.get(0));
+        assertThat(openTruckIndex.get(truckIds.get(0)), is(nullValue()));
+
+        assertThat(truckService.reportLocation(truckIds.get(0), testTrucks.get(1).getUserId(), new GeoLocation(33.1f, 133.1f)), is(false));
+        assertThat(truckService.reportLocation(truckIds.get(0), testTrucks.get(0).getUserId(), new GeoLocation(33.1f, 133.1f)), is(true));
+        assertThat((double) openTruckIndex.get(truckIds.get(0)).getGeoLocation().getLat(), closeTo(33.1f, 0.001f));
+
+        assertThat(truckService.reportLocation(truckIds.get(1), testTrucks.get(1).getUserId(), new GeoLocation(34.0f, 134.0f)), is(false));
+    }
+
+    @Test
+    void testFindTrackDownsamplesHistory() throws IOException {
+
+        List<TruckSaveRequestDto> testTrucks = createTestTruckSaveRequestDtos();
+        List<String> truckIds = indexTestTruckData(testTrucks);
+
+        long from = System.currentTimeMillis();
+        assertThat(truckService.openTruckAsync(truckIds.get(0), new GeoLocation(33.0f, 133.0f)).join().getResult(), is("UPDATED"));
+        truckService.reportLocation(truckIds.get(0), testTrucks.get(0).getUserId(), new GeoLocation(33.2f, 133.2f));
+        truckService.reportLocation(truckIds.get(0), UUID.randomUUID().toString(), new GeoLocation(34.0f, 134.0f));
+        truckService.reportLocation(truckIds.get(1), testTrucks.get(1).getUserId(), new GeoLocation(34.0f, 134.0f));
+        assertThat(truckLocationHistory.size(), is(2));
+
+        truckLocationHistory.flush();
+        assertThat(truckLocationHistory.size(), is(0));
+        esClient.indices().refresh(new RefreshRequest(TEST_TRUCK_LOCATION_INDEX_PREFIX + "-*"), RequestOptions.DEFAULT);
+        long to = System.currentTimeMillis();
+
+        String owner = testTrucks.get(0).getUserId();
+        SearchResultDto<TrackPoint> track = truckService.findTrackAsync(truckIds.get(0), owner, from, to, "1d").join();
+        assertThat(track.getStatus(), is("OK"));
+        assertThat(track.getNumFound(), is(1));
+        assertThat(track.getDocs().get(0).getCount(), is(2L));
+        assertThat((double) track.getDocs().get(0).getGeoLocation().getLat(), closeTo(33.1f, 0.001f));
+        assertThat((double) track.getDocs().get(0).getGeoLocation().getLon(), closeTo(133.1f, 0.001f));
+
+        // a range reaching years ahead only searches the indices that can exist
+        SearchResultDto<TrackPoint> farFuture = truckService.findTrackAsync(truckIds.get(0), owner, from, from + 1999L * 24 * 60 * 60 * 1000, "1d").join();
+        assertThat(farFuture.getStatus(), is("OK"));
+        assertThat(farFuture.getNumFound(), is(1));
+
+        assertThat(truckService.findTrackAsync(truckIds.get(0), owner, from, to, "1y").join().getStatus(), is("BAD_REQUEST"));
+        assertThat(truckService.findTrackAsync(truckIds.get(0), owner, to, from, "1m").join().getStatus(), is("BAD_REQUEST"));
+
+        SearchResultDto<TrackPoint> notOwned = truckService.findTrackAsync(truckIds.get(0), testTrucks.get(1).getUserId(), from, to, "1d").join();
+        assertThat(notOwned.getStatus(), is("FORBIDDEN"));
+        assertThat(notOwned.getNumFound(), is(0));
+    }
+
     @Test
     void testStopTruck() {
 
@@ -473,7 +652,7 @@ public class TruckServiceImplPlatformTest {
         List<String> truckIds = indexTestTruckData(testTrucks);
         
         GeoLocation openLocation = new GeoLocation(33.0f, 133.0f);
-        IndexUpdateResultDto updateResult = truckService.openTruck(truckIds.get(0), openLocation);
+        IndexUpdateResultDto updateResult = truckService.openTruckAsync(truckIds.get(0), openLocation).join();
         assertThat(updateResult.getResult(), is("UPDATED"));
 
         try {
@@ -482,10 +661,10 @@ public class TruckServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        IndexUpdateResultDto stopResult = truckService.stopTruck(truckIds.get(0));
+        IndexUpdateResultDto stopResult = truckService.stopTruckAsync(truckIds.get(0)).join();
         assertThat(stopResult.getResult(), is("UPDATED"));
 
-        Truck stoppedTruck = truckService.getById(truckIds.get(0));
+        Truck stoppedTruck = truckService.getByIdAsync(truckIds.get(0)).join();
         assertThat(stoppedTruck.isOpened(), is(false));
     }
 
@@ -509,6 +688,21 @@ public class TruckServiceImplPlatformTest {
         return Arrays.asList(dto1, dto2);
     }
 
+    private void uploadToPresignedUrl(PresignedUpload upload, byte[] body) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(upload.getUrl()).openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", upload.getContentType());
+        connection.setFixedLengthStreamingMode(body.length);
+        try(OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        assertThat(connection.getResponseCode(), is(200));
+        connection.disconnect();
+    }
+
     private List<String> indexTestTruckData(List<TruckSaveRequestDto> dtos) {
 
         List<String> truckIds = new ArrayList<>();
@@ -520,6 +714,7 @@ public class TruckServiceImplPlatformTest {
             truckIds.add(indexResult.getId());
         });
 
+        assertThat(imagePipeline.awaitIdle(10000), is(true));
         try {
             Thread.sleep(2000);
         } catch(InterruptedException e) {
@@ -572,14 +767,6 @@ public class TruckServiceImplPlatformTest {
         }
     }
 
-    public void initS3Client() {
-        AWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
-        s3Client = AmazonS3ClientBuilder.standard()
-                .withCredentials(new AWSStaticCredentialsProvider(credentials))
-                .withRegion(Regions.AP_NORTHEAST_2)
-                .build();
-    }
-
     public void deleteS3Bucket(String bucketName) {
         if(s3Client.doesBucketExistV2(bucketName)) {
             s3Client.deleteBucket(new DeleteBucketRequest(bucketName));
@@ -1,10 +1,13 @@
 package com.gamakdragons.wheretruck.domain.user.controller;
 
 import static org.mockito.BDDMockito.given;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
@@ -21,6 +24,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
@@ -50,12 +54,16 @@ public class UserControllerTest {
 		user.setNickName("yain");
 		user.setRole(Role.OWNER);
 
-		given(userService.getById(userId)).willReturn(user);
+		given(userService.getByIdAsync(userId)).willReturn(CompletableFuture.completedFuture(user));
 
 		MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get("/api/user/me")
 															.requestAttr("userId", userId);
 
-		mockMvc.perform(request)
+		MvcResult mvcResult = mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(mvcResult))
 				.andExpect(status().isOk())
 				.andExpect(content().contentType("application/json"))
 				.andExpect(content().string(objectMapper.writeValueAsString(user)));
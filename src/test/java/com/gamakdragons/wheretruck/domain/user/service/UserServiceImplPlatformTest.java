@@ -14,9 +14,12 @@ import com.gamakdragons.wheretruck.common.IndexUpdateResultDto;
 import com.gamakdragons.wheretruck.domain.favorite.entity.Favorite;
 import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteService;
 import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteServiceImpl;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteCounter;
+import com.gamakdragons.wheretruck.domain.favorite.service.FavoriteSetCache;
 import com.gamakdragons.wheretruck.domain.user.dto.Role;
 import com.gamakdragons.wheretruck.domain.user.entity.User;
 import com.gamakdragons.wheretruck.test_config.ElasticSearchTestConfig;
+import com.gamakdragons.wheretruck.util.EsFutures;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.AfterEach;
@@ -28,7 +31,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 import lombok.extern.slf4j.Slf4j;
 
-@SpringBootTest(classes = {UserServiceImpl.class, ElasticSearchTestConfig.class, FavoriteServiceImpl.class, TestIndexUtil.class}, 
+@SpringBootTest(classes = {UserServiceImpl.class, ElasticSearchTestConfig.class, EsFutures.class, FavoriteServiceImpl.class, FavoriteSetCache.class, FavoriteCounter.class, TestIndexUtil.class}, 
                 properties = {"spring.config.location=classpath:application-test.yml"})
 @Slf4j
 public class UserServiceImplPlatformTest {
@@ -198,7 +201,7 @@ public class UserServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        assertThat(favoriteService.findByUserId(user.getId()).getNumFound(), is(1));
+        assertThat(favoriteService.findByUserIdAsync(user.getId()).join().getNumFound(), is(1));
 
         DeleteResultDto deleteResult = userService.deleteUser(user.getId());
         assertThat(deleteResult.getResult(), is("DELETED"));
@@ -209,7 +212,7 @@ public class UserServiceImplPlatformTest {
             e.printStackTrace();
         }
 
-        assertThat(favoriteService.findByUserId(user.getId()).getNumFound(), is(0));
+        assertThat(favoriteService.findByUserIdAsync(user.getId()).join().getNumFound(), is(0));
 
         assertThat(userService.getById(user.getId()), nullValue());
     }
@@ -0,0 +1,110 @@
+package com.gamakdragons.wheretruck.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.gamakdragons.wheretruck.common.GeoLocation;
+
+import org.junit.jupiter.api.Test;
+
+public class GeoGridIndexTest {
+
+    @Test
+    void testFindAcrossCellBoundary() {
+
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.1);
+        index.put("east", new GeoLocation(37.55f, 127.1001f), "east");
+        index.put("north", new GeoLocation(37.6001f, 127.05f), "north");
+
+        // 127.0999 and 127.1001 fall in neighbouring cells, as do 37.5999 and 37.6001
+        assertThat(ids(index.searchWithin(new GeoLocation(37.55f, 127.0999f), 1.0f)), contains("east"));
+        assertThat(ids(index.searchWithin(new GeoLocation(37.5999f, 127.05f), 1.0f)), contains("north"));
+    }
+
+    @Test
+    void testFindAcrossAntimeridian() {
+
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.1);
+        index.put("west", new GeoLocation(10.0f, -179.99f), "west");
+        index.put("east", new GeoLocation(10.0f, 179.99f), "east");
+
+        assertThat(ids(index.searchWithin(new GeoLocation(10.0f, 179.98f), 5.0f)), contains("east", "west"));
+        assertThat(ids(index.searchWithin(new GeoLocation(10.0f, -179.98f), 5.0f)), contains("west", "east"));
+    }
+
+    @Test
+    void testFindNearPoles() {
+
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.1);
+        index.put("north", new GeoLocation(90.0f, 0.0f), "north");
+        index.put("across", new GeoLocation(89.99f, 180.0f), "across");
+        index.put("south", new GeoLocation(-89.99f, -90.0f), "south");
+
+        // near a pole every longitude is close by
+        assertThat(ids(index.searchWithin(new GeoLocation(89.99f, 0.0f), 5.0f)), contains("north", "across"));
+        assertThat(ids(index.searchWithin(new GeoLocation(-90.0f, 0.0f), 5.0f)), contains("south"));
+    }
+
+    @Test
+    void testHitsAreOrderedByDistance() {
+
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.1);
+        index.put("far", new GeoLocation(37.58f, 127.0f), "far");
+        index.put("near", new GeoLocation(37.51f, 127.0f), "near");
+        index.put("middle", new GeoLocation(37.54f, 127.0f), "middle");
+        index.put("outside", new GeoLocation(38.5f, 127.0f), "outside");
+
+        List<GeoGridIndex.Hit<String>> hits = index.searchWithin(new GeoLocation(37.5f, 127.0f), 10.0f);
+
+        assertThat(ids(hits), contains("near", "middle", "far"));
+        assertThat(hits.get(0).getDistance(), lessThan(hits.get(1).getDistance()));
+        assertThat(hits.get(1).getDistance(), lessThan(hits.get(2).getDistance()));
+    }
+
+    @Test
+    void testEqualDistancesAreOrderedById() {
+
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.1);
+        index.put("b", new GeoLocation(37.5f, 127.0f), "b");
+        index.put("a", new GeoLocation(37.5f, 127.0f), "a");
+
+        assertThat(ids(index.searchWithin(new GeoLocation(37.5f, 127.0f), 1.0f)), contains("a", "b"));
+    }
+
+    @Test
+    void testPutReplacesId() {
+
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.1);
+        index.put("truck", new GeoLocation(37.5f, 127.0f), "seoul");
+        index.put("truck", new GeoLocation(35.18f, 129.08f), "busan");
+
+        assertThat(index.size(), is(1));
+        assertThat(index.get("truck"), is("busan"));
+        assertThat(index.searchWithin(new GeoLocation(37.5f, 127.0f), 10.0f), is(empty()));
+        assertThat(index.findWithin(new GeoLocation(35.18f, 129.08f), 10.0f), contains("busan"));
+    }
+
+    @Test
+    void testRemove() {
+
+        GeoGridIndex<String> index = new GeoGridIndex<>(0.1);
+        index.put("truck", new GeoLocation(37.5f, 127.0f), "seoul");
+        index.remove("truck");
+        index.remove("unknown");
+
+        assertThat(index.size(), is(0));
+        assertThat(index.get("truck"), is(nullValue()));
+        assertThat(index.searchWithin(new GeoLocation(37.5f, 127.0f), 10.0f), is(empty()));
+    }
+
+    private static List<String> ids(List<GeoGridIndex.Hit<String>> hits) {
+        return hits.stream().map(GeoGridIndex.Hit::getId).collect(Collectors.toList());
+    }
+}
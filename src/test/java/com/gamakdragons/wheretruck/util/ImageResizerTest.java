@@ -0,0 +1,151 @@
+package com.gamakdragons.wheretruck.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ImageResizerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReadWithoutExif() throws IOException {
+
+        Path path = writeJpeg(null);
+
+        assertThat(ImageResizer.orientation(path), is(1));
+
+        BufferedImage image = ImageResizer.read(path, 40, Long.MAX_VALUE);
+        assertThat(image.getWidth(), is(40));
+        assertThat(image.getHeight(), is(20));
+        assertThat(isRed(image.getRGB(5, 10)), is(true));
+    }
+
+    @Test
+    void testReadRotatesByExifOrientation() throws IOException {
+
+        Path path = writeJpeg(exif(6, ByteOrder.BIG_ENDIAN));
+
+        assertThat(ImageResizer.orientation(path), is(6));
+
+        // the red left half ends up on top after turning clockwise
+        BufferedImage image = ImageResizer.read(path, 40, Long.MAX_VALUE);
+        assertThat(image.getWidth(), is(20));
+        assertThat(image.getHeight(), is(40));
+        assertThat(isRed(image.getRGB(10, 5)), is(true));
+        assertThat(isRed(image.getRGB(10, 35)), is(false));
+    }
+
+    @Test
+    void testOrientationInLittleEndianExif() throws IOException {
+
+        Path path = writeJpeg(exif(8, ByteOrder.LITTLE_ENDIAN));
+
+        assertThat(ImageResizer.orientation(path), is(8));
+
+        // turning counter-clockwise puts the red left half at the bottom
+        BufferedImage image = ImageResizer.read(path, 40, Long.MAX_VALUE);
+        assertThat(image.getWidth(), is(20));
+        assertThat(image.getHeight(), is(40));
+        assertThat(isRed(image.getRGB(10, 35)), is(true));
+    }
+
+    @Test
+    void testOrientationOfPngIsIgnored() throws IOException {
+
+        Path path = tempDir.resolve("image.png");
+        ImageIO.write(createTestImage(), "png", path.toFile());
+
+        assertThat(ImageResizer.orientation(path), is(1));
+    }
+
+    @Test
+    void testToJpegKeepsAspectRatio() throws IOException {
+
+        byte[] jpeg = ImageResizer.toJpeg(createTestImage(), 10, 0.8f);
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+
+        assertThat(image.getWidth(), is(10));
+        assertThat(image.getHeight(), is(5));
+    }
+
+    /**
+     * 40x20, red on the left half and blue on the right.
+     */
+    private static BufferedImage createTestImage() {
+
+        BufferedImage image = new BufferedImage(40, 20, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.RED);
+        graphics.fillRect(0, 0, 20, 20);
+        graphics.setColor(Color.BLUE);
+        graphics.fillRect(20, 0, 20, 20);
+        graphics.dispose();
+        return image;
+    }
+
+    private Path writeJpeg(byte[] app1) throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(createTestImage(), "jpeg", out);
+        byte[] jpeg = out.toByteArray();
+
+        Path path = tempDir.resolve("image.jpg");
+        if(app1 == null) {
+            Files.write(path, jpeg);
+            return path;
+        }
+
+        // APP1 goes right after SOI, ahead of the JFIF segment
+        ByteArrayOutputStream withExif = new ByteArrayOutputStream();
+        withExif.write(jpeg, 0, 2);
+        withExif.write(0xFF);
+        withExif.write(0xE1);
+        withExif.write((app1.length + 2) >> 8);
+        withExif.write((app1.length + 2) & 0xFF);
+        withExif.write(app1);
+        withExif.write(jpeg, 2, jpeg.length - 2);
+        Files.write(path, withExif.toByteArray());
+        return path;
+    }
+
+    private static byte[] exif(int orientation, ByteOrder order) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(6 + 8 + 2 + 12 + 4).order(order);
+        buffer.put(new byte[]{'E', 'x', 'i', 'f', 0, 0});
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? new byte[]{'I', 'I'} : new byte[]{'M', 'M'});
+        buffer.putShort((short) 42);
+        buffer.putInt(8);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0x0112);
+        buffer.putShort((short) 3);
+        buffer.putInt(1);
+        buffer.putShort((short) orientation);
+        buffer.putShort((short) 0);
+        buffer.putInt(0);
+        return buffer.array();
+    }
+
+    private static boolean isRed(int rgb) {
+        Color color = new Color(rgb);
+        assertThat(color.getRed() + color.getBlue(), greaterThan(100));
+        return color.getRed() > color.getBlue();
+    }
+}
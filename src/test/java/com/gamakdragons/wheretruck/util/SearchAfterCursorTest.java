@@ -0,0 +1,46 @@
+package com.gamakdragons.wheretruck.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class SearchAfterCursorTest {
+
+    @Test
+    void testRoundTrip() {
+
+        Object[] sortValues = new Object[]{1622548800000L, "truck1"};
+
+        assertThat(SearchAfterCursor.decode(SearchAfterCursor.encode(sortValues), 2), is(sortValues));
+    }
+
+    @Test
+    void testDecodeWithoutCursor() {
+        assertThat(SearchAfterCursor.decode(null, 2), is(nullValue()));
+        assertThat(SearchAfterCursor.decode("", 2), is(nullValue()));
+    }
+
+    @Test
+    void testDecodeRejectsWrongNumberOfSortValues() {
+
+        String cursor = SearchAfterCursor.encode(new Object[]{"truck1"});
+
+        assertThrows(IllegalArgumentException.class, () -> SearchAfterCursor.decode(cursor, 2));
+    }
+
+    @Test
+    void testDecodeRejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> SearchAfterCursor.decode("not a cursor", 1));
+    }
+
+    @Test
+    void testPageSize() {
+        assertThat(SearchAfterCursor.pageSize(null, 20), is(20));
+        assertThat(SearchAfterCursor.pageSize(0, 20), is(20));
+        assertThat(SearchAfterCursor.pageSize(50, 20), is(50));
+        assertThat(SearchAfterCursor.pageSize(SearchAfterCursor.MAX_PAGE_SIZE + 1, 20), is(SearchAfterCursor.MAX_PAGE_SIZE));
+    }
+}